@@ -16,53 +16,155 @@
 package gov.nasa.jstateexplorer;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jstateexplorer.datastructures.explicitState.BitstateStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.CollapseCompressor;
+import gov.nasa.jstateexplorer.datastructures.explicitState.CompressedStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.ConcurrentStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.FrontierQueue;
+import gov.nasa.jstateexplorer.datastructures.explicitState.HashCompactionStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.MappedStateStore;
+import gov.nasa.jstateexplorer.datastructures.explicitState.OpenAddressingStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.StateEncoder;
+import gov.nasa.jstateexplorer.datastructures.explicitState.VisitedStateSet;
 import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
 import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper;
 import gov.nasa.jstateexplorer.transitionSystem.TransitionSystem;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.CompiledTransition;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ExpressionCompiler;
 import gov.nasa.jstateexplorer.util.SearchProfiler;
 import gov.nasa.jstateexplorer.util.SearchUtil;
 import gov.nasa.jstateexplorer.util.region.EnumerativeRegionUtil;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class is an enumerative breadth-first search.
+ * The search runs within the SearchSession of the calling thread.
  */
 public class EnumerativeSearchEngine {
-  private static Logger logger = Logger.getLogger("psyco");
+  private static final String loggerName = "psyco";
+
   public static EnumerativeImage enumerativBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth,
           Level level){
+    Logger logger = Logger.getLogger(loggerName);
     logger.setLevel(level);
-    return enumerativBreadthFirstSearch(transitionSystem, solver, maxSearchDepth);
+    return runEnumerativeSearch(transitionSystem, solver,
+            maxSearchDepth, null, logger);
   }
 
+  //The logger is only used by this search.
   public static EnumerativeImage enumerativBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth,
           Logger logger){
-    EnumerativeSearchEngine.logger = logger;
-    return enumerativBreadthFirstSearch(transitionSystem, solver, maxSearchDepth);
+    return runEnumerativeSearch(transitionSystem, solver,
+            maxSearchDepth, null, logger);
+  }
+
+  public static EnumerativeImage enumerativBreadthFirstSearch(
+          TransitionSystem transitionSystem,
+          ConstraintSolver solver,
+          SearchConfig sconf,
+          Logger logger){
+    return runEnumerativeSearch(transitionSystem, solver,
+            sconf.getMaxSearchDepth(), sconf, logger);
   }
 
   public static EnumerativeImage enumerativBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth) {
+    return runEnumerativeSearch(transitionSystem, solver,
+            maxSearchDepth, null, Logger.getLogger(loggerName));
+  }
+
+  private static EnumerativeImage runEnumerativeSearch(
+          TransitionSystem transitionSystem,
+          ConstraintSolver solver,
+          int maxSearchDepth,
+          SearchConfig sconf,
+          Logger logger) {
     SolverInstance.getInstance().setSolver(solver);
+    EnumerativeTransitionHelper enumerativeHelper
+            = transitionSystem.getHelper() instanceof EnumerativeTransitionHelper
+            ? (EnumerativeTransitionHelper) transitionSystem.getHelper()
+            : null;
+    if (enumerativeHelper != null && sconf != null) {
+      enumerativeHelper.setSuccessorLimit(sconf.getSuccessorLimit());
+      enumerativeHelper.setFusedGuardCheck(sconf.isFusedGuardCheck());
+    }
     System.out.println("gov.nasa.jstateexplorer.EnumerativeSearchEngine.enumerativBreadthFirstSearch()");
     System.out.println(transitionSystem.getInitValuation().toString());
     EnumerativeRegion newRegion, reachableRegion
             = new EnumerativeRegion(transitionSystem.getInitValuation());
     EnumerativeRegionUtil regionUtil = new EnumerativeRegionUtil(solver);
+    regionUtil.setIncrementalDifference(
+            sconf != null && sconf.isIncrementalDifference());
     SearchUtil<EnumerativeImage> searchUtil
             = new SearchUtil<>(regionUtil, logger);
     EnumerativeImage currentSearchState
             = new EnumerativeImage(reachableRegion);
+    StateEncoder encoder = null;
+    VisitedStateSet visited = null;
+    if (sconf != null && sconf.isExplicitStateHashing()) {
+      encoder = new StateEncoder(
+              transitionSystem.getInitValuation().getVariables());
+      visited = createVisitedSet(sconf, encoder.getWidth(), logger);
+      for (EnumerativeState state : reachableRegion.values()) {
+        visited.add(encoder.encode(state));
+      }
+      List<CompiledTransition> compiled = CompiledTransition.compileAll(
+              transitionSystem.getTransitions(),
+              new ExpressionCompiler(encoder.getVariables()),
+              encoder.getVariables());
+      if (compiled != null) {
+        regionUtil.dispose();
+        if (sconf.isRetainImages()) {
+          logger.warning("The compiled search does not retain images.");
+        }
+        FrontierQueue frontier = createFrontier(sconf, encoder.getWidth());
+        try {
+          return new ExplicitStateSearch(encoder, visited, compiled,
+                  sconf.getParallelism(), frontier,
+                  sconf.isFrontierReachableStates(),
+                  sconf.isBatchEvaluation(),
+                  enumerativeHelper != null ? enumerativeHelper
+                          : new EnumerativeTransitionHelper(),
+                  logger)
+                  .search(currentSearchState, maxSearchDepth);
+        } finally {
+          close(frontier);
+          close(visited);
+        }
+      }
+      //Only the compiled search writes and resumes checkpoints. The states
+      //of a checkpoint would hide all successors from the region loop.
+      if (visited instanceof MappedStateStore
+              && ((MappedStateStore) visited).getCheckpointDepth() >= 0) {
+        close(visited);
+        throw new IllegalStateException("The visited state store in "
+                + sconf.getVisitedStateStore() + " holds a checkpoint, "
+                + "but the transitions cannot be compiled to resume it.");
+      }
+    }
+    //An approximate visited set cannot enumerate the states it holds,
+    //so the reachable region is not collected either.
+    boolean collectReachable = visited == null || visited.isEnumerable();
+    if (!collectReachable) {
+      logger.info("The visited set cannot enumerate its states. Only the "
+              + "initial states are reachable states.");
+    }
     //the last iteration. A fix point is reached. This is the termiantion goal.
     while (!currentSearchState.getPreviousNewStates().isEmpty()) {
       EnumerativeImage newImage = searchUtil.post(currentSearchState,
@@ -77,8 +179,9 @@ public class EnumerativeSearchEngine {
       EnumerativeRegion nextReachableStates = newImage.getNewStates();
 
       SearchProfiler.startDiffProfiler(newImage.getDepth());
-      newRegion = regionUtil.difference(nextReachableStates,
-              reachableRegion);
+      newRegion = visited != null
+              ? explicitDifference(nextReachableStates, encoder, visited)
+              : regionUtil.difference(nextReachableStates, reachableRegion);
       SearchProfiler.stopDiffProfieler(newImage.getDepth());
 
       a = new StringBuilder();
@@ -89,24 +192,147 @@ public class EnumerativeSearchEngine {
       }
       logger.info("new Region: " + a);
       
-      reachableRegion = regionUtil.union(reachableRegion, newRegion);
+      if (collectReachable) {
+        reachableRegion = regionUtil.union(reachableRegion, newRegion);
+      }
       newImage.setReachableStates(reachableRegion);
       newImage.setReachableStates(reachableRegion);
       newImage.setPreviousNewStates(newRegion);
       newImage.setNewStates(null);
+      newImage.setRetainedImages(currentSearchState.getRetainedImages());
       currentSearchState = newImage;
+      if (sconf != null && sconf.isRetainImages()) {
+        currentSearchState.retain();
+      }
 
-      logState(currentSearchState);
+      logState(currentSearchState, logger);
       if (maxSearchDepth != Integer.MIN_VALUE
               && currentSearchState.getDepth() == maxSearchDepth) {
         currentSearchState.setDepth(Integer.MAX_VALUE);
         break;
       }
     }
+    if (visited != null) {
+      logger.info("visited states: " + visited);
+      currentSearchState.setOmissionProbability(
+              visited.getOmissionProbability());
+      close(visited);
+    }
+    if (enumerativeHelper != null) {
+      enumerativeHelper.dispose();
+    }
+    regionUtil.dispose();
     return currentSearchState;
   }
 
-  private static void logState(EnumerativeImage newImage) {
+  /**
+   * Approximate sets need a frontier, whether the transitions compile or
+   * not, so the configuration is checked before any set is created.
+   * Only one kind of set is created. The options of the other kinds are
+   * ignored with a warning.
+   */
+  private static VisitedStateSet createVisitedSet(SearchConfig sconf,
+          int width, Logger logger) {
+    if ((sconf.getBitstateLog2Size() > 0 || sconf.isHashCompaction())
+            && sconf.getVisitedStateStore() == null
+            && sconf.getFrontierDirectory() == null) {
+      throw new IllegalArgumentException("Bitstate hashing and hash "
+              + "compaction need a frontier directory.");
+    }
+    String chosen = sconf.getVisitedStateStore() != null
+            ? "the visited state store"
+            : sconf.getBitstateLog2Size() > 0 ? "bitstate hashing"
+            : sconf.isHashCompaction() ? "hash compaction" : null;
+    if (chosen != null) {
+      if (sconf.getVisitedStateStore() != null
+              && sconf.getBitstateLog2Size() > 0) {
+        logger.warning("Bitstate hashing is ignored for " + chosen + ".");
+      }
+      if ((sconf.getVisitedStateStore() != null
+              || sconf.getBitstateLog2Size() > 0)
+              && sconf.isHashCompaction()) {
+        logger.warning("Hash compaction is ignored for " + chosen + ".");
+      }
+      if (sconf.getCollapseGroupSize() > 0) {
+        logger.warning("Collapse compression is ignored for " + chosen
+                + ".");
+      }
+    }
+    if (sconf.getVisitedStateStore() != null) {
+      try {
+        return MappedStateStore.open(Paths.get(sconf.getVisitedStateStore()),
+                width);
+      } catch (IOException ex) {
+        throw new IllegalStateException("Cannot open the visited state store.",
+                ex);
+      }
+    } else if (sconf.getBitstateLog2Size() > 0) {
+      return new BitstateStateSet(width, sconf.getBitstateLog2Size(),
+              sconf.getBitstateHashFunctions());
+    } else if (sconf.isHashCompaction()) {
+      return new HashCompactionStateSet(width);
+    } else if (sconf.getCollapseGroupSize() > 0) {
+      CollapseCompressor compressor
+              = new CollapseCompressor(width, sconf.getCollapseGroupSize());
+      return new CompressedStateSet(compressor,
+              createExactSet(sconf, compressor.getCompressedWidth()));
+    }
+    return createExactSet(sconf, width);
+  }
+
+  private static VisitedStateSet createExactSet(SearchConfig sconf,
+          int width) {
+    if (sconf.getParallelism() > 1) {
+      return new ConcurrentStateSet(width);
+    }
+    return new OpenAddressingStateSet(width);
+  }
+
+  private static FrontierQueue createFrontier(SearchConfig sconf,
+          int width) {
+    if (sconf.getFrontierDirectory() == null) {
+      return null;
+    }
+    try {
+      return new FrontierQueue(Paths.get(sconf.getFrontierDirectory()),
+              width);
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot create the frontier.", ex);
+    }
+  }
+
+  private static void close(Object resource) {
+    if (resource instanceof Closeable) {
+      try {
+        ((Closeable) resource).close();
+      } catch (IOException ex) {
+        Logger.getLogger(EnumerativeSearchEngine.class.getName()).log(Level.SEVERE, null, ex);
+      }
+    }
+  }
+
+  /**
+   * Keeps the states, whose encoding is not yet in the visited set,
+   * and adds them to the set. No solver call is needed for concrete states.
+   */
+  private static EnumerativeRegion explicitDifference(
+          EnumerativeRegion nextReachableStates, StateEncoder encoder,
+          VisitedStateSet visited) {
+    EnumerativeRegion newRegion = nextReachableStates.createNewRegion();
+    visited.ensureCapacity(visited.size() + nextReachableStates.size());
+    long[] key = new long[encoder.getWidth()];
+    for (Map.Entry<String, EnumerativeState> entry
+            : nextReachableStates.entrySet()) {
+      encoder.encode(entry.getValue(), key);
+      if (visited.add(key)) {
+        newRegion.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return newRegion;
+  }
+
+  private static void logState(EnumerativeImage newImage,
+          Logger logger) {
     StringBuilder builder = new StringBuilder();
     try {
       newImage.print(builder);
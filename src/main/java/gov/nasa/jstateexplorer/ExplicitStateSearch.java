@@ -0,0 +1,736 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer;
+
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jstateexplorer.datastructures.explicitState.CollapseCompressor;
+import gov.nasa.jstateexplorer.datastructures.explicitState.CompressedStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.FrontierQueue;
+import gov.nasa.jstateexplorer.datastructures.explicitState.MappedStateStore;
+import gov.nasa.jstateexplorer.datastructures.explicitState.OpenAddressingStateSet;
+import gov.nasa.jstateexplorer.datastructures.explicitState.StateEncoder;
+import gov.nasa.jstateexplorer.datastructures.explicitState.StateList;
+import gov.nasa.jstateexplorer.datastructures.explicitState.VisitedStateSet;
+import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
+import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper;
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.CompiledTransition;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.StateBatch;
+import gov.nasa.jstateexplorer.util.HelperMethods;
+import gov.nasa.jstateexplorer.util.SearchProfiler;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The explicit state search over compiled transitions. It needs neither
+ * the solver nor State objects. The states are kept as encoded keys in
+ * breadth-first order, so the states of a depth are a range of the
+ * state list. The regions of the image are created, when the search
+ * is done. So there are no images of the single depths to retain.
+ * With a parallelism above 1 the search is level-synchronous: The workers
+ * take chunks of the current level, collect their new states locally and
+ * deduplicate them in a shared concurrent visited set. The new states are
+ * appended to the state list after all workers finished the level, so the
+ * depth of each state is exact. The visited set must be thread-safe in
+ * this case.
+ * Sets with a fixed capacity grow between two chunks: Before a chunk, a
+ * worker checks, that the set holds the successors of one chunk per worker.
+ * Otherwise it waits until the other workers finished their chunks and
+ * doubles the set. This assumes one successor per compiled transition. The
+ * solver might find more successors for a state, so the worker reserves
+ * these again before it adds them.
+ * The omission probability of approximate visited sets is reported in
+ * the image. Approximate sets need a FrontierQueue, as the state list
+ * would keep every state they leave out.
+ * If the visited set is a MappedStateStore, the store is the state list as
+ * well and a checkpoint is written after each depth. A store with a
+ * checkpoint continues the search from the checkpoint. Errors found before
+ * the checkpoint are not part of the store and are not reported again.
+ * Otherwise a FrontierQueue replaces the state list, if one is given:
+ * Each depth is streamed through a segment file, so only the visited set
+ * stays in memory. The previous new states of the image are the last
+ * depth. The reachable states are only the initial states, unless the
+ * caller asks for all of them. Then they are enumerated from the visited
+ * set at the end.
+ * If the visited set is a CompressedStateSet, the state list holds the
+ * compressed states as well.
+ * If a compiled transition throws an ArithmeticException for a state,
+ * e.g. a division by zero, the transition is evaluated for this state by
+ * the solver through the fallback helper, like in the interpreted search.
+ * With batch evaluation the states are expanded in chunks: A chunk is laid
+ * out as StateBatch and each transition is evaluated for the whole chunk
+ * by its column terms. It is only used, if all transitions have column
+ * terms.
+ */
+class ExplicitStateSearch {
+
+  private static final int CHUNK_SIZE = 256;
+
+  private final StateEncoder encoder;
+  private final VisitedStateSet visited;
+  private final List<CompiledTransition> transitions;
+  private final int parallelism;
+  private final Logger logger;
+  private final long headroom;
+  private final ReentrantReadWriteLock growth;
+  private final MappedStateStore store;
+  private final FrontierQueue frontier;
+  private final boolean frontierReachableStates;
+  private final CollapseCompressor compressor;
+  private final boolean batchEvaluation;
+  private final EnumerativeTransitionHelper fallback;
+  private final SearchSession session;
+  private final Map<Variable<?>, Integer> primeSlots;
+
+  ExplicitStateSearch(StateEncoder encoder, VisitedStateSet visited,
+          List<CompiledTransition> transitions, int parallelism,
+          FrontierQueue frontier, boolean frontierReachableStates,
+          boolean batchEvaluation, EnumerativeTransitionHelper fallback,
+          Logger logger) {
+    this.encoder = encoder;
+    this.visited = visited;
+    this.transitions = transitions;
+    this.parallelism = Math.max(1, parallelism);
+    this.logger = logger;
+    int ok = 0;
+    for (CompiledTransition transition : transitions) {
+      if (transition.getTransition().isOk()) {
+        ++ok;
+      }
+    }
+    //Each worker adds at most the successors of one chunk at a time.
+    this.headroom = (long) this.parallelism * CHUNK_SIZE * ok;
+    this.growth = new ReentrantReadWriteLock();
+    this.store = visited instanceof MappedStateStore
+            ? (MappedStateStore) visited : null;
+    this.frontier = store == null ? frontier : null;
+    if (store != null && frontier != null) {
+      logger.warning("The frontier is ignored, as the visited state store "
+              + "is the state list.");
+    }
+    if (!visited.isEnumerable() && this.frontier == null) {
+      throw new IllegalArgumentException(
+              "An approximate visited set needs a frontier.");
+    }
+    this.frontierReachableStates = frontierReachableStates;
+    this.compressor = visited instanceof CompressedStateSet
+            ? ((CompressedStateSet) visited).getCompressor() : null;
+    boolean batch = batchEvaluation;
+    for (CompiledTransition transition : transitions) {
+      batch &= transition.supportsBatch();
+    }
+    this.batchEvaluation = batch;
+    this.fallback = fallback;
+    this.session = SearchSession.current();
+    this.primeSlots = new HashMap<>();
+    SymbolTable symbols = SymbolTable.getInstance();
+    List<Variable<?>> slots = encoder.getVariables();
+    for (int i = 0; i < slots.size(); i++) {
+      primeSlots.put(symbols.getPrimeVariable(slots.get(i)), i);
+    }
+  }
+
+  /**
+   * Runs the search starting with the reachable states of the image.
+   * The initial states must already be in the visited set.
+   */
+  EnumerativeImage search(EnumerativeImage currentSearchState,
+          int maxSearchDepth) {
+    ExecutorService workers = parallelism > 1
+            ? Executors.newFixedThreadPool(parallelism) : null;
+    try {
+      if (frontier != null) {
+        searchFrontier(currentSearchState, maxSearchDepth, workers);
+      } else {
+        searchStateList(currentSearchState, maxSearchDepth, workers);
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot access the frontier.", ex);
+    } finally {
+      if (workers != null) {
+        workers.shutdown();
+      }
+    }
+    logger.info("visited states: " + visited);
+    currentSearchState.setOmissionProbability(
+            visited.getOmissionProbability());
+    return currentSearchState;
+  }
+
+  private void searchStateList(EnumerativeImage currentSearchState,
+          int maxSearchDepth, ExecutorService workers) {
+    int width = encoder.getWidth();
+    StateList states = null;
+    long levelStart = 0;
+    long levelEnd;
+    boolean expand = true;
+    if (store == null) {
+      states = newStateList();
+      Consumer<long[]> initial = found(states);
+      for (EnumerativeState state
+              : currentSearchState.getReachableStates().values()) {
+        initial.accept(encoder.encode(state));
+      }
+      levelEnd = states.size();
+    } else if (store.getCheckpointDepth() >= 0) {
+      currentSearchState.setDepth(store.getCheckpointDepth());
+      levelStart = store.getCheckpointLevelStart();
+      levelEnd = store.getCheckpointLevelEnd();
+      logger.info("resume at depth: " + store.getCheckpointDepth()
+              + " states: " + store.size());
+      if (maxSearchDepth != Integer.MIN_VALUE
+              && store.getCheckpointDepth() >= maxSearchDepth) {
+        //The checkpoint is at or beyond the maximal depth already.
+        currentSearchState.setDepth(Integer.MAX_VALUE);
+        expand = false;
+      }
+    } else {
+      levelEnd = store.size();
+    }
+    while (expand && levelStart < levelEnd) {
+      currentSearchState.increaseDepth(1);
+      int depth = currentSearchState.getDepth();
+      SearchProfiler.startTransitionProfiler(depth);
+      boolean[] reached = new boolean[transitions.size()];
+      if (workers != null) {
+        expandParallel(workers, states, levelStart, levelEnd, reached);
+      } else {
+        new Expander(found(states), reached)
+                .expand(states, levelStart, levelEnd);
+      }
+      report(currentSearchState, reached);
+      SearchProfiler.stopTransitionProfiler(depth);
+      levelStart = levelEnd;
+      levelEnd = size(states);
+      if (store != null) {
+        store.checkpoint(depth, levelStart, levelEnd);
+      }
+      logger.info("depth: " + depth + " new states: "
+              + (levelEnd - levelStart));
+      if (maxSearchDepth != Integer.MIN_VALUE && depth >= maxSearchDepth) {
+        currentSearchState.setDepth(Integer.MAX_VALUE);
+        break;
+      }
+    }
+    setRegions(currentSearchState, states, levelStart);
+  }
+
+  private void searchFrontier(EnumerativeImage currentSearchState,
+          int maxSearchDepth, ExecutorService workers) throws IOException {
+    frontier.openLevel();
+    for (EnumerativeState state
+            : currentSearchState.getReachableStates().values()) {
+      frontier.add(encoder.encode(state));
+    }
+    long levelSize = frontier.closeLevel();
+    while (levelSize > 0) {
+      currentSearchState.increaseDepth(1);
+      int depth = currentSearchState.getDepth();
+      SearchProfiler.startTransitionProfiler(depth);
+      boolean[] reached = new boolean[transitions.size()];
+      try (FrontierQueue.Reader level = frontier.nextLevel()) {
+        frontier.openLevel();
+        if (workers != null) {
+          expandParallel(workers, level, reached);
+        } else {
+          new Expander(frontier::add, reached).expand(level);
+        }
+        levelSize = frontier.closeLevel();
+      }
+      report(currentSearchState, reached);
+      SearchProfiler.stopTransitionProfiler(depth);
+      logger.info("depth: " + depth + " new states: " + levelSize);
+      if (maxSearchDepth != Integer.MIN_VALUE && depth >= maxSearchDepth) {
+        currentSearchState.setDepth(Integer.MAX_VALUE);
+        break;
+      }
+    }
+    setRegions(currentSearchState, frontier.nextLevel());
+  }
+
+  /**
+   * Marks the reached transitions and records the errors
+   * reached the first time.
+   */
+  private void report(EnumerativeImage currentSearchState,
+          boolean[] reached) {
+    for (int i = 0; i < reached.length; i++) {
+      Transition transition = transitions.get(i).getTransition();
+      if (!reached[i]) {
+        continue;
+      }
+      if (transition.isOk()) {
+        transition.setReached(true);
+      } else if (!transition.isReached()) {
+        transition.setReached(true);
+        currentSearchState.addErrorInCurrentDepth(
+                transition.getErrorMessage());
+      }
+    }
+  }
+
+  private void expandParallel(ExecutorService workers, StateList states,
+          long levelStart, long levelEnd, boolean[] reached) {
+    AtomicLong cursor = new AtomicLong(levelStart);
+    List<Callable<StateList>> tasks = new ArrayList<>();
+    List<boolean[]> reachedByWorker = new ArrayList<>();
+    for (int worker = 0; worker < parallelism; worker++) {
+      boolean[] workerReached = new boolean[reached.length];
+      reachedByWorker.add(workerReached);
+      tasks.add(() -> {
+        StateList found = store == null ? newStateList() : null;
+        Expander expander = new Expander(found(found), workerReached);
+        long chunkStart;
+        while ((chunkStart = cursor.getAndAdd(CHUNK_SIZE)) < levelEnd) {
+          expander.expand(states, chunkStart,
+                  Math.min(levelEnd, chunkStart + CHUNK_SIZE));
+        }
+        return found;
+      });
+    }
+    for (StateList found : invokeAll(workers, tasks)) {
+      if (found != null) {
+        states.addAll(found);
+      }
+    }
+    merge(reachedByWorker, reached);
+  }
+
+  /**
+   * The workers read chunks from the shared level reader and add their
+   * new states directly to the next level of the frontier. The order
+   * within a level does not matter.
+   */
+  private void expandParallel(ExecutorService workers,
+          FrontierQueue.Reader level, boolean[] reached) {
+    List<Callable<StateList>> tasks = new ArrayList<>();
+    List<boolean[]> reachedByWorker = new ArrayList<>();
+    for (int worker = 0; worker < parallelism; worker++) {
+      boolean[] workerReached = new boolean[reached.length];
+      reachedByWorker.add(workerReached);
+      tasks.add(() -> {
+        new Expander(frontier::add, workerReached).expand(level);
+        return null;
+      });
+    }
+    invokeAll(workers, tasks);
+    merge(reachedByWorker, reached);
+  }
+
+  private static List<StateList> invokeAll(ExecutorService workers,
+          List<Callable<StateList>> tasks) {
+    List<StateList> results = new ArrayList<>();
+    try {
+      for (Future<StateList> result : workers.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("The parallel search was interrupted.",
+              ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("A search worker failed.",
+              ex.getCause());
+    }
+    return results;
+  }
+
+  private static void merge(List<boolean[]> reachedByWorker,
+          boolean[] reached) {
+    for (boolean[] workerReached : reachedByWorker) {
+      for (int i = 0; i < reached.length; i++) {
+        reached[i] |= workerReached[i];
+      }
+    }
+  }
+
+  /**
+   * The sink for new states: The list or nothing, if the store keeps them.
+   * Each thread needs its own sink, as it might hold a buffer.
+   */
+  private Consumer<long[]> found(StateList states) {
+    if (states == null) {
+      return null;
+    } else if (compressor == null) {
+      return states::add;
+    }
+    long[] packed = packedBuffer();
+    return key -> states.add(compressor.compress(key, packed));
+  }
+
+  private StateList newStateList() {
+    return new StateList(compressor != null
+            ? compressor.getCompressedWidth() : encoder.getWidth());
+  }
+
+  private long[] packedBuffer() {
+    return compressor != null
+            ? new long[compressor.getCompressedWidth()] : null;
+  }
+
+  /**
+   * The store is the state list, if there is one.
+   */
+  private long size(StateList states) {
+    return store != null ? store.size() : states.size();
+  }
+
+  /**
+   * Copies the state into the buffer. packed is the buffer for the
+   * compressed state, if there is a compressor.
+   */
+  private void get(StateList states, long index, long[] packed,
+          long[] state) {
+    if (store != null) {
+      store.get(index, state);
+    } else if (compressor != null) {
+      states.get((int) index, packed);
+      compressor.decompress(packed, state);
+    } else {
+      states.get((int) index, state);
+    }
+  }
+
+  private void setRegions(EnumerativeImage currentSearchState,
+          StateList states, long lastLevelStart) {
+    long[] state = new long[encoder.getWidth()];
+    long[] packed = packedBuffer();
+    EnumerativeRegion reachableRegion = new EnumerativeRegion();
+    EnumerativeRegion lastRegion = new EnumerativeRegion();
+    for (long index = 0; index < size(states); index++) {
+      get(states, index, packed, state);
+      String name = index == 0 ? "init" : HelperMethods.getUniqueStateName();
+      EnumerativeState decoded = encoder.decode(state);
+      reachableRegion.put(name, decoded);
+      if (index >= lastLevelStart) {
+        lastRegion.put(name, decoded);
+      }
+    }
+    currentSearchState.setReachableStates(reachableRegion);
+    currentSearchState.setPreviousNewStates(lastRegion);
+    currentSearchState.setNewStates(null);
+  }
+
+  /**
+   * The last level is read from the frontier. The reachable states are
+   * the initial states or, if requested, all states of the visited set.
+   * The initial states keep their names.
+   */
+  private void setRegions(EnumerativeImage currentSearchState,
+          FrontierQueue.Reader lastLevel) throws IOException {
+    int width = encoder.getWidth();
+    EnumerativeRegion lastRegion = new EnumerativeRegion();
+    try (FrontierQueue.Reader level = lastLevel) {
+      long[] chunk = new long[CHUNK_SIZE * width];
+      long[] state = new long[width];
+      int count;
+      while ((count = level.read(chunk, CHUNK_SIZE)) > 0) {
+        for (int index = 0; index < count; index++) {
+          System.arraycopy(chunk, index * width, state, 0, width);
+          lastRegion.put(HelperMethods.getUniqueStateName(),
+                  encoder.decode(state));
+        }
+      }
+    }
+    if (frontierReachableStates) {
+      if (visited.isEnumerable()) {
+        currentSearchState.setReachableStates(
+                enumerateVisited(currentSearchState.getReachableStates()));
+      } else {
+        logger.warning("The visited set cannot enumerate its states. Only "
+                + "the initial states are reachable states.");
+      }
+    }
+    currentSearchState.setPreviousNewStates(lastRegion);
+    currentSearchState.setNewStates(null);
+  }
+
+  private EnumerativeRegion enumerateVisited(EnumerativeRegion initial) {
+    EnumerativeRegion reachableRegion = new EnumerativeRegion();
+    OpenAddressingStateSet named
+            = new OpenAddressingStateSet(encoder.getWidth());
+    for (Map.Entry<String, EnumerativeState> init : initial.entrySet()) {
+      reachableRegion.put(init.getKey(), init.getValue());
+      named.add(encoder.encode(init.getValue()));
+    }
+    visited.forEach(key -> {
+      if (!named.contains(key)) {
+        reachableRegion.put(HelperMethods.getUniqueStateName(),
+                encoder.decode(key));
+      }
+    });
+    return reachableRegion;
+  }
+
+  /**
+   * Makes sure, the visited set holds the successors of the chunks
+   * expanded at the moment. The caller holds the read lock of growth
+   * afterwards and releases it after the chunk.
+   */
+  private void reserveChunk() {
+    reserveChunk(0);
+  }
+
+  /**
+   * Like reserveChunk(), but with room for extra successors on top of the
+   * headroom.
+   */
+  private void reserveChunk(long extra) {
+    growth.readLock().lock();
+    if (visited.hasCapacity(visited.size() + headroom + extra)) {
+      return;
+    }
+    growth.readLock().unlock();
+    growth.writeLock().lock();
+    try {
+      long expected = visited.size() + headroom + extra;
+      if (!visited.hasCapacity(expected)) {
+        visited.ensureCapacity(2 * expected);
+      }
+    } finally {
+      growth.readLock().lock();
+      growth.writeLock().unlock();
+    }
+  }
+
+  private void releaseChunk() {
+    growth.readLock().unlock();
+  }
+
+  /**
+   * Evaluates the transition for the state with the solver. Returns null,
+   * if the transition is not enabled. The workers share the solver, so
+   * they take turns.
+   */
+  private synchronized List<long[]> solveSuccessors(Transition transition,
+          long[] state) {
+    if (fallback == null) {
+      throw new IllegalStateException("The transition " + transition.getId()
+              + " cannot be evaluated without the solver.");
+    }
+    List<EnumerativeState> successors = session.execute(
+            () -> fallback.computeSuccessors(transition,
+                    encoder.decode(state)));
+    if (successors == null) {
+      return null;
+    }
+    List<long[]> encoded = new ArrayList<>();
+    for (EnumerativeState successor : successors) {
+      long[] key = new long[encoder.getWidth()];
+      for (ValuationEntry entry : successor) {
+        Integer slot = primeSlots.get(entry.getVariable());
+        if (slot != null) {
+          key[slot] = StateEncoder.encodeValue(entry.getValue());
+        }
+      }
+      encoded.add(key);
+    }
+    return encoded;
+  }
+
+  /**
+   * Expands states with the buffers of one thread. New states are passed
+   * to found.
+   */
+  private class Expander {
+
+    private final Consumer<long[]> found;
+    private final boolean[] reached;
+    private final long[] state;
+    private final long[] successor;
+    private final long[] row;
+    private final long[] packed;
+    private final StateBatch batch;
+    private final StateBatch enabled;
+    private final StateBatch successors;
+
+    Expander(Consumer<long[]> found, boolean[] reached) {
+      int width = encoder.getWidth();
+      this.found = found;
+      this.reached = reached;
+      this.state = new long[width];
+      this.successor = new long[width];
+      this.row = new long[width];
+      this.packed = packedBuffer();
+      this.batch = batchEvaluation ? new StateBatch(width, CHUNK_SIZE) : null;
+      this.enabled = batchEvaluation
+              ? new StateBatch(width, CHUNK_SIZE) : null;
+      this.successors = batchEvaluation
+              ? new StateBatch(width, CHUNK_SIZE) : null;
+    }
+
+    /**
+     * Expands the states in the range chunk by chunk. found might append
+     * to the state list itself, as new states are appended behind the
+     * range.
+     */
+    void expand(StateList states, long from, long to) {
+      for (long chunkStart = from; chunkStart < to;
+              chunkStart += CHUNK_SIZE) {
+        long chunkEnd = Math.min(to, chunkStart + CHUNK_SIZE);
+        reserveChunk();
+        try {
+          for (long index = chunkStart; index < chunkEnd; index++) {
+            get(states, index, packed, state);
+            add(state);
+          }
+          flush();
+        } finally {
+          releaseChunk();
+        }
+      }
+    }
+
+    /**
+     * Expands the states of the level chunk by chunk until it is exhausted.
+     */
+    void expand(FrontierQueue.Reader level) {
+      int width = encoder.getWidth();
+      long[] chunk = new long[CHUNK_SIZE * width];
+      int count;
+      do {
+        reserveChunk();
+        try {
+          count = level.read(chunk, CHUNK_SIZE);
+          for (int index = 0; index < count; index++) {
+            System.arraycopy(chunk, index * width, state, 0, width);
+            add(state);
+          }
+          flush();
+        } finally {
+          releaseChunk();
+        }
+      } while (count > 0);
+    }
+
+    private void add(long[] state) {
+      if (batch == null) {
+        expandState(state);
+        return;
+      }
+      batch.add(state);
+      if (batch.isFull()) {
+        flush();
+      }
+    }
+
+    private void expandState(long[] state) {
+      for (int i = 0; i < transitions.size(); i++) {
+        expandTransition(i, state);
+      }
+    }
+
+    private void expandTransition(int i, long[] state) {
+      CompiledTransition compiled = transitions.get(i);
+      boolean ok = compiled.getTransition().isOk();
+      if (!ok && reached[i]) {
+        return;
+      }
+      try {
+        if (!compiled.isEnabled(state)) {
+          return;
+        }
+        if (ok) {
+          compiled.apply(state, successor);
+        }
+      } catch (ArithmeticException ex) {
+        expandWithSolver(i, state);
+        return;
+      }
+      reached[i] = true;
+      if (ok) {
+        addSuccessor();
+      }
+    }
+
+    private void expandWithSolver(int i, long[] state) {
+      List<long[]> solved
+              = solveSuccessors(transitions.get(i).getTransition(), state);
+      if (solved == null) {
+        return;
+      }
+      if (solved.size() > 1) {
+        //The headroom only covers one successor of the transition.
+        releaseChunk();
+        reserveChunk(solved.size());
+      }
+      reached[i] = true;
+      for (long[] solvedSuccessor : solved) {
+        System.arraycopy(solvedSuccessor, 0, successor, 0, successor.length);
+        addSuccessor();
+      }
+    }
+
+    /**
+     * Expands the states of the batch transition by transition. If the
+     * column terms of a transition fail, e.g. due to a division by zero in
+     * a row, the rows are expanded one by one for this transition.
+     */
+    private void flush() {
+      if (batch == null || batch.size() == 0) {
+        return;
+      }
+      for (int i = 0; i < transitions.size(); i++) {
+        CompiledTransition compiled = transitions.get(i);
+        boolean ok = compiled.getTransition().isOk();
+        if (!ok && reached[i]) {
+          continue;
+        }
+        int enabledStates;
+        try {
+          enabledStates = compiled.applyBatch(batch, enabled, successors);
+        } catch (ArithmeticException ex) {
+          for (int index = 0; index < batch.size(); index++) {
+            batch.get(index, row);
+            expandTransition(i, row);
+          }
+          continue;
+        }
+        if (enabledStates == 0) {
+          continue;
+        }
+        reached[i] = true;
+        for (int row = 0; row < successors.size(); row++) {
+          successors.get(row, successor);
+          addSuccessor();
+        }
+      }
+      batch.clear();
+    }
+
+    private void addSuccessor() {
+      if (visited.add(successor) && found != null) {
+        found.accept(successor);
+      }
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package gov.nasa.jstateexplorer;
 
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
 import java.io.File;
+import java.util.Properties;
 
 /**
  *
@@ -12,6 +14,26 @@ public class SearchConfig {
   private boolean enumerativeSearch, symbolicSearch,
           saveTransitionSystem, saveSearchResult;
   private int maxSearchDepth = Integer.MIN_VALUE;
+  private boolean incrementalDifference = false;
+  private int parallelism = 1;
+  private Properties solverConfiguration = null;
+  private int solverCacheSize = 0;
+  private int modelCacheSize = 0;
+  private int unsatCoreCacheSize = 0;
+  private int unsatCoreMinimizationBudget = 8;
+  private boolean querySlicing = false;
+  private boolean explicitStateHashing = false;
+  private int successorLimit = 0;
+  private boolean fusedGuardCheck = false;
+  private int bitstateLog2Size = 0;
+  private int bitstateHashFunctions = 3;
+  private boolean hashCompaction = false;
+  private String visitedStateStore = null;
+  private String frontierDirectory = null;
+  private boolean frontierReachableStates = false;
+  private int collapseGroupSize = 0;
+  private boolean batchEvaluation = false;
+  private boolean retainImages = false;
   
   public SearchConfig(){
     setResultFolder("result/default");
@@ -81,4 +103,261 @@ public class SearchConfig {
   public void setSaveSearchResult(boolean SaveSearchResult) {
     this.saveSearchResult = SaveSearchResult;
   }
+
+  public boolean isIncrementalDifference() {
+    return incrementalDifference;
+  }
+
+  public void setIncrementalDifference(boolean incrementalDifference) {
+    this.incrementalDifference = incrementalDifference;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * The symbolic search uses this amount of worker threads for the post
+   * image. Values above 1 require a solver configuration, as each worker
+   * creates its own solver. The explicit state search over compiled
+   * transitions uses the same amount of workers per level.
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public Properties getSolverConfiguration() {
+    return solverConfiguration;
+  }
+
+  public void setSolverConfiguration(Properties solverConfiguration) {
+    this.solverConfiguration = solverConfiguration;
+  }
+
+  public int getSolverCacheSize() {
+    return solverCacheSize;
+  }
+
+  /**
+   * The search engine caches up to this amount of solver results.
+   * 0 disables the cache.
+   */
+  public void setSolverCacheSize(int solverCacheSize) {
+    this.solverCacheSize = solverCacheSize;
+  }
+
+  public int getModelCacheSize() {
+    return modelCacheSize;
+  }
+
+  /**
+   * The search engine tries to satisfy queries with up to this amount of
+   * recent solver models before calling the solver. 0 disables the cache.
+   */
+  public void setModelCacheSize(int modelCacheSize) {
+    this.modelCacheSize = modelCacheSize;
+  }
+
+  public int getUnsatCoreCacheSize() {
+    return unsatCoreCacheSize;
+  }
+
+  /**
+   * The search engine keeps up to this amount of unsatisfiable cores and
+   * answers queries containing one of them without the solver.
+   * 0 disables the cache.
+   */
+  public void setUnsatCoreCacheSize(int unsatCoreCacheSize) {
+    this.unsatCoreCacheSize = unsatCoreCacheSize;
+  }
+
+  public int getUnsatCoreMinimizationBudget() {
+    return unsatCoreMinimizationBudget;
+  }
+
+  /**
+   * The maximal amount of solver calls spent to minimize a single core.
+   */
+  public void setUnsatCoreMinimizationBudget(
+          int unsatCoreMinimizationBudget) {
+    this.unsatCoreMinimizationBudget = unsatCoreMinimizationBudget;
+  }
+
+  public boolean isQuerySlicing() {
+    return querySlicing;
+  }
+
+  /**
+   * If set, the solver queries are split into independent components,
+   * that are solved and cached separately. Slicing only pays off with
+   * the solver cache and is ignored, if the solver cache size is 0.
+   */
+  public void setQuerySlicing(boolean querySlicing) {
+    this.querySlicing = querySlicing;
+  }
+
+  public boolean isExplicitStateHashing() {
+    return explicitStateHashing;
+  }
+
+  /**
+   * If set, the enumerative search packs each concrete state into a fixed
+   * width key and looks it up in a hash set of the visited states instead
+   * of computing the region difference with the solver. If all transitions
+   * can be compiled, the whole search runs on the encoded states.
+   */
+  public void setExplicitStateHashing(boolean explicitStateHashing) {
+    this.explicitStateHashing = explicitStateHashing;
+  }
+
+  public int getSuccessorLimit() {
+    return successorLimit;
+  }
+
+  /**
+   * If positive, the enumerative search enumerates up to this amount of
+   * successors per state and transition. Otherwise the solver picks a
+   * single successor, which misses states of nondeterministic transitions.
+   */
+  public void setSuccessorLimit(int successorLimit) {
+    this.successorLimit = successorLimit;
+  }
+
+  public boolean isFusedGuardCheck() {
+    return fusedGuardCheck;
+  }
+
+  /**
+   * If set, the enumerative search checks the guard and computes the
+   * successors of a state with a single solver call instead of two.
+   */
+  public void setFusedGuardCheck(boolean fusedGuardCheck) {
+    this.fusedGuardCheck = fusedGuardCheck;
+  }
+
+  public int getBitstateLog2Size() {
+    return bitstateLog2Size;
+  }
+
+  /**
+   * If positive, the explicit state search uses bitstate hashing with a bit
+   * array of 2^bitstateLog2Size bits as visited set. The search might miss
+   * states, the estimated probability is reported in the EnumerativeImage.
+   * The explicit state search needs the frontier directory in this case.
+   * The reachable states of the image are only the initial states.
+   */
+  public void setBitstateLog2Size(int bitstateLog2Size) {
+    this.bitstateLog2Size = bitstateLog2Size;
+  }
+
+  public int getBitstateHashFunctions() {
+    return bitstateHashFunctions;
+  }
+
+  /**
+   * The amount of bits set per state by bitstate hashing.
+   */
+  public void setBitstateHashFunctions(int bitstateHashFunctions) {
+    this.bitstateHashFunctions = bitstateHashFunctions;
+  }
+
+  public boolean isHashCompaction() {
+    return hashCompaction;
+  }
+
+  /**
+   * If set, the explicit state search only stores a 64 bit fingerprint
+   * per visited state. Colliding states are missed, the estimated
+   * probability is reported in the EnumerativeImage.
+   * The explicit state search needs the frontier directory in this case.
+   * The reachable states of the image are only the initial states.
+   */
+  public void setHashCompaction(boolean hashCompaction) {
+    this.hashCompaction = hashCompaction;
+  }
+
+  public String getVisitedStateStore() {
+    return visitedStateStore;
+  }
+
+  /**
+   * If set, the explicit state search keeps the visited states in
+   * memory-mapped files in this directory and writes a checkpoint after
+   * each depth. A later search with the same directory continues from the
+   * last checkpoint. This needs compiled transitions: The interpreted search
+   * uses the store as visited set only and rejects a store with a
+   * checkpoint.
+   */
+  public void setVisitedStateStore(String visitedStateStore) {
+    this.visitedStateStore = visitedStateStore;
+  }
+
+  public String getFrontierDirectory() {
+    return frontierDirectory;
+  }
+
+  /**
+   * If set, the explicit state search streams the states of each depth
+   * through segment files in this directory instead of keeping them in
+   * memory. The files are deleted, once a depth is expanded.
+   */
+  public void setFrontierDirectory(String frontierDirectory) {
+    this.frontierDirectory = frontierDirectory;
+  }
+
+  public boolean isFrontierReachableStates() {
+    return frontierReachableStates;
+  }
+
+  /**
+   * If set, a search with a frontier decodes all visited states into the
+   * reachable states of the EnumerativeImage at the end. Otherwise these
+   * are only the initial states, as the frontier is meant for state spaces,
+   * that do not fit into memory as a region.
+   * The visited set has to enumerate its states for this.
+   */
+  public void setFrontierReachableStates(boolean frontierReachableStates) {
+    this.frontierReachableStates = frontierReachableStates;
+  }
+
+  public int getCollapseGroupSize() {
+    return collapseGroupSize;
+  }
+
+  /**
+   * If positive, the exact visited sets of the explicit state search store
+   * collapse compressed states: Each group of collapseGroupSize variables
+   * is replaced by a 32 bit index into a table of its distinct values.
+   * The visited state store, bitstate hashing and hash compaction ignore
+   * it with a warning.
+   */
+  public void setCollapseGroupSize(int collapseGroupSize) {
+    this.collapseGroupSize = collapseGroupSize;
+  }
+
+  public boolean isBatchEvaluation() {
+    return batchEvaluation;
+  }
+
+  /**
+   * If set, the explicit state search evaluates each transition for a
+   * chunk of states at once over the columns of the state variables.
+   */
+  public void setBatchEvaluation(boolean batchEvaluation) {
+    this.batchEvaluation = batchEvaluation;
+  }
+
+  public boolean isRetainImages() {
+    return retainImages;
+  }
+
+  /**
+   * If set, the search result keeps a snapshot of the image of each depth.
+   * The snapshots share the reachable states with the later depths.
+   * The compiled explicit state search creates the regions only at the
+   * end, so its result has no snapshots.
+   */
+  public void setRetainImages(boolean retainImages) {
+    this.retainImages = retainImages;
+  }
 }
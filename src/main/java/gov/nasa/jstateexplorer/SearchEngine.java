@@ -20,10 +20,19 @@ import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
 import gov.nasa.jstateexplorer.datastructures.searchImage.SymbolicImage;
+import gov.nasa.jstateexplorer.solver.CachingConstraintSolver;
+import gov.nasa.jstateexplorer.solver.ModelCache;
+import gov.nasa.jstateexplorer.solver.ModelReusingConstraintSolver;
+import gov.nasa.jstateexplorer.solver.SlicingConstraintSolver;
+import gov.nasa.jstateexplorer.solver.SolverResultCache;
+import gov.nasa.jstateexplorer.solver.UnsatCoreCache;
+import gov.nasa.jstateexplorer.solver.UnsatCoreConstraintSolver;
 import gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper;
+import gov.nasa.jstateexplorer.transitionSystem.ParallelSymbolicTransitionHelper;
 import gov.nasa.jstateexplorer.transitionSystem.SymbolicTransitionHelper;
 import gov.nasa.jstateexplorer.transitionSystem.TransitionHelper;
 import gov.nasa.jstateexplorer.transitionSystem.TransitionSystem;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
 import gov.nasa.jstateexplorer.util.HelperMethods;
 import gov.nasa.jstateexplorer.util.ResultSaver;
 import gov.nasa.jstateexplorer.util.SearchProfiler;
@@ -34,11 +43,17 @@ import java.util.logging.Logger;
 
 /**
  * The search engine is the central hook-up point for search algorithms and extensions.
+ * Each engine runs its searches within its own SearchSession, so several
+ * engines might be used in parallel within one JVM.
  */
 public class SearchEngine {
 
   private Logger logger;
   private String folderName = "default";
+  private final SearchSession session = new SearchSession();
+  private SolverResultCache solverCache = null;
+  private ModelCache modelCache = null;
+  private UnsatCoreCache unsatCoreCache = null;
   SearchConfig sconf;
 
   public SearchEngine(SearchConfig sconf) {
@@ -71,14 +86,50 @@ public class SearchEngine {
   */
   public int executeSearch(TransitionSystem system,
           ConstraintSolver solver) {
+    return session.execute(() -> runSearch(system, solver));
+  }
+
+  private int runSearch(TransitionSystem system, ConstraintSolver solver) {
+    if (sconf.getSolverCacheSize() > 0) {
+      solverCache = new SolverResultCache(sconf.getSolverCacheSize());
+    }
+    if (sconf.getModelCacheSize() > 0) {
+      modelCache = new ModelCache(sconf.getModelCacheSize());
+    }
+    if (sconf.getUnsatCoreCacheSize() > 0) {
+      unsatCoreCache = new UnsatCoreCache(sconf.getUnsatCoreCacheSize());
+    }
+    if (sconf.isQuerySlicing() && solverCache == null) {
+      logger.warning("Query slicing requires the solver cache. Without it"
+              + " each query costs one solver call per component."
+              + " Query slicing is disabled.");
+    }
+    solver = decorateSolver(solver);
     int depthEnumerative = -1, depthSymbolic = -1;
     if (sconf.shouldUseEnumerativeSearch()) {
       SearchProfiler.reset();
-      depthEnumerative = executeEnumerativeSearch(system, solver);
+      try {
+        depthEnumerative = executeEnumerativeSearch(system, solver);
+      } finally {
+        session.releaseSearchSymbols();
+      }
     }
     if (sconf.shouldUseSymbolicSearch()) {
       SearchProfiler.reset();
-      depthSymbolic = executeSymbolicSearch(system, solver);
+      try {
+        depthSymbolic = executeSymbolicSearch(system, solver);
+      } finally {
+        session.releaseSearchSymbols();
+      }
+    }
+    if (solverCache != null) {
+      logger.info(solverCache.getStatistics());
+    }
+    if (modelCache != null) {
+      logger.info(modelCache.getStatistics());
+    }
+    if (unsatCoreCache != null) {
+      logger.info(unsatCoreCache.getStatistics());
     }
     if(depthEnumerative != -1 && depthSymbolic != -1 && depthEnumerative != depthSymbolic){
       //TODO: This test is not complete.
@@ -109,7 +160,7 @@ public class SearchEngine {
     EnumerativeImage searchResult
             = EnumerativeSearchEngine.enumerativBreadthFirstSearch(
                     system,
-                    solver, sconf.getMaxSearchDepth(), logger);
+                    solver, sconf, logger);
     logger.info("Enumerative search done. Here is the result:");
     StringBuilder searchResultString = new StringBuilder();
     try {
@@ -137,7 +188,7 @@ public class SearchEngine {
   private int executeSymbolicSearch(TransitionSystem system,
           ConstraintSolver solver) {
     logger.info("Start symbolic search");
-    TransitionHelper helper = new SymbolicTransitionHelper();
+    TransitionHelper helper = createSymbolicHelper();
     SolverInstance.getInstance().setSolver(solver);
     system.setHelper(helper);
     if(sconf.isSaveTransitionSystem()){
@@ -146,10 +197,15 @@ public class SearchEngine {
       system.writeToFile(transitionSystemFile);
     }
     logger.fine(system.toString());
-    SymbolicImage searchResult
-            = SymbolicSearchEngine.symbolicBreadthFirstSearch(
-                    system,
-                    solver, sconf.getMaxSearchDepth(), logger);
+    SymbolicImage searchResult;
+    try {
+      searchResult = SymbolicSearchEngine.symbolicBreadthFirstSearch(
+              system, solver, sconf, logger);
+    } finally {
+      if (helper instanceof ParallelSymbolicTransitionHelper) {
+        ((ParallelSymbolicTransitionHelper) helper).shutdown();
+      }
+    }
     logger.info("symbolic search terminated for following reason:");
     if (searchResult.getDepth() == Integer.MAX_VALUE) {
       logger.info("Symbolic search hit predefined max"
@@ -177,6 +233,38 @@ public class SearchEngine {
     return searchResult.getDepth();
   }
 
+  private TransitionHelper createSymbolicHelper() {
+    if (sconf.getParallelism() > 1) {
+      if (sconf.getSolverConfiguration() != null) {
+        return new ParallelSymbolicTransitionHelper(
+                sconf.getSolverConfiguration(), sconf.getParallelism(),
+                this::decorateSolver);
+      }
+      logger.warning("A parallel search requires a solver configuration."
+              + " Fall back to the sequential search.");
+    }
+    return new SymbolicTransitionHelper();
+  }
+
+  private ConstraintSolver decorateSolver(ConstraintSolver solver) {
+    //The result cache is the outermost layer, followed by the unsat core
+    //and the model cache. Each layer only sees the queries missed above.
+    if (modelCache != null) {
+      solver = new ModelReusingConstraintSolver(solver, modelCache);
+    }
+    if (unsatCoreCache != null) {
+      solver = new UnsatCoreConstraintSolver(solver, unsatCoreCache,
+              sconf.getUnsatCoreMinimizationBudget());
+    }
+    if (solverCache != null) {
+      solver = new CachingConstraintSolver(solver, solverCache);
+    }
+    //The slicer is on top, so each component passes all caches.
+    if (sconf.isQuerySlicing() && solverCache != null) {
+      solver = new SlicingConstraintSolver(solver);
+    }
+    return solver;
+  }
 
   private void updateFolderName(SearchConfig pconf) {
     folderName = pconf.getResultFolder();
@@ -187,6 +275,34 @@ public class SearchEngine {
   }
 
   public void saveProfilerResults() {
-    SearchProfiler.writeRunToFolder(folderName);
+    session.run(() -> SearchProfiler.writeRunToFolder(folderName));
+  }
+
+  public SearchSession getSession() {
+    return session;
+  }
+
+  /**
+   * The solver cache of the last search or null,
+   * if the cache is disabled in the SearchConfig.
+   */
+  public SolverResultCache getSolverCache() {
+    return solverCache;
+  }
+
+  /**
+   * The model cache of the last search or null,
+   * if the cache is disabled in the SearchConfig.
+   */
+  public ModelCache getModelCache() {
+    return modelCache;
+  }
+
+  /**
+   * The unsat core cache of the last search or null,
+   * if the cache is disabled in the SearchConfig.
+   */
+  public UnsatCoreCache getUnsatCoreCache() {
+    return unsatCoreCache;
   }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer;
+
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
+import gov.nasa.jstateexplorer.util.SearchProfiler;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A search session owns all the state, that has been process wide before:
+ * the solver instance, the id generators for states, transitions and
+ * transition labels, the transition monitor flag and the profiler data.
+ * It also owns the expression factory sharing the expressions built
+ * during its searches and the metadata cache of these expressions.
+ * The static accessors (SolverInstance.getInstance(), SearchProfiler,
+ * HelperMethods, TransitionMonitor, ...) delegate to the session bound to
+ * the current thread. If no session is bound, a default session is used.
+ * So independent searches might run in parallel within one JVM, as long
+ * as each of them is executed within its own session.
+ */
+public class SearchSession {
+
+  private static final SearchSession defaultSession = new SearchSession();
+  private static final ThreadLocal<SearchSession> currentSession
+          = new ThreadLocal<>();
+
+  private final SolverInstance solverInstance;
+  private final SearchProfiler profiler;
+  private final ExpressionFactory expressionFactory;
+  private final SymbolTable symbolTable;
+  private final ExpressionMetadata expressionMetadata;
+  private final AtomicLong stateNameCounter;
+  private final AtomicLong transitionIdCounter;
+  private final AtomicLong transitionLabelIdCounter;
+  private final AtomicLong symbolicStateIdCounter;
+  private volatile boolean running;
+
+  public SearchSession() {
+    this.solverInstance = new SolverInstance();
+    this.profiler = new SearchProfiler();
+    this.expressionFactory = new ExpressionFactory();
+    this.symbolTable = new SymbolTable(expressionFactory);
+    this.expressionMetadata = new ExpressionMetadata(symbolTable);
+    this.stateNameCounter = new AtomicLong();
+    //The transition ids start with 1, the label ids with 0.
+    this.transitionIdCounter = new AtomicLong(1);
+    this.transitionLabelIdCounter = new AtomicLong();
+    this.symbolicStateIdCounter = new AtomicLong();
+    this.running = true;
+  }
+
+  /**
+   * Returns the session bound to the current thread
+   * or the default session, if no session is bound.
+   */
+  public static SearchSession current() {
+    SearchSession session = currentSession.get();
+    return session != null ? session : defaultSession;
+  }
+
+  public static SearchSession getDefault() {
+    return defaultSession;
+  }
+
+  /**
+   * Binds this session to the current thread while the task is executed.
+   * The previous binding is restored afterwards, so calls might be nested.
+   */
+  public <T> T execute(Supplier<T> task) {
+    SearchSession previous = currentSession.get();
+    currentSession.set(this);
+    try {
+      return task.get();
+    } finally {
+      if (previous == null) {
+        currentSession.remove();
+      } else {
+        currentSession.set(previous);
+      }
+    }
+  }
+
+  public void run(Runnable task) {
+    execute(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public SolverInstance getSolverInstance() {
+    return solverInstance;
+  }
+
+  public SearchProfiler getProfiler() {
+    return profiler;
+  }
+
+  public ExpressionFactory getExpressionFactory() {
+    return expressionFactory;
+  }
+
+  public SymbolTable getSymbolTable() {
+    return symbolTable;
+  }
+
+  public ExpressionMetadata getExpressionMetadata() {
+    return expressionMetadata;
+  }
+
+  /**
+   * Releases the variables generated by the last search together with the
+   * expression metadata referring to their ids.
+   */
+  public void releaseSearchSymbols() {
+    expressionMetadata.clear();
+    symbolTable.releaseGenerated();
+  }
+
+  public long nextStateNumber() {
+    return stateNameCounter.getAndIncrement();
+  }
+
+  public long nextTransitionId() {
+    return transitionIdCounter.getAndIncrement();
+  }
+
+  public long nextTransitionLabelId() {
+    return transitionLabelIdCounter.getAndIncrement();
+  }
+
+  public long nextSymbolicStateNumber() {
+    return symbolicStateIdCounter.getAndIncrement();
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public void setRunning(boolean running) {
+    this.running = running;
+  }
+}
@@ -18,37 +18,60 @@ package gov.nasa.jstateexplorer;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
 
 /**
- * It is a singleton class, to provide the solver within the search algorithm.
+ * It provides the solver within the search algorithm. There is one instance
+ * per SearchSession and getInstance() returns the one of the current session.
  * The solve must be set in upfront.
+ * Worker threads of a parallel search might set their own solver. It is
+ * used instead of the shared one for all calls from this thread.
  */
 public class SolverInstance {
 
-  private static SolverInstance instance = null;
-
   private ConstraintSolver solver = null;
+  private final ThreadLocal<ConstraintSolver> threadSolver
+          = new ThreadLocal<>();
+
+  SolverInstance() {
+  }
 
   public static SolverInstance getInstance() {
-    if (instance == null) {
-      instance = new SolverInstance();
-    }
-    return instance;
+    return SearchSession.current().getSolverInstance();
   }
 
   public void setSolver(ConstraintSolver solver) {
     this.solver = solver;
   }
 
+  public void setSolverForCurrentThread(ConstraintSolver solver) {
+    if (solver == null) {
+      threadSolver.remove();
+    } else {
+      threadSolver.set(solver);
+    }
+  }
+
   public Result isSatisfiable(Expression expr) {
-    checkSolverInitialisation();
-    return solver.isSatisfiable(expr);
+    return getSolver().isSatisfiable(expr);
   }
 
   public Result solve(Expression expr, Valuation res) {
+    return getSolver().solve(expr, res);
+  }
+
+  public SolverContext createContext() {
+    return getSolver().createContext();
+  }
+
+  private ConstraintSolver getSolver() {
+    ConstraintSolver current = threadSolver.get();
+    if (current != null) {
+      return current;
+    }
     checkSolverInitialisation();
-    return solver.solve(expr, res);
+    return solver;
   }
   
   private void checkSolverInitialisation(){
@@ -38,29 +38,49 @@ import java.util.logging.Logger;
 * reg Reach := Init; reg New := Init; while isEmtpy(new) = 0 do{ if
 * isEmpty(Conj(New, q)) = 0 then return true; New :=
 * Diff(Post(New,Trans),Reach); Reach := Disj(Reach, New); } return false;
+*
+* The search runs within the SearchSession of the calling thread.
 */
 public class SymbolicSearchEngine {
 
   static String loggerName = "psyco";
-  private static Logger logger = Logger.getLogger(loggerName);
+
   public static SymbolicImage symbolicBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth, Level logLevel){
+    Logger logger = Logger.getLogger(loggerName);
     logger.setLevel(logLevel);
-    return symbolicBreadthFirstSearch(transitionSystem, solver, maxSearchDepth);
+    return runSymbolicSearch(transitionSystem, solver,
+            maxSearchDepth, null, logger);
   }
+  //The logger is only used by this search.
   public static SymbolicImage symbolicBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth, Logger logger){
-    SymbolicSearchEngine.logger = logger;
-    return symbolicBreadthFirstSearch(transitionSystem, solver, maxSearchDepth);
+    return runSymbolicSearch(transitionSystem, solver,
+            maxSearchDepth, null, logger);
+  }
+  public static SymbolicImage symbolicBreadthFirstSearch(
+          TransitionSystem transitionSystem,
+          ConstraintSolver solver,
+          SearchConfig sconf, Logger logger){
+    return runSymbolicSearch(transitionSystem, solver,
+            sconf.getMaxSearchDepth(), sconf, logger);
   }
   public static SymbolicImage symbolicBreadthFirstSearch(
           TransitionSystem transitionSystem,
           ConstraintSolver solver,
           int maxSearchDepth) {
+    return runSymbolicSearch(transitionSystem, solver,
+            maxSearchDepth, null, Logger.getLogger(loggerName));
+  }
+
+  private static SymbolicImage runSymbolicSearch(
+          TransitionSystem transitionSystem,
+          ConstraintSolver solver,
+          int maxSearchDepth, SearchConfig sconf, Logger logger) {
     SolverInstance.getInstance().setSolver(solver);
     SymbolicRegion newRegion, reachableRegion
             = new SymbolicRegion(transitionSystem.getInitValuation());
@@ -68,6 +88,8 @@ public class SymbolicSearchEngine {
 //    boolean isLimitedTransitionSystem = transitionSystem.isLimited();
 //    logLimit(isLimitedTransitionSystem);
     SymbolicRegionUtil regionUtil = new SymbolicRegionUtil(solver);
+    regionUtil.setIncrementalDifference(
+            sconf != null && sconf.isIncrementalDifference());
     SearchUtil<SymbolicImage> searchUtil
             = new SearchUtil<>(regionUtil, logger);
     //We start to count interation based on 1. 0 is skipped.
@@ -79,21 +101,25 @@ public class SymbolicSearchEngine {
       SymbolicRegion nextReachableStates = newImage.getNewStates();
       logger.finer("gov.nasa.jstateexplorer.SymbolicSearchEngine.symbolicBreadthFirstSearch()");
       logger.finer("nextReachableStates: \n");
-      logRegion(nextReachableStates);
+      logRegion(nextReachableStates, logger);
       SearchProfiler.startDiffProfiler(newImage.getDepth());
       newRegion = regionUtil.difference(nextReachableStates,
               reachableRegion, solver);
       SearchProfiler.stopDiffProfieler(newImage.getDepth());
       logger.finer("newRegion:\n");
-      logRegion(newRegion);
+      logRegion(newRegion, logger);
       reachableRegion = regionUtil.union(reachableRegion, newRegion);
 
       newImage.setReachableStates(reachableRegion);
       newImage.setPreviousNewStates(newRegion);
       newImage.setNewStates(null);
+      newImage.setRetainedImages(currentSearchState.getRetainedImages());
       currentSearchState = newImage;
+      if (sconf != null && sconf.isRetainImages()) {
+        currentSearchState.retain();
+      }
 
-      logState(currentSearchState);
+      logState(currentSearchState, logger);
       if (maxSearchDepth != Integer.MIN_VALUE
               && currentSearchState.getDepth() == maxSearchDepth) {
         currentSearchState.setDepth(Integer.MAX_VALUE);
@@ -103,11 +129,11 @@ public class SymbolicSearchEngine {
         break;
       }
     }
+    regionUtil.dispose();
     return currentSearchState;
   }
 
-  private static void logState(SymbolicImage newImage) {
-    Logger logger = Logger.getLogger("psyco");
+  private static void logState(SymbolicImage newImage, Logger logger) {
     StringBuilder builder = new StringBuilder();
     try {
       builder.append("gov.nasa.jstateexplorer.SymbolicSearchEngine.logState()\n");
@@ -134,7 +160,7 @@ public class SymbolicSearchEngine {
     }
   }
   
-  private static void logRegion(Region region){
+  private static void logRegion(Region region, Logger logger){
     try {
       StringBuilder sb = new StringBuilder();
       region.print(sb);
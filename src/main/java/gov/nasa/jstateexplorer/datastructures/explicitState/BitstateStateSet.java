@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bitstate hashing (supertrace): A state is represented by k bits in a
+ * bit array of fixed size. A state is new, if one of its bits is not set.
+ * Two states setting the same bits collide and the later one is omitted,
+ * so the search might miss states. The memory is fixed, independent of the
+ * amount of states.
+ * The bits are set with compare-and-set, so the set can be shared by the
+ * workers of a parallel search.
+ * The omission probability sums up the probability of a false hit,
+ * (set bits / bits)^k, before each insertion.
+ */
+public class BitstateStateSet extends VisitedStateSet {
+
+  private static final int MAX_LOG2_BITS = 36;
+
+  private final AtomicLongArray bits;
+  private final long bitMask;
+  private final int hashFunctions;
+  private final LongAdder size;
+  private final LongAdder setBits;
+  private final DoubleAdder expectedOmissions;
+
+  /**
+   * @param log2Bits the bit array has 2^log2Bits bits.
+   * @param hashFunctions the amount of bits per state.
+   */
+  public BitstateStateSet(int width, int log2Bits, int hashFunctions) {
+    super(width);
+    if (log2Bits < 6 || log2Bits > MAX_LOG2_BITS) {
+      throw new IllegalArgumentException("The bit array size must be between"
+              + " 2^6 and 2^" + MAX_LOG2_BITS + ", but is 2^" + log2Bits);
+    }
+    if (hashFunctions <= 0) {
+      throw new IllegalArgumentException(
+              "At least one hash function is needed, but is: "
+              + hashFunctions);
+    }
+    this.bits = new AtomicLongArray(1 << (log2Bits - 6));
+    this.bitMask = (1L << log2Bits) - 1;
+    this.hashFunctions = hashFunctions;
+    this.size = new LongAdder();
+    this.setBits = new LongAdder();
+    this.expectedOmissions = new DoubleAdder();
+  }
+
+  @Override
+  public boolean add(long[] key) {
+    long first = hash(key, width);
+    long step = hash(key, width, 1) | 1;
+    double falseHit = Math.pow(getFillRatio(), hashFunctions);
+    boolean isNew = false;
+    for (int i = 0; i < hashFunctions; i++) {
+      long bit = (first + i * step) & bitMask;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long old = bits.getAndAccumulate(word, mask, (x, y) -> x | y);
+      if ((old & mask) == 0) {
+        setBits.increment();
+        isNew = true;
+      }
+    }
+    if (isNew) {
+      size.increment();
+      expectedOmissions.add(falseHit);
+    }
+    return isNew;
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    long first = hash(key, width);
+    long step = hash(key, width, 1) | 1;
+    for (int i = 0; i < hashFunctions; i++) {
+      long bit = (first + i * step) & bitMask;
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long size() {
+    return size.sum();
+  }
+
+  public double getFillRatio() {
+    return setBits.sum() / (double) (bitMask + 1);
+  }
+
+  @Override
+  public double getOmissionProbability() {
+    return atLeastOne(expectedOmissions.sum());
+  }
+
+  @Override
+  public String toString() {
+    return "BitstateStateSet{size=" + size() + ", bits=" + (bitMask + 1)
+            + ", hashFunctions=" + hashFunctions + ", fill="
+            + getFillRatio() + ", omissionProbability="
+            + getOmissionProbability() + "}";
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.Arrays;
+
+/**
+ * Collapse compression of encoded states. The slots are split into groups
+ * of consecutive slots. The StateEncoder sorts the variables by name, so a
+ * group holds related variables. Each group value is interned in a table
+ * of the group and the state is stored as the 32 bit table indices of its
+ * groups, two per long. The tables grow with the distinct group values,
+ * which recur in many states.
+ * Each thread remembers the last state it compressed. Successors of one
+ * state differ in a few groups only, so the groups equal to the last state
+ * reuse its indices without a table lookup. This delta against the last
+ * state does not change the compressed form, so equal states are always
+ * compressed equally.
+ * Compression is thread-safe. A state might be decompressed concurrently
+ * only, if it has been compressed before the decompressing thread started
+ * or synchronized with the compressing thread.
+ */
+public class CollapseCompressor {
+
+  private final int width;
+  private final int groupSize;
+  private final SubVectorTable[] tables;
+  private final ThreadLocal<LastState> last;
+
+  public CollapseCompressor(int width, int groupSize) {
+    if (groupSize <= 0) {
+      throw new IllegalArgumentException("The group size must be positive.");
+    }
+    this.width = width;
+    this.groupSize = groupSize;
+    int groups = Math.max(1, (width + groupSize - 1) / groupSize);
+    this.tables = new SubVectorTable[groups];
+    for (int group = 0; group < groups; group++) {
+      tables[group] = new SubVectorTable(groupWidth(group));
+    }
+    this.last = ThreadLocal.withInitial(() -> new LastState(width, groups));
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getCompressedWidth() {
+    return (tables.length + 1) / 2;
+  }
+
+  /**
+   * The amount of distinct values of each group.
+   */
+  public int[] getTableSizes() {
+    int[] sizes = new int[tables.length];
+    for (int group = 0; group < tables.length; group++) {
+      sizes[group] = tables[group].size();
+    }
+    return sizes;
+  }
+
+  /**
+   * Writes the compressed key into the buffer and returns it.
+   */
+  public long[] compress(long[] key, long[] buffer) {
+    LastState previous = last.get();
+    Arrays.fill(buffer, 0, getCompressedWidth(), 0);
+    for (int group = 0; group < tables.length; group++) {
+      int offset = group * groupSize;
+      int length = groupWidth(group);
+      int index;
+      if (previous.valid && equal(key, previous.key, offset, length)) {
+        index = previous.indices[group];
+      } else {
+        index = tables[group].intern(key, offset);
+        previous.indices[group] = index;
+      }
+      buffer[group >>> 1] |= (index & 0xFFFFFFFFL) << ((group & 1) << 5);
+    }
+    System.arraycopy(key, 0, previous.key, 0, width);
+    previous.valid = true;
+    return buffer;
+  }
+
+  /**
+   * Writes the key of the compressed key into the buffer and returns it.
+   */
+  public long[] decompress(long[] compressed, long[] buffer) {
+    for (int group = 0; group < tables.length; group++) {
+      int index = (int) (compressed[group >>> 1] >>> ((group & 1) << 5));
+      tables[group].get(index, buffer, group * groupSize);
+    }
+    return buffer;
+  }
+
+  private int groupWidth(int group) {
+    return Math.min(groupSize, width - group * groupSize);
+  }
+
+  private static boolean equal(long[] a, long[] b, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (a[i] != b[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class LastState {
+
+    private final long[] key;
+    private final int[] indices;
+    private boolean valid;
+
+    LastState(int width, int groups) {
+      this.key = new long[width];
+      this.indices = new int[groups];
+    }
+  }
+
+  /**
+   * The distinct values of a group. The values are appended to pages, which
+   * are never moved, and are found by an open-addressing index.
+   */
+  private static class SubVectorTable {
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_ENTRIES = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_ENTRIES - 1;
+
+    private final int width;
+    private volatile long[][] pages;
+    private int[] index;
+    private int size;
+    private final long[] probe;
+
+    SubVectorTable(int width) {
+      this.width = width;
+      this.pages = new long[1][Math.max(width, 1) * PAGE_ENTRIES];
+      this.index = new int[64];
+      this.probe = new long[width];
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized int intern(long[] key, int offset) {
+      System.arraycopy(key, offset, probe, 0, width);
+      int mask = index.length - 1;
+      int bucket = (int) VisitedStateSet.hash(probe, width) & mask;
+      int entry;
+      while ((entry = index[bucket]) != 0) {
+        if (matches(entry - 1, key, offset)) {
+          return entry - 1;
+        }
+        bucket = (bucket + 1) & mask;
+      }
+      if (size == Integer.MAX_VALUE - 1) {
+        throw new IllegalStateException("The collapse table is full.");
+      }
+      int page = size >>> PAGE_SHIFT;
+      if (page == pages.length) {
+        long[][] grown = Arrays.copyOf(pages, pages.length * 2);
+        for (int i = pages.length; i < grown.length; i++) {
+          grown[i] = new long[Math.max(width, 1) * PAGE_ENTRIES];
+        }
+        pages = grown;
+      }
+      System.arraycopy(key, offset, pages[page],
+              (size & PAGE_MASK) * width, width);
+      index[bucket] = ++size;
+      if (size * 10L > index.length * 7L) {
+        rehash();
+      }
+      return size - 1;
+    }
+
+    void get(int entry, long[] buffer, int offset) {
+      System.arraycopy(pages[entry >>> PAGE_SHIFT],
+              (entry & PAGE_MASK) * width, buffer, offset, width);
+    }
+
+    private boolean matches(int entry, long[] key, int offset) {
+      long[] page = pages[entry >>> PAGE_SHIFT];
+      int start = (entry & PAGE_MASK) * width;
+      for (int i = 0; i < width; i++) {
+        if (page[start + i] != key[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash() {
+      int[] grown = new int[index.length * 2];
+      int mask = grown.length - 1;
+      for (int entry = 0; entry < size; entry++) {
+        get(entry, probe, 0);
+        int bucket = (int) VisitedStateSet.hash(probe, width) & mask;
+        while (grown[bucket] != 0) {
+          bucket = (bucket + 1) & mask;
+        }
+        grown[bucket] = entry + 1;
+      }
+      index = grown;
+    }
+  }
+}
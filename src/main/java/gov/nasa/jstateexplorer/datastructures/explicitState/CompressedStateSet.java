@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A visited state set, that stores the collapse compressed keys in an
+ * exact set of the compressed width. It is as thread-safe as the inner
+ * set.
+ */
+public class CompressedStateSet extends VisitedStateSet {
+
+  private final CollapseCompressor compressor;
+  private final VisitedStateSet compressed;
+  private final ThreadLocal<long[]> buffer;
+
+  public CompressedStateSet(CollapseCompressor compressor,
+          VisitedStateSet compressed) {
+    super(compressor.getWidth());
+    if (compressed.getWidth() != compressor.getCompressedWidth()) {
+      throw new IllegalArgumentException("The set has width "
+              + compressed.getWidth() + ", but the compressed width is "
+              + compressor.getCompressedWidth());
+    }
+    this.compressor = compressor;
+    this.compressed = compressed;
+    this.buffer = ThreadLocal.withInitial(
+            () -> new long[compressor.getCompressedWidth()]);
+  }
+
+  public CollapseCompressor getCompressor() {
+    return compressor;
+  }
+
+  @Override
+  public boolean add(long[] key) {
+    return compressed.add(compressor.compress(key, buffer.get()));
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    return compressed.contains(compressor.compress(key, buffer.get()));
+  }
+
+  @Override
+  public long size() {
+    return compressed.size();
+  }
+
+  @Override
+  public void ensureCapacity(long expectedSize) {
+    compressed.ensureCapacity(expectedSize);
+  }
+
+  @Override
+  public boolean hasCapacity(long expectedSize) {
+    return compressed.hasCapacity(expectedSize);
+  }
+
+  @Override
+  public double getOmissionProbability() {
+    return compressed.getOmissionProbability();
+  }
+
+  @Override
+  public boolean isEnumerable() {
+    return compressed.isEnumerable();
+  }
+
+  @Override
+  public void forEach(Consumer<long[]> action) {
+    long[] key = new long[width];
+    compressed.forEach(packed -> action.accept(
+            compressor.decompress(packed, key)));
+  }
+
+  @Override
+  public String toString() {
+    return "CompressedStateSet{" + compressed + ", width=" + width
+            + ", groups=" + Arrays.toString(
+                    compressor.getTableSizes()) + "}";
+  }
+}
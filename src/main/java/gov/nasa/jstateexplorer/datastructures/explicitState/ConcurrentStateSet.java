@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free open-addressing set of encoded states for parallel searches.
+ * A bucket is claimed by a compare-and-set on its state from EMPTY to
+ * WRITING. The owner copies the key and publishes it by setting READY.
+ * Readers wait for a bucket in WRITING, so two threads inserting the same
+ * key agree on one winner.
+ * The table does not grow while states are added concurrently.
+ * The parallel search grows it between two chunks, while no worker is
+ * adding states.
+ */
+public class ConcurrentStateSet extends VisitedStateSet {
+
+  private static final int EMPTY = 0;
+  private static final int WRITING = 1;
+  private static final int READY = 2;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] keys;
+  private AtomicIntegerArray buckets;
+  private int mask;
+  private final LongAdder size;
+
+  public ConcurrentStateSet(int width) {
+    this(width, 1024);
+  }
+
+  public ConcurrentStateSet(int width, long expectedSize) {
+    super(width);
+    this.size = new LongAdder();
+    allocate(capacityFor(expectedSize));
+  }
+
+  @Override
+  public boolean add(long[] key) {
+    int bucket = (int) hash(key, width) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      int state = buckets.get(bucket);
+      if (state == EMPTY) {
+        if (buckets.compareAndSet(bucket, EMPTY, WRITING)) {
+          System.arraycopy(key, 0, keys, bucket * width, width);
+          buckets.set(bucket, READY);
+          size.increment();
+          return true;
+        }
+        state = buckets.get(bucket);
+      }
+      while (state == WRITING) {
+        Thread.onSpinWait();
+        state = buckets.get(bucket);
+      }
+      if (matches(key, bucket)) {
+        return false;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+    throw new IllegalStateException("The concurrent state set is full.");
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    int bucket = (int) hash(key, width) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      int state = buckets.get(bucket);
+      if (state == EMPTY) {
+        return false;
+      }
+      while (state == WRITING) {
+        Thread.onSpinWait();
+        state = buckets.get(bucket);
+      }
+      if (matches(key, bucket)) {
+        return true;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+    return false;
+  }
+
+  @Override
+  public long size() {
+    return size.sum();
+  }
+
+  @Override
+  public boolean isEnumerable() {
+    return true;
+  }
+
+  @Override
+  public void forEach(Consumer<long[]> action) {
+    long[] key = new long[width];
+    for (int bucket = 0; bucket < buckets.length(); bucket++) {
+      if (buckets.get(bucket) == READY) {
+        System.arraycopy(keys, bucket * width, key, 0, width);
+        action.accept(key);
+      }
+    }
+  }
+
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Grows the table, so it holds the expected amount of states with a load
+   * below 75%. It must not be called while states are added.
+   */
+  @Override
+  public void ensureCapacity(long expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    if (capacity <= mask + 1) {
+      return;
+    }
+    long[] oldKeys = keys;
+    AtomicIntegerArray oldBuckets = buckets;
+    allocate(capacity);
+    long[] key = new long[width];
+    for (int bucket = 0; bucket < oldBuckets.length(); bucket++) {
+      if (oldBuckets.get(bucket) == READY) {
+        System.arraycopy(oldKeys, bucket * width, key, 0, width);
+        int newBucket = (int) hash(key, width) & mask;
+        while (buckets.get(newBucket) != EMPTY) {
+          newBucket = (newBucket + 1) & mask;
+        }
+        System.arraycopy(key, 0, keys, newBucket * width, width);
+        buckets.set(newBucket, READY);
+      }
+    }
+  }
+
+  private boolean matches(long[] key, int bucket) {
+    int offset = bucket * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[offset + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean hasCapacity(long expectedSize) {
+    return Math.max(16, expectedSize * 4 / 3 + 1) <= getCapacity();
+  }
+
+  private static int capacityFor(long expectedSize) {
+    long required = Math.max(16, expectedSize * 4 / 3 + 1);
+    if (required > MAX_CAPACITY) {
+      throw new IllegalStateException("The concurrent state set cannot hold "
+              + expectedSize + " states.");
+    }
+    return Integer.highestOneBit((int) required - 1) << 1;
+  }
+
+  private void allocate(int capacity) {
+    if ((long) capacity * width > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("The concurrent state set cannot hold "
+              + capacity + " states of width " + width);
+    }
+    this.keys = new long[capacity * width];
+    this.buckets = new AtomicIntegerArray(capacity);
+    this.mask = capacity - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentStateSet{size=" + size() + ", capacity="
+            + getCapacity() + ", width=" + width + "}";
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The frontier of a breadth-first search in segment files, one per depth.
+ * The states of a depth are written sequentially into a new segment
+ * between openLevel() and closeLevel(). nextLevel() reads the oldest
+ * closed segment. The segment is deleted, when its reader is closed.
+ * So only the buffers of the two segments in use are kept in memory.
+ * add and the reader are synchronized, so the workers of a parallel
+ * search can share them.
+ */
+public class FrontierQueue implements Closeable {
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final Path directory;
+  private final int width;
+  private final Deque<Segment> closed;
+  private Segment writing;
+  private FileChannel channel;
+  private final ByteBuffer buffer;
+  private int segments;
+
+  public FrontierQueue(Path directory, int width) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.width = width;
+    this.closed = new ArrayDeque<>();
+    this.buffer = ByteBuffer.allocateDirect(
+            Math.max(BUFFER_BYTES, width * Long.BYTES));
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Starts the segment of the next depth.
+   */
+  public synchronized void openLevel() throws IOException {
+    if (writing != null) {
+      throw new IllegalStateException("The level is already open.");
+    }
+    writing = new Segment(directory.resolve(
+            "frontier-" + (segments++) + ".seg"));
+    channel = FileChannel.open(writing.file, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    buffer.clear();
+  }
+
+  public synchronized void add(long[] state) {
+    if (writing == null) {
+      throw new IllegalStateException("No level is open.");
+    }
+    try {
+      if (buffer.remaining() < width * Long.BYTES) {
+        writeBuffer();
+      }
+      for (int i = 0; i < width; i++) {
+        buffer.putLong(state[i]);
+      }
+      writing.size++;
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot write the frontier.", ex);
+    }
+  }
+
+  /**
+   * Completes the open segment and returns its amount of states.
+   */
+  public synchronized long closeLevel() throws IOException {
+    if (writing == null) {
+      throw new IllegalStateException("No level is open.");
+    }
+    writeBuffer();
+    channel.close();
+    channel = null;
+    closed.add(writing);
+    long size = writing.size;
+    writing = null;
+    return size;
+  }
+
+  /**
+   * The reader of the oldest closed segment.
+   */
+  public synchronized Reader nextLevel() throws IOException {
+    Segment segment = closed.poll();
+    if (segment == null) {
+      throw new IllegalStateException("There is no closed level.");
+    }
+    return new Reader(segment);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      Files.deleteIfExists(writing.file);
+      channel = null;
+      writing = null;
+    }
+    for (Segment segment : closed) {
+      Files.deleteIfExists(segment.file);
+    }
+    closed.clear();
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static class Segment {
+
+    private final Path file;
+    private long size;
+
+    Segment(Path file) {
+      this.file = file;
+    }
+  }
+
+  /**
+   * Reads the states of a segment in chunks.
+   */
+  public class Reader implements Closeable {
+
+    private final Segment segment;
+    private final FileChannel input;
+    private final ByteBuffer readBuffer;
+    private long remaining;
+
+    private Reader(Segment segment) throws IOException {
+      this.segment = segment;
+      this.input = FileChannel.open(segment.file, StandardOpenOption.READ);
+      this.readBuffer = ByteBuffer.allocateDirect(
+              Math.max(BUFFER_BYTES, width * Long.BYTES));
+      this.readBuffer.flip();
+      this.remaining = segment.size;
+    }
+
+    public long size() {
+      return segment.size;
+    }
+
+    /**
+     * Reads up to maxStates states into the chunk, one after the other,
+     * and returns the amount of states read. It is 0 at the end.
+     */
+    public synchronized int read(long[] chunk, int maxStates) {
+      int count = (int) Math.min(maxStates, remaining);
+      try {
+        for (int state = 0; state < count; state++) {
+          if (readBuffer.remaining() < width * Long.BYTES) {
+            fill();
+          }
+          int offset = state * width;
+          for (int i = 0; i < width; i++) {
+            chunk[offset + i] = readBuffer.getLong();
+          }
+        }
+      } catch (IOException ex) {
+        throw new IllegalStateException("Cannot read the frontier.", ex);
+      }
+      remaining -= count;
+      return count;
+    }
+
+    private void fill() throws IOException {
+      readBuffer.compact();
+      while (readBuffer.position() < width * Long.BYTES) {
+        if (input.read(readBuffer) < 0) {
+          throw new IOException("The segment " + segment.file
+                  + " is truncated.");
+        }
+      }
+      readBuffer.flip();
+    }
+
+    /**
+     * Closes and deletes the segment.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+      input.close();
+      Files.deleteIfExists(segment.file);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hash compaction: Only a 64 bit fingerprint of each state is stored in an
+ * open-addressing table. Two states with the same fingerprint collide and
+ * the later one is omitted. Each state needs 8 bytes, independent of the
+ * width of the encoding.
+ * A fingerprint is inserted with a single compare-and-set, so the set can
+ * be shared by the workers of a parallel search. As the ConcurrentStateSet
+ * it doesn't grow while states are added, but in ensureCapacity.
+ * The omission probability of n states is about 1 - e^(-n^2 / 2^65).
+ */
+public class HashCompactionStateSet extends VisitedStateSet {
+
+  private static final long EMPTY = 0;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private AtomicLongArray fingerprints;
+  private int mask;
+  private final LongAdder size;
+
+  public HashCompactionStateSet(int width) {
+    this(width, 1024);
+  }
+
+  public HashCompactionStateSet(int width, long expectedSize) {
+    super(width);
+    this.size = new LongAdder();
+    this.fingerprints = new AtomicLongArray(capacityFor(expectedSize));
+    this.mask = fingerprints.length() - 1;
+  }
+
+  @Override
+  public boolean add(long[] key) {
+    long fingerprint = fingerprint(key);
+    int bucket = (int) (fingerprint >>> 32) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      long stored = fingerprints.get(bucket);
+      if (stored == EMPTY) {
+        if (fingerprints.compareAndSet(bucket, EMPTY, fingerprint)) {
+          size.increment();
+          return true;
+        }
+        stored = fingerprints.get(bucket);
+      }
+      if (stored == fingerprint) {
+        return false;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+    throw new IllegalStateException("The hash compaction table is full.");
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    long fingerprint = fingerprint(key);
+    int bucket = (int) (fingerprint >>> 32) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      long stored = fingerprints.get(bucket);
+      if (stored == EMPTY) {
+        return false;
+      } else if (stored == fingerprint) {
+        return true;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+    return false;
+  }
+
+  @Override
+  public long size() {
+    return size.sum();
+  }
+
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Grows the table, so it holds the expected amount of fingerprints with
+   * a load below 75%. It must not be called while states are added.
+   */
+  @Override
+  public void ensureCapacity(long expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    if (capacity <= mask + 1) {
+      return;
+    }
+    AtomicLongArray old = fingerprints;
+    fingerprints = new AtomicLongArray(capacity);
+    mask = capacity - 1;
+    for (int i = 0; i < old.length(); i++) {
+      long fingerprint = old.get(i);
+      if (fingerprint != EMPTY) {
+        int bucket = (int) (fingerprint >>> 32) & mask;
+        while (fingerprints.get(bucket) != EMPTY) {
+          bucket = (bucket + 1) & mask;
+        }
+        fingerprints.set(bucket, fingerprint);
+      }
+    }
+  }
+
+  @Override
+  public double getOmissionProbability() {
+    double n = size();
+    //The i-th insertion collides with probability i / 2^64.
+    return atLeastOne(n * (n - 1) / 2 / 0x1p64);
+  }
+
+  private long fingerprint(long[] key) {
+    long fingerprint = hash(key, width);
+    //0 marks an empty bucket.
+    return fingerprint == EMPTY ? 1 : fingerprint;
+  }
+
+  @Override
+  public boolean hasCapacity(long expectedSize) {
+    return Math.max(16, expectedSize * 4 / 3 + 1) <= getCapacity();
+  }
+
+  private static int capacityFor(long expectedSize) {
+    long required = Math.max(16, expectedSize * 4 / 3 + 1);
+    if (required > MAX_CAPACITY) {
+      throw new IllegalStateException("The hash compaction table cannot hold "
+              + expectedSize + " states.");
+    }
+    return Integer.highestOneBit((int) required - 1) << 1;
+  }
+
+  @Override
+  public String toString() {
+    return "HashCompactionStateSet{size=" + size() + ", capacity="
+            + getCapacity() + ", omissionProbability="
+            + getOmissionProbability() + "}";
+  }
+}
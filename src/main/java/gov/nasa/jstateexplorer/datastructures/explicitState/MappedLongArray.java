@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A long array in a memory-mapped file. A single mapping is limited to
+ * 2 GB, so the file is mapped in chunks of 1 GB. The array only grows.
+ * The content lives outside of the Java heap and is written back to the
+ * file by the operating system or by force().
+ */
+class MappedLongArray implements Closeable {
+
+  private static final int CHUNK_SHIFT = 27;
+  private static final long CHUNK_LONGS = 1L << CHUNK_SHIFT;
+  private static final long CHUNK_MASK = CHUNK_LONGS - 1;
+
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> chunks;
+  private final List<LongBuffer> views;
+  private long length;
+
+  MappedLongArray(Path file, long minLength) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.chunks = new ArrayList<>();
+    this.views = new ArrayList<>();
+    this.length = 0;
+    ensureLength(Math.max(minLength, channel.size() / Long.BYTES));
+  }
+
+  long length() {
+    return length;
+  }
+
+  long get(long index) {
+    return views.get((int) (index >>> CHUNK_SHIFT))
+            .get((int) (index & CHUNK_MASK));
+  }
+
+  void set(long index, long value) {
+    views.get((int) (index >>> CHUNK_SHIFT))
+            .put((int) (index & CHUNK_MASK), value);
+  }
+
+  /**
+   * Sets all values to 0.
+   */
+  void clear() {
+    for (LongBuffer view : views) {
+      for (int i = 0; i < view.capacity(); i++) {
+        view.put(i, 0);
+      }
+    }
+  }
+
+  /**
+   * Maps further chunks until the array has at least the given length.
+   * The file grows accordingly. Below one chunk, the single mapping is
+   * replaced by one of twice the size, so small files stay small.
+   */
+  void ensureLength(long minLength) throws IOException {
+    while (length < minLength) {
+      long chunkLongs = CHUNK_LONGS;
+      if (length < CHUNK_LONGS) {
+        chunkLongs = Math.min(CHUNK_LONGS,
+                Math.max(minLength, Math.max(length * 2, 1024)));
+        chunks.clear();
+        views.clear();
+        length = 0;
+      }
+      MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+              length * Long.BYTES, chunkLongs * Long.BYTES);
+      chunks.add(chunk);
+      views.add(chunk.asLongBuffer());
+      length += chunkLongs;
+    }
+  }
+
+  void force() {
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    discard();
+  }
+
+  /**
+   * Closes the file without waiting until the content is written back.
+   */
+  void discard() throws IOException {
+    chunks.clear();
+    views.clear();
+    channel.close();
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * A visited state set in memory-mapped files, so it lives outside of the
+ * Java heap and survives the search.
+ * The states file holds a small header and the packed states in the order
+ * they have been added. For the breadth-first search this is the order of
+ * the depths, so the store is also the list of states to expand.
+ * The index file is an open-addressing table of state numbers.
+ * checkpoint() flushes the states and then writes and flushes the header,
+ * so a header on disk never counts states, that are not on disk. It is
+ * called by the search after each completed depth. Reopening the store
+ * continues from the last checkpoint: States added afterwards are dropped
+ * and the index is rebuilt from the remaining states, so the index file
+ * is never flushed.
+ * The store can be shared by the workers of a parallel search: Lookups
+ * share a read lock, only adding a new state takes the write lock.
+ */
+public class MappedStateStore extends VisitedStateSet implements Closeable {
+
+  private static final long MAGIC = 0x6A53457374617465L;
+  private static final int HEADER_LONGS = 8;
+  private static final int MAGIC_SLOT = 0;
+  private static final int WIDTH_SLOT = 1;
+  private static final int SIZE_SLOT = 2;
+  private static final int DEPTH_SLOT = 3;
+  private static final int LEVEL_START_SLOT = 4;
+  private static final int LEVEL_END_SLOT = 5;
+
+  private final MappedLongArray states;
+  private final MappedLongArray index;
+  private final ReentrantReadWriteLock lock;
+  private long mask;
+  private volatile long size;
+  private final ThreadLocal<long[]> probe;
+
+  private MappedStateStore(int width, MappedLongArray states,
+          MappedLongArray index) {
+    super(width);
+    this.states = states;
+    this.index = index;
+    this.lock = new ReentrantReadWriteLock();
+    this.probe = ThreadLocal.withInitial(() -> new long[width]);
+  }
+
+  /**
+   * Opens the store in the directory. An existing store must have the same
+   * width. It continues from its last checkpoint.
+   */
+  public static MappedStateStore open(Path directory, int width)
+          throws IOException {
+    Files.createDirectories(directory);
+    MappedLongArray states = new MappedLongArray(
+            directory.resolve("states.bin"), HEADER_LONGS);
+    MappedLongArray index = new MappedLongArray(
+            directory.resolve("index.bin"), 1024);
+    MappedStateStore store = new MappedStateStore(width, states, index);
+    if (states.get(MAGIC_SLOT) == MAGIC) {
+      if (states.get(WIDTH_SLOT) != width) {
+        store.close();
+        throw new IllegalStateException("The store in " + directory
+                + " has states of width " + states.get(WIDTH_SLOT)
+                + ", but " + width + " is expected.");
+      }
+      store.size = states.get(SIZE_SLOT);
+    } else {
+      states.set(MAGIC_SLOT, MAGIC);
+      states.set(WIDTH_SLOT, width);
+      states.set(DEPTH_SLOT, -1);
+    }
+    store.rebuildIndex(Math.max(index.length(), capacityFor(store.size)));
+    return store;
+  }
+
+  /**
+   * Most successors have been visited before, so the key is looked up
+   * with the read lock first.
+   */
+  @Override
+  public boolean add(long[] key) {
+    if (contains(key)) {
+      return false;
+    }
+    lock.writeLock().lock();
+    try {
+      if ((size + 1) * 4 > (mask + 1) * 3) {
+        rebuildIndex((mask + 1) * 2);
+      }
+      long bucket = find(key);
+      if (index.get(bucket) != 0) {
+        return false;
+      }
+      try {
+        states.ensureLength(HEADER_LONGS + (size + 1) * width);
+      } catch (IOException ex) {
+        throw new IllegalStateException("Cannot grow the state store.", ex);
+      }
+      long offset = HEADER_LONGS + size * width;
+      for (int i = 0; i < width; i++) {
+        states.set(offset + i, key[i]);
+      }
+      index.set(bucket, ++size);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    lock.readLock().lock();
+    try {
+      return index.get(find(key)) != 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Copies the state with the given number into the buffer.
+   */
+  public void get(long number, long[] buffer) {
+    lock.readLock().lock();
+    try {
+      read(number, buffer);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isEnumerable() {
+    return true;
+  }
+
+  /**
+   * Passes the states in the order they have been added.
+   */
+  @Override
+  public void forEach(Consumer<long[]> action) {
+    lock.readLock().lock();
+    try {
+      long[] key = new long[width];
+      for (long number = 0; number < size; number++) {
+        read(number, key);
+        action.accept(key);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Records, that the depth is completed and the states in
+   * [levelStart, levelEnd) are the next ones to expand.
+   * The states are flushed before the header, that counts them.
+   */
+  public void checkpoint(int depth, long levelStart, long levelEnd) {
+    lock.writeLock().lock();
+    try {
+      states.force();
+      states.set(SIZE_SLOT, size);
+      states.set(DEPTH_SLOT, depth);
+      states.set(LEVEL_START_SLOT, levelStart);
+      states.set(LEVEL_END_SLOT, levelEnd);
+      states.force();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The depth of the last checkpoint or -1, if there is none.
+   */
+  public int getCheckpointDepth() {
+    return (int) header(DEPTH_SLOT);
+  }
+
+  public long getCheckpointLevelStart() {
+    return header(LEVEL_START_SLOT);
+  }
+
+  public long getCheckpointLevelEnd() {
+    return header(LEVEL_END_SLOT);
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      states.close();
+    } finally {
+      try {
+        index.discard();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private long header(int slot) {
+    lock.readLock().lock();
+    try {
+      return states.get(slot);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void read(long number, long[] buffer) {
+    if (number < 0 || number >= size) {
+      throw new IndexOutOfBoundsException("State: " + number
+              + ", Size: " + size);
+    }
+    long offset = HEADER_LONGS + number * width;
+    for (int i = 0; i < width; i++) {
+      buffer[i] = states.get(offset + i);
+    }
+  }
+
+  private long find(long[] key) {
+    long[] buffer = probe.get();
+    long bucket = hash(key, width) & mask;
+    long number;
+    while ((number = index.get(bucket)) != 0) {
+      read(number - 1, buffer);
+      if (matches(key, buffer)) {
+        return bucket;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+    return bucket;
+  }
+
+  private boolean matches(long[] key, long[] buffer) {
+    for (int i = 0; i < width; i++) {
+      if (buffer[i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rebuildIndex(long capacity) {
+    try {
+      index.ensureLength(capacity);
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot grow the state index.", ex);
+    }
+    index.clear();
+    mask = Long.highestOneBit(index.length()) - 1;
+    long[] key = new long[width];
+    for (long number = 0; number < size; number++) {
+      read(number, key);
+      long bucket = hash(key, width) & mask;
+      while (index.get(bucket) != 0) {
+        bucket = (bucket + 1) & mask;
+      }
+      index.set(bucket, number + 1);
+    }
+  }
+
+  private static long capacityFor(long expectedSize) {
+    long required = Math.max(1024, expectedSize * 4 / 3 + 1);
+    return Long.highestOneBit(required - 1) << 1;
+  }
+
+  @Override
+  public String toString() {
+    return "MappedStateStore{size=" + size + ", capacity=" + (mask + 1)
+            + ", width=" + width + "}";
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.function.Consumer;
+
+/**
+ * A hash set of encoded states with open addressing and linear probing.
+ * The keys are stored inline in one long array and a byte array marks
+ * the used buckets, so neither the keys nor the buckets are objects.
+ * The table grows, if it is filled by more than 70%.
+ */
+public class OpenAddressingStateSet extends VisitedStateSet {
+
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE / 2;
+
+  private long[] keys;
+  private byte[] used;
+  private int mask;
+  private int size;
+
+  public OpenAddressingStateSet(int width) {
+    this(width, 1024);
+  }
+
+  public OpenAddressingStateSet(int width, int expectedSize) {
+    super(width);
+    int capacity = Integer.highestOneBit(
+            Math.max(16, (int) Math.min(MAX_CAPACITY,
+                    expectedSize * 10L / 7)) - 1) << 1;
+    allocate(capacity);
+  }
+
+  @Override
+  public boolean add(long[] key) {
+    if ((size + 1) * 10L > (mask + 1) * 7L) {
+      grow();
+    }
+    int bucket = findBucket(key, keys, used, mask);
+    if (used[bucket] != 0) {
+      return false;
+    }
+    System.arraycopy(key, 0, keys, bucket * width, width);
+    used[bucket] = 1;
+    ++size;
+    return true;
+  }
+
+  @Override
+  public boolean contains(long[] key) {
+    return used[findBucket(key, keys, used, mask)] != 0;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEnumerable() {
+    return true;
+  }
+
+  @Override
+  public void forEach(Consumer<long[]> action) {
+    long[] key = new long[width];
+    for (int bucket = 0; bucket < used.length; bucket++) {
+      if (used[bucket] != 0) {
+        System.arraycopy(keys, bucket * width, key, 0, width);
+        action.accept(key);
+      }
+    }
+  }
+
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  private int findBucket(long[] key, long[] keys, byte[] used, int mask) {
+    int bucket = (int) hash(key, width) & mask;
+    while (used[bucket] != 0 && !matches(key, keys, bucket)) {
+      bucket = (bucket + 1) & mask;
+    }
+    return bucket;
+  }
+
+  private boolean matches(long[] key, long[] keys, int bucket) {
+    int offset = bucket * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[offset + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void allocate(int capacity) {
+    if ((long) capacity * width > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("The visited state set cannot hold "
+              + capacity + " states of width " + width);
+    }
+    this.keys = new long[capacity * width];
+    this.used = new byte[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private void grow() {
+    if (mask + 1 >= MAX_CAPACITY) {
+      throw new IllegalStateException("The visited state set is full.");
+    }
+    long[] oldKeys = keys;
+    byte[] oldUsed = used;
+    allocate((mask + 1) * 2);
+    long[] key = new long[width];
+    for (int bucket = 0; bucket < oldUsed.length; bucket++) {
+      if (oldUsed[bucket] != 0) {
+        System.arraycopy(oldKeys, bucket * width, key, 0, width);
+        int newBucket = findBucket(key, keys, used, mask);
+        System.arraycopy(key, 0, keys, newBucket * width, width);
+        used[newBucket] = 1;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "OpenAddressingStateSet{size=" + size + ", capacity="
+            + getCapacity() + ", width=" + width + "}";
+  }
+}
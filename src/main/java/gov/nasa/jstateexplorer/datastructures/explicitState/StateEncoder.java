@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the valuation of a concrete state into a fixed width long array.
+ * Each variable gets one slot. The slots are ordered by the variable names,
+ * so the encoding does not depend on the iteration order of the state.
+ * Booleans are stored as 0 and 1, integral values as they are and floating
+ * point values by their bits. A state must assign each variable of the
+ * encoder, otherwise it can't be encoded.
+ */
+public class StateEncoder {
+
+  private final List<Variable<?>> variables;
+  private final Map<Variable<?>, Integer> slots;
+
+  public StateEncoder(Collection<? extends Variable<?>> stateVariables) {
+    this.variables = new ArrayList<>(stateVariables);
+    this.variables.sort((left, right)
+            -> left.getName().compareTo(right.getName()));
+    this.slots = new HashMap<>();
+    for (int i = 0; i < variables.size(); i++) {
+      slots.put(variables.get(i), i);
+    }
+  }
+
+  public int getWidth() {
+    return variables.size();
+  }
+
+  public List<Variable<?>> getVariables() {
+    return variables;
+  }
+
+  public long[] encode(EnumerativeState state) {
+    long[] key = new long[getWidth()];
+    encode(state, key);
+    return key;
+  }
+
+  /**
+   * Writes the encoding into the buffer, which has to be at least
+   * getWidth() long.
+   */
+  public void encode(EnumerativeState state, long[] buffer) {
+    if (state.size() != getWidth()) {
+      throw new IllegalStateException("The state assigns " + state.size()
+              + " variables, but the encoder expects " + getWidth());
+    }
+    for (ValuationEntry entry : state) {
+      Integer slot = slots.get(entry.getVariable());
+      if (slot == null) {
+        throw new IllegalStateException("The variable "
+                + entry.getVariable() + " is unknown to the encoder.");
+      }
+      buffer[slot] = encodeValue(entry.getValue());
+    }
+  }
+
+  /**
+   * Creates the state with the values stored in the key.
+   */
+  public EnumerativeState decode(long[] key) {
+    EnumerativeState state = new EnumerativeState();
+    for (int i = 0; i < variables.size(); i++) {
+      Variable var = variables.get(i);
+      state.add(new ValuationEntry(var, decodeValue(key[i], var.getType())));
+    }
+    return state;
+  }
+
+  public static Object decodeValue(long slot, Type<?> type) {
+    if (type instanceof BuiltinTypes.BoolType) {
+      return slot != 0;
+    } else if (type instanceof BuiltinTypes.SInt32Type) {
+      return (int) slot;
+    } else if (type instanceof BuiltinTypes.SInt64Type) {
+      return slot;
+    } else if (type instanceof BuiltinTypes.SInt16Type) {
+      return (short) slot;
+    } else if (type instanceof BuiltinTypes.SInt8Type) {
+      return (byte) slot;
+    } else if (type instanceof BuiltinTypes.UInt16Type) {
+      return (char) slot;
+    } else if (type instanceof BuiltinTypes.IntegerType) {
+      return BigInteger.valueOf(slot);
+    } else if (type instanceof BuiltinTypes.DoubleType) {
+      return Double.longBitsToDouble(slot);
+    } else if (type instanceof BuiltinTypes.FloatType) {
+      return (float) Double.longBitsToDouble(slot);
+    }
+    throw new IllegalStateException("Cannot decode a value of type " + type);
+  }
+
+  public static long encodeValue(Object value) {
+    if (value instanceof Boolean) {
+      return ((Boolean) value) ? 1 : 0;
+    } else if (value instanceof Double || value instanceof Float) {
+      return Double.doubleToLongBits(((Number) value).doubleValue());
+    } else if (value instanceof BigInteger) {
+      BigInteger bigValue = (BigInteger) value;
+      if (bigValue.bitLength() < Long.SIZE) {
+        return bigValue.longValue();
+      }
+    } else if (value instanceof BigDecimal) {
+      //BigDecimal is not encoded, as equal values might have different
+      //scales.
+    } else if (value instanceof Number) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Character) {
+      return (Character) value;
+    }
+    throw new IllegalStateException("Cannot encode the value " + value
+            + " into a single slot.");
+  }
+}
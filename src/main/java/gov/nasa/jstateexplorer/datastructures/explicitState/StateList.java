@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.Arrays;
+
+/**
+ * A list of encoded states of the same width stored in one long array.
+ * The explicit state search appends the states in breadth-first order,
+ * so the states of one depth form a range of the list.
+ */
+public class StateList {
+
+  private final int width;
+  private long[] states;
+  private int size;
+
+  public StateList(int width) {
+    this.width = width;
+    this.states = new long[Math.max(width, 1) * 1024];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Appends a copy of the key and returns its index.
+   */
+  public int add(long[] key) {
+    long required = (long) (size + 1) * width;
+    if (required > states.length) {
+      if (required > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("The state list is full.");
+      }
+      states = Arrays.copyOf(states,
+              (int) Math.min(Integer.MAX_VALUE - 8, required * 2));
+    }
+    System.arraycopy(key, 0, states, size * width, width);
+    return size++;
+  }
+
+  /**
+   * Appends all states of the other list.
+   */
+  public void addAll(StateList other) {
+    if (other.width != width) {
+      throw new IllegalArgumentException("Cannot add states of width "
+              + other.width + " to a list of width " + width);
+    }
+    long required = (long) (size + other.size) * width;
+    if (required > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("The state list is full.");
+    }
+    if (required > states.length) {
+      states = Arrays.copyOf(states,
+              (int) Math.min(Integer.MAX_VALUE - 8, required * 2));
+    }
+    System.arraycopy(other.states, 0, states, size * width,
+            other.size * width);
+    size += other.size;
+  }
+
+  /**
+   * Copies the state at the index into the buffer.
+   */
+  public void get(int index, long[] buffer) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index
+              + ", Size: " + size);
+    }
+    System.arraycopy(states, index * width, buffer, 0, width);
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.function.Consumer;
+/**
+ * A set of encoded states as produced by the StateEncoder.
+ * All keys added to one set have the same width.
+ * Approximate sets might consider a new state as visited. They report the
+ * probability, that at least one state has been omitted this way.
+ */
+public abstract class VisitedStateSet {
+
+  protected final int width;
+
+  protected VisitedStateSet(int width) {
+    this.width = width;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Adds the key and returns true, if the key was not in the set before.
+   */
+  public abstract boolean add(long[] key);
+
+  public abstract boolean contains(long[] key);
+
+  public abstract long size();
+
+  /**
+   * Prepares the set to hold the expected amount of states.
+   * Sets growing on demand ignore it.
+   */
+  public void ensureCapacity(long expectedSize) {
+  }
+
+  /**
+   * True, if the set holds the expected amount of states without
+   * ensureCapacity. Sets growing on demand always do.
+   */
+  public boolean hasCapacity(long expectedSize) {
+    return true;
+  }
+
+  /**
+   * The estimated probability, that a new state has been treated as
+   * visited. It is 0 for exact sets.
+   */
+  public double getOmissionProbability() {
+    return 0;
+  }
+
+  /**
+   * True, if forEach can enumerate the keys. Approximate sets can't.
+   */
+  public boolean isEnumerable() {
+    return false;
+  }
+
+  /**
+   * Passes each key of the set to the action. The array passed is reused
+   * for the next key. It must not be called while keys are added.
+   */
+  public void forEach(Consumer<long[]> action) {
+    throw new UnsupportedOperationException(getClass().getSimpleName()
+            + " cannot enumerate its keys.");
+  }
+
+  /**
+   * The probability of at least one omission, if omissions happen
+   * independently and the expected amount of omissions is given.
+   */
+  protected static double atLeastOne(double expectedOmissions) {
+    return -Math.expm1(-expectedOmissions);
+  }
+
+  /**
+   * A 64 bit hash of the key. Each slot is mixed, so permuted
+   * keys don't collide.
+   */
+  public static long hash(long[] key, int width) {
+    return hash(key, width, 0);
+  }
+
+  /**
+   * A hash of the key, that is independent of hashes with other seeds.
+   */
+  public static long hash(long[] key, int width, long seed) {
+    long hash = 0x9E3779B97F4A7C15L * (width + 1) + mix(seed);
+    for (int i = 0; i < width; i++) {
+      hash = mix(hash ^ key[i]) + 0x9E3779B97F4A7C15L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+}
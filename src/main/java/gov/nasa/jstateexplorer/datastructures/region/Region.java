@@ -21,15 +21,40 @@ import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import gov.nasa.jstateexplorer.datastructures.state.State;
 import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A Region is a set of states.
+ * The states are stored in insertion order in arrays and have an int id,
+ * their position. The names are only indexed, when a state is looked up
+ * by name. A region is a view of the first states of its storage: Regions
+ * created by share() use the same storage, and a region at the end of the
+ * storage appends in place. The other regions don't see these states, as
+ * they are behind their end. A region, that is not at the end, copies the
+ * storage before it changes it. The storage is a chunked persistent vector,
+ * so the copy shares all full chunks and copies only the last one. So a
+ * union, that extends a region by new states, doesn't copy the region and
+ * regions kept from earlier depths cost only their last chunk.
+ * markSegment() starts a new segment, e.g. for the states of a new depth.
  * @param <E> Any class extending ValuationEntry
  * @param <T> Any class extending a State description.
  */
 public abstract class Region<E extends ValuationEntry, T extends State<E>>
-        extends HashMap<String, T> {
+        extends AbstractMap<String, T> {
+
+  private Storage storage = new Storage();
+  private int size;
+  private int[] segmentStarts = new int[0];
 
   public Region() {
   }
@@ -53,11 +78,11 @@ public abstract class Region<E extends ValuationEntry, T extends State<E>>
   }
 
   public void print(Appendable a) throws IOException {
-    for (String stateName : keySet()) {
+    for (Map.Entry<String, T> state : entrySet()) {
       a.append("stateName: ");
-      a.append(stateName);
+      a.append(state.getKey());
       a.append("\n");
-      for (E entry : get(stateName)) {
+      for (E entry : state.getValue()) {
         a.append(entry.getVariable().getName());
         a.append(": ");
         a.append(entry.getValue().toString());
@@ -70,4 +95,302 @@ public abstract class Region<E extends ValuationEntry, T extends State<E>>
   public abstract void addInitialValuation(Valuation initValuation);
 
   public abstract Region createNewRegion();
-}
\ No newline at end of file
+
+  /**
+   * Makes this region a view of the states of the other region.
+   * Neither region copies the states.
+   */
+  public void share(Region<?, ?> other) {
+    other.storage.shared = true;
+    this.storage = other.storage;
+    this.size = other.size;
+    this.segmentStarts = other.segmentStarts;
+  }
+
+  /**
+   * Appends the state without looking for a state of the same name.
+   * The name must not be in the region yet.
+   */
+  public void append(String name, T state) {
+    ensureAtEnd();
+    storage.add(name, state);
+    ++size;
+  }
+
+  public String getName(int id) {
+    checkId(id);
+    return storage.name(id);
+  }
+
+  public T getState(int id) {
+    checkId(id);
+    return (T) storage.state(id);
+  }
+
+  /**
+   * Starts a new segment with the next state appended.
+   */
+  public void markSegment() {
+    segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length + 1);
+    segmentStarts[segmentStarts.length - 1] = size;
+  }
+
+  /**
+   * The amount of segments. The states before the first mark are not
+   * part of a segment.
+   */
+  public int getSegmentCount() {
+    return segmentStarts.length;
+  }
+
+  /**
+   * The states of the segment in the order they were appended.
+   */
+  public List<T> getSegment(int segment) {
+    int from = segmentStarts[segment];
+    int to = segment + 1 < segmentStarts.length
+            ? segmentStarts[segment + 1] : size;
+    return new AbstractList<T>() {
+      @Override
+      public T get(int index) {
+        if (index < 0 || from + index >= to) {
+          throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return (T) storage.state(from + index);
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && storage.indexOf((String) key, size) >= 0;
+  }
+
+  @Override
+  public T get(Object key) {
+    int id = key instanceof String ? storage.indexOf((String) key, size) : -1;
+    return id >= 0 ? (T) storage.state(id) : null;
+  }
+
+  @Override
+  public T put(String name, T state) {
+    int id = storage.indexOf(name, size);
+    if (id < 0) {
+      append(name, state);
+      return null;
+    }
+    if (storage.shared) {
+      detach(size);
+    }
+    T old = (T) storage.state(id);
+    storage.set(id, state);
+    return old;
+  }
+
+  @Override
+  public T remove(Object key) {
+    int id = key instanceof String ? storage.indexOf((String) key, size) : -1;
+    if (id < 0) {
+      return null;
+    }
+    T old = (T) storage.state(id);
+    Storage copy = new Storage();
+    for (int other = 0; other < size; other++) {
+      if (other != id) {
+        copy.add(storage.name(other), storage.state(other));
+      }
+    }
+    storage = copy;
+    --size;
+    for (int i = 0; i < segmentStarts.length; i++) {
+      if (segmentStarts[i] > id) {
+        --segmentStarts[i];
+      }
+    }
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    storage = new Storage();
+    size = 0;
+    segmentStarts = new int[0];
+  }
+
+  @Override
+  public Set<Map.Entry<String, T>> entrySet() {
+    return new AbstractSet<Map.Entry<String, T>>() {
+      @Override
+      public Iterator<Map.Entry<String, T>> iterator() {
+        return new Iterator<Map.Entry<String, T>>() {
+          private final Storage iterated = storage;
+          private final int end = size;
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < end;
+          }
+
+          @Override
+          public Map.Entry<String, T> next() {
+            if (next >= end) {
+              throw new NoSuchElementException();
+            }
+            int id = next++;
+            return new AbstractMap.SimpleImmutableEntry<>(
+                    iterated.name(id), (T) iterated.state(id));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private void checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("Id: " + id + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Copies the storage, if other regions share states behind the end
+   * of this region.
+   */
+  private void ensureAtEnd() {
+    if (storage.size != size) {
+      detach(size);
+    }
+  }
+
+  private void detach(int length) {
+    storage = new Storage(storage, length);
+  }
+
+  /**
+   * The names and states shared by regions as chunked persistent vector.
+   * The chunks have a fixed size and never move. A prefix of a storage
+   * shares the full chunks with it and only copies the last one. A chunk
+   * borrowed from another storage is copied, before a state in it is
+   * replaced. The name index of a prefix asks the index of its parent for
+   * the shared states.
+   */
+  private static class Storage {
+
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_PARENTS = 4;
+
+    private String[][] names = new String[1][];
+    private Object[][] states = new Object[1][];
+    private int size;
+    private final BitSet borrowed = new BitSet();
+    private Storage parent;
+    private int parentLimit;
+    private int parents;
+    private Map<String, Integer> index;
+    private int indexed;
+    private boolean shared;
+
+    Storage() {
+    }
+
+    /**
+     * A storage with the first length states of the parent.
+     */
+    Storage(Storage parent, int length) {
+      int fullChunks = length >>> CHUNK_SHIFT;
+      int tail = length & CHUNK_MASK;
+      this.names = Arrays.copyOf(parent.names, fullChunks + 1);
+      this.states = Arrays.copyOf(parent.states, fullChunks + 1);
+      names[fullChunks] = null;
+      states[fullChunks] = null;
+      if (tail != 0) {
+        names[fullChunks] = new String[CHUNK_SIZE];
+        states[fullChunks] = new Object[CHUNK_SIZE];
+        System.arraycopy(parent.names[fullChunks], 0,
+                names[fullChunks], 0, tail);
+        System.arraycopy(parent.states[fullChunks], 0,
+                states[fullChunks], 0, tail);
+      }
+      this.size = length;
+      this.borrowed.set(0, fullChunks);
+      if (parent.parents < MAX_PARENTS) {
+        this.parent = parent;
+        this.parentLimit = length;
+        this.parents = parent.parents + 1;
+        this.indexed = length;
+      }
+    }
+
+    String name(int id) {
+      return names[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    Object state(int id) {
+      return states[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    void set(int id, Object state) {
+      int chunk = id >>> CHUNK_SHIFT;
+      if (borrowed.get(chunk)) {
+        names[chunk] = names[chunk].clone();
+        states[chunk] = states[chunk].clone();
+        borrowed.clear(chunk);
+      }
+      states[chunk][id & CHUNK_MASK] = state;
+    }
+
+    void add(String name, Object state) {
+      int chunk = size >>> CHUNK_SHIFT;
+      if (chunk == names.length) {
+        names = Arrays.copyOf(names, chunk * 2);
+        states = Arrays.copyOf(states, chunk * 2);
+      }
+      if (names[chunk] == null) {
+        names[chunk] = new String[CHUNK_SIZE];
+        states[chunk] = new Object[CHUNK_SIZE];
+      }
+      names[chunk][size & CHUNK_MASK] = name;
+      states[chunk][size & CHUNK_MASK] = state;
+      ++size;
+    }
+
+    /**
+     * The id of the name among the first limit states or -1.
+     * The index is extended by the states added since the last lookup.
+     */
+    int indexOf(String name, int limit) {
+      if (parent != null) {
+        int id = parent.indexOf(name, Math.min(limit, parentLimit));
+        if (id >= 0) {
+          return id;
+        }
+      }
+      if (index == null) {
+        index = new HashMap<>();
+      }
+      while (indexed < size) {
+        index.putIfAbsent(name(indexed), indexed);
+        ++indexed;
+      }
+      Integer id = index.get(name);
+      return id != null && id < limit ? id : -1;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package gov.nasa.jstateexplorer.datastructures.searchImage;
 
 import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
+import java.io.IOException;
 
 
 /**
@@ -23,6 +24,8 @@ import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
  */
 public class EnumerativeImage extends SearchIterationImage<EnumerativeRegion> {
 
+  private double omissionProbability = 0;
+
   public EnumerativeImage(EnumerativeRegion region) {
     super(region);
   }
@@ -32,6 +35,27 @@ public class EnumerativeImage extends SearchIterationImage<EnumerativeRegion> {
     super(region, errors, depth);
   }
 
+  /**
+   * The estimated probability, that the search missed a reachable state.
+   * It is only above 0, if an approximate visited set has been used.
+   */
+  public double getOmissionProbability() {
+    return omissionProbability;
+  }
+
+  public void setOmissionProbability(double omissionProbability) {
+    this.omissionProbability = omissionProbability;
+  }
+
+  @Override
+  public void print(Appendable searchResultString) throws IOException {
+    super.print(searchResultString);
+    if (omissionProbability > 0) {
+      searchResultString.append("The estimated probability, that a state "
+              + "has been omitted, is: " + omissionProbability + "\n");
+    }
+  }
+
   @Override
   public EnumerativeRegion getPreviousNewStates() {
     if (this.previousNewStates == null) {
@@ -39,4 +63,13 @@ public class EnumerativeImage extends SearchIterationImage<EnumerativeRegion> {
     }
     return this.previousNewStates;
   }
+
+  @Override
+  protected EnumerativeImage createImage(EnumerativeRegion reachableStates,
+          StringBuilder errors, int depth) {
+    EnumerativeImage image
+            = new EnumerativeImage(reachableStates, errors, depth);
+    image.setOmissionProbability(omissionProbability);
+    return image;
+  }
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ public abstract class SearchIterationImage<T extends Region> {
   protected StringBuilder errors = new StringBuilder();
   protected T reachableStates, newStates, previousNewStates;
   protected List<T> historyForCE = new ArrayList<>();
+  protected List<SearchIterationImage<T>> retainedImages = new ArrayList<>();
   
   public SearchIterationImage(T reachableStates) {
     this.reachableStates = reachableStates;
@@ -145,4 +146,48 @@ public abstract class SearchIterationImage<T extends Region> {
     
     searchResultString.append("\niteration image end\n");
   }
+
+  /**
+   * A copy of this image, that is not changed by the further search.
+   * The copy shares the states of the regions with this image,
+   * so it only costs the states added afterwards.
+   */
+  public SearchIterationImage<T> snapshot() {
+    SearchIterationImage<T> image = createImage(share(reachableStates),
+            new StringBuilder(errors), depth);
+    image.previousNewStates = share(previousNewStates);
+    image.historyForCE = new ArrayList<>(historyForCE);
+    return image;
+  }
+
+  /**
+   * Keeps a snapshot of the current depth in the retained images.
+   */
+  public void retain() {
+    retainedImages.add(snapshot());
+  }
+
+  /**
+   * The snapshots kept by retain(), one per retained depth.
+   */
+  public List<SearchIterationImage<T>> getRetainedImages() {
+    return retainedImages;
+  }
+
+  public void setRetainedImages(
+          List<SearchIterationImage<T>> retainedImages) {
+    this.retainedImages = retainedImages;
+  }
+
+  protected abstract SearchIterationImage<T> createImage(T reachableStates,
+          StringBuilder errors, int depth);
+
+  private T share(T region) {
+    if (region == null) {
+      return null;
+    }
+    T shared = (T) region.createNewRegion();
+    shared.share(region);
+    return shared;
+  }
 }
\ No newline at end of file
@@ -39,4 +39,10 @@ public class SymbolicImage extends SearchIterationImage<SymbolicRegion> {
     }
     return this.previousNewStates;
   }
+
+  @Override
+  protected SymbolicImage createImage(SymbolicRegion reachableStates,
+          StringBuilder errors, int depth) {
+    return new SymbolicImage(reachableStates, errors, depth);
+  }
 }
\ No newline at end of file
@@ -45,4 +45,13 @@ public class EnumerativeState extends State<ValuationEntry> {
   public State<ValuationEntry> createEmptyState() {
     return new EnumerativeState();
   }
+
+  @Override
+  public Valuation getConcreteValuation() {
+    Valuation concrete = new Valuation();
+    for (ValuationEntry entry : this) {
+      concrete.addEntry(entry);
+    }
+    return concrete;
+  }
 }
\ No newline at end of file
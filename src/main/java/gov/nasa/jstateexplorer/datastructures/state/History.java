@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.datastructures.state;
+
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The transitions leading to a state as a persistent list: Each node
+ * references its parent and the last transition. A successor shares the
+ * history of its state and adds one node, so a history costs one node per
+ * state instead of a list per state. The path is only built, when it is
+ * requested.
+ */
+public final class History {
+
+  public static final History EMPTY = new History(null, null);
+
+  private final History parent;
+  private final Transition last;
+  private final int length;
+
+  private History(History parent, Transition last) {
+    this.parent = parent;
+    this.last = last;
+    this.length = parent == null ? 0 : parent.length + 1;
+  }
+
+  public static History of(List<Transition> transitions) {
+    History history = EMPTY;
+    for (Transition transition : transitions) {
+      history = history.append(transition);
+    }
+    return history;
+  }
+
+  public History append(Transition transition) {
+    return new History(this, transition);
+  }
+
+  public History getParent() {
+    return parent;
+  }
+
+  public Transition getLast() {
+    return last;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * The transitions from the initial state to this node.
+   */
+  public List<Transition> toList() {
+    List<Transition> transitions = new ArrayList<>(length);
+    for (History node = this; node.parent != null; node = node.parent) {
+      transitions.add(node.last);
+    }
+    Collections.reverse(transitions);
+    return transitions;
+  }
+}
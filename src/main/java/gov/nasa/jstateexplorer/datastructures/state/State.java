@@ -16,10 +16,10 @@
 package gov.nasa.jstateexplorer.datastructures.state;
 
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jstateexplorer.transitionSystem.Transition;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -30,7 +30,7 @@ import java.util.Set;
  */
 public abstract class State<T extends ValuationEntry> extends HashSet<T> {
 
-  protected List<Transition> history = new ArrayList<>();
+  protected History history = History.EMPTY;
 
   public Set<T> getEntriesForVariable(Variable var) {
     Set<T> entriesForVariable = new HashSet<>();
@@ -45,29 +45,62 @@ public abstract class State<T extends ValuationEntry> extends HashSet<T> {
   public abstract Expression<Boolean> toExpression();
 
   public abstract State<T> createEmptyState();
+
+  /**
+   * Returns the valuation of the state, if the state assigns exactly one
+   * concrete value to each of its variables. Otherwise null is returned.
+   */
+  public abstract Valuation getConcreteValuation();
   
+  /**
+   * The semantic equality of two states. It is the equality of the
+   * entries by default. equals stays structural.
+   * The search does not call it. It is meant for comparing single states.
+   */
+  public boolean isEquivalent(State<?> other) {
+    return equals(other);
+  }
+
   public void addToHistory(Transition t){
-      this.history.add(t);
+      this.history = this.history.append(t);
   }
 
   public void copyHistory(List<Transition> history){
     for(Transition t: history){
-      this.history.add(t);
+      addToHistory(t);
     }
   }
   public void setHistory(List<Transition> history){
+    if(history != null){
+      this.history = History.of(history);
+    }
+  }
+
+  /**
+   * Shares the history node, e.g. of the state this one is derived from.
+   */
+  public void setHistory(History history){
     if(history != null){
       this.history = history;
     }
   }
-  public List<Transition> getHistory(){
+  public History getHistoryNode(){
     return this.history;
   }
+
+  /**
+   * Builds the list of transitions leading to this state. The list is a
+   * copy, so changes to it don't change the state. Use addToHistory.
+   */
+  public List<Transition> getHistory(){
+    return this.history.toList();
+  }
   public String getHistoryAsString(){
-      String resHistorie = "size: " + this.history.size() +"\n";
-      for(Transition t: this.history){
-          resHistorie += t.toStringWithId();
+      StringBuilder resHistorie = new StringBuilder("size: ")
+              .append(this.history.length()).append("\n");
+      for(Transition t: getHistory()){
+          resHistorie.append(t.toStringWithId());
       }
-      return resHistorie;
+      return resHistorie.toString();
   }
 }
\ No newline at end of file
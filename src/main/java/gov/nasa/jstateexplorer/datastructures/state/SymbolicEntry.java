@@ -20,35 +20,123 @@ import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
 import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
 import gov.nasa.jstateexplorer.SolverInstance;
+import java.util.Map;
+import java.util.WeakHashMap;
 /**
  * A SymbolicEntry is a variable assingment with an expression as value.
+ * equals and hashCode compare the variable and the structure of the value,
+ * so sets of states don't need the solver. The structural hash is cached.
+ * isEquivalent is the semantic equality. It calls the solver, if the
+ * values differ structurally, and caches the result per value. The cache
+ * only holds the compared values weakly.
+ * The search itself never needs isEquivalent: The symbolic search compares
+ * regions by formulas in SymbolicRegionUtil and the sets of states only
+ * need the structural equality. It is meant for clients, that compare
+ * single states, e.g. with an expected result.
  */
 public class SymbolicEntry extends ValuationEntry<Expression<Boolean>> {
 
+  private int hash;
+  private boolean hashed;
+  private Map<Expression<Boolean>, Boolean> equivalentValues;
+
   public SymbolicEntry(Variable<Expression<Boolean>> variable,
           Expression<Boolean> value) {
     super(variable, value);
   }
 
+  @Override
+  public void setValue(Expression<Boolean> value) {
+    super.setValue(value);
+    synchronized (this) {
+      hashed = false;
+      equivalentValues = null;
+    }
+  }
+
   @Override
   public boolean equals(Object obj) {
-    if (obj instanceof SymbolicEntry) {
-      SymbolicEntry testEntry = (SymbolicEntry) obj;
-      if (testEntry.getVariable().equals(this.getVariable())) {
-        Expression test = new NumericBooleanExpression(
-                testEntry.getValue(), NumericComparator.EQ, this.getValue());
-        Result res = SolverInstance.getInstance().isSatisfiable(test);
-        if (res == Result.SAT) {
-          return true;
-        } else if (res == Result.DONT_KNOW) {
-          throw new IllegalStateException("Cannot decide Equality");
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SymbolicEntry)) {
+      return false;
+    }
+    SymbolicEntry other = (SymbolicEntry) obj;
+    return hashCode() == other.hashCode()
+            && getVariable().equals(other.getVariable())
+            && getValue().equals(other.getValue());
+  }
+
+  @Override
+  public synchronized int hashCode() {
+    if (!hashed) {
+      hash = 31 * getVariable().hashCode() + getValue().hashCode();
+      hashed = true;
+    }
+    return hash;
+  }
+
+  /**
+   * True, if both entries assign the same variable and their values are
+   * equivalent formulas.
+   */
+  public boolean isEquivalent(SymbolicEntry other) {
+    if (equals(other)) {
+      return true;
+    }
+    if (!getVariable().equals(other.getVariable())) {
+      return false;
+    }
+    Expression<Boolean> otherValue = other.getValue();
+    synchronized (this) {
+      if (equivalentValues != null
+              && equivalentValues.containsKey(otherValue)) {
+        return equivalentValues.get(otherValue);
+      }
+    }
+    Expression<Boolean> differ = new Negation(new PropositionalCompound(
+            getValue(), LogicalOperator.EQUIV, otherValue));
+    Result res = SolverInstance.getInstance().isSatisfiable(differ);
+    if (res == Result.DONT_KNOW) {
+      throw new IllegalStateException("Cannot decide Equality");
+    }
+    boolean equivalent = res == Result.UNSAT;
+    synchronized (this) {
+      if (equivalentValues == null) {
+        equivalentValues = new WeakHashMap<>();
+      }
+      equivalentValues.put(otherValue, equivalent);
+    }
+    return equivalent;
+  }
+
+  /**
+   * Returns the constant, if the value is var == constant
+   * or constant == var. Otherwise null is returned.
+   */
+  public Object getConcreteValue() {
+    Expression value = getValue();
+    if (value instanceof NumericBooleanExpression) {
+      NumericBooleanExpression equation = (NumericBooleanExpression) value;
+      if (equation.getComparator() == NumericComparator.EQ) {
+        Expression left = equation.getLeft();
+        Expression right = equation.getRight();
+        if (right instanceof Constant && left.equals(getVariable())) {
+          return ((Constant) right).getValue();
+        }
+        if (left instanceof Constant && right.equals(getVariable())) {
+          return ((Constant) left).getValue();
         }
       }
     }
-    return false;
+    return null;
   }
 
   public static SymbolicEntry create(ValuationEntry entry) {
@@ -18,7 +18,10 @@ package gov.nasa.jstateexplorer.datastructures.state;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.HashMap;
+import java.util.Map;
 
 public class SymbolicState extends State<SymbolicEntry> {
 
@@ -44,8 +47,46 @@ public class SymbolicState extends State<SymbolicEntry> {
     return expr;
   }
 
+  /**
+   * Compares the entries of the same variable semantically. The solver
+   * is only called for entries, that differ structurally.
+   */
+  @Override
+  public boolean isEquivalent(State<?> other) {
+    if (equals(other)) {
+      return true;
+    }
+    if (!(other instanceof SymbolicState) || other.size() != size()) {
+      return false;
+    }
+    Map<Variable<?>, SymbolicEntry> otherEntries = new HashMap<>();
+    for (SymbolicEntry entry : (SymbolicState) other) {
+      otherEntries.put(entry.getVariable(), entry);
+    }
+    for (SymbolicEntry entry : this) {
+      SymbolicEntry otherEntry = otherEntries.get(entry.getVariable());
+      if (otherEntry == null || !entry.isEquivalent(otherEntry)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public State<SymbolicEntry> createEmptyState() {
     return new SymbolicState();
   }
+
+  @Override
+  public Valuation getConcreteValuation() {
+    Valuation concrete = new Valuation();
+    for (SymbolicEntry entry : this) {
+      Object value = entry.getConcreteValue();
+      if (value == null) {
+        return null;
+      }
+      concrete.addEntry(new ValuationEntry(entry.getVariable(), value));
+    }
+    return concrete;
+  }
 }
\ No newline at end of file
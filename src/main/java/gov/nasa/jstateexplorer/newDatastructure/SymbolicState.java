@@ -10,6 +10,7 @@ import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
 import gov.nasa.jpf.constraints.types.BuiltinTypes;
 import gov.nasa.jpf.constraints.types.TypeContext;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.SearchSession;
 import gov.nasa.jstateexplorer.newTransitionSystem.Transition;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -23,16 +24,13 @@ import java.util.List;
  */
 public class SymbolicState extends HashMap<Variable<?>, Expression<Boolean>>{
 
-  private static long counter = 0;
   private boolean isErrorState;
   private String id;
   
   private List<Transition> incomingTransitions, outgoingTransitions;
   
-  public synchronized static String getNextStateId() {
-    String nextId = "s_" + SymbolicState.counter;
-    ++counter;
-    return nextId;
+  public static String getNextStateId() {
+    return "s_" + SearchSession.current().nextSymbolicStateNumber();
   }
   
   public SymbolicState(){
@@ -10,9 +10,13 @@ import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericComparator;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.SearchSession;
 import gov.nasa.jstateexplorer.SolverInstance;
 import gov.nasa.jstateexplorer.newDatastructure.SymbolicState;
 import gov.nasa.jstateexplorer.newTransitionSystem.helper.TransitionLabelHelper;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
+import gov.nasa.jstateexplorer.util.SymbolTable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -25,8 +29,6 @@ import java.util.List;
  * @author mmuesly(Malte Mues)
  */
 public class TransitionLabel {
-  private static long counter = 0L;
-  
   private String name = "";
   private long id;
   private Set<Variable<?>> variables;
@@ -37,10 +39,8 @@ public class TransitionLabel {
   private ArrayList<Transition> executingTransition;
   private boolean errorTransititonLabel,isConstructor;
 
-  public synchronized static long getNextID(){
-    long toReturn = TransitionLabel.counter;
-    ++TransitionLabel.counter;
-    return toReturn;
+  public static long getNextID(){
+    return SearchSession.current().nextTransitionLabelId();
   }
   
   public TransitionLabel(){
@@ -93,7 +93,8 @@ public class TransitionLabel {
         //any effect variable be included. 
         Expression relevantPrecondition = 
                 createRelevantPrecondition(
-                        ExpressionUtil.freeVariables(returnEffect),
+                        ExpressionMetadata.getInstance()
+                                .freeVariables(returnEffect),
                         this.preConditionConstraints.size());
         if(relevantPrecondition != null) {
           returnEffect = ExpressionUtil.and(relevantPrecondition, returnEffect);
@@ -101,7 +102,7 @@ public class TransitionLabel {
       }else {
         //From a logical perspective, this doesn't change var value during the
         //transition.
-        Variable primeVar = new Variable(var.getType(), var.getName() + "'");
+        Variable primeVar = SymbolTable.getInstance().getPrimeVariable(var);
         if(primeVar.getType() instanceof BuiltinTypes.BoolType){
           returnEffect = new PropositionalCompound(primeVar, LogicalOperator.EQUIV, var);
         } else {
@@ -213,7 +214,7 @@ public class TransitionLabel {
   private Expression catchUpPotentiallyMissedParts(Expression expr,
           Collection<Variable<?>> variables, int currentPosition) {
     Collection<Variable<?>> additionalVariables = 
-                ExpressionUtil.freeVariables(expr);
+                ExpressionMetadata.getInstance().freeVariables(expr);
     if(!variables.containsAll(additionalVariables)) {
       Expression otherPrecondition = 
               createRelevantPrecondition(additionalVariables, currentPosition);
@@ -241,8 +242,8 @@ public class TransitionLabel {
     this.isConstructor = true;
   }
   public boolean isEnabledOnState(SymbolicState state) {
-    Expression expr = ExpressionUtil.and(state.toExpression(),
-    this.getPrecondition());
+    Expression expr = ExpressionFactory.getInstance().and(
+            state.toExpression(), this.getPrecondition());
     SolverInstance solver = SolverInstance.getInstance();
     Result res = solver.isSatisfiable(expr);
     if(res == Result.DONT_KNOW){
@@ -266,13 +267,12 @@ public class TransitionLabel {
   private Expression combineEffectAndStateValue(
           SymbolicState state, Variable var){
     Expression effect = getEffectForVariable(var);
-    Collection<Variable<?>> variblesInEffect = 
-            ExpressionUtil.freeVariables(effect);
+    ExpressionMetadata metadata = ExpressionMetadata.getInstance();
     Set<Variable<?>> stateVariables = state.keySet();
     for(Variable stateVar: stateVariables) {
-      if(variblesInEffect.contains(stateVar)){
+      if(metadata.isFree(stateVar, effect)){
         Expression currentValue = state.get(stateVar);
-        effect = ExpressionUtil.and(effect, currentValue);
+        effect = ExpressionFactory.getInstance().and(effect, currentValue);
       }
     }
     return effect;
@@ -8,6 +8,7 @@ import gov.nasa.jpf.constraints.expressions.LogicalOperator;
 import gov.nasa.jpf.constraints.expressions.Negation;
 import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
 import gov.nasa.jpf.constraints.types.TypeContext;
+import gov.nasa.jstateexplorer.SearchSession;
 import gov.nasa.jstateexplorer.SolverInstance;
 import gov.nasa.jstateexplorer.newDatastructure.SymbolicState;
 import gov.nasa.jstateexplorer.newTransitionSystem.helper.TransitionSystemHelper;
@@ -16,7 +17,8 @@ import java.util.HashMap;
 import java.util.List;
 
 /**
- *
+ * The transition system belongs to a SearchSession. All state, transition
+ * and label ids as well as the solver are taken from this session.
  * @author mmuesly
  */
 public class TransitionSystem {
@@ -27,14 +29,20 @@ public class TransitionSystem {
   private List<Variable<?>> stateVariables;
   private List<TransitionLabel> transitionLabels;
   private HashMap<Integer, List<Transition>> transitions;
+  private final SearchSession session;
   
   public TransitionSystem(){
+    this(SearchSession.current());
+  }
+
+  public TransitionSystem(SearchSession session){
+    this.session = session;
     this.stateVariables = new ArrayList<>();
     this.transitionLabels = new ArrayList<>();
     this.newStates = new HashMap<>();
     this.allStates = new HashMap<>();
     this.transitions = new HashMap<>();
-    this.errorState = new SymbolicState();
+    this.errorState = session.execute(() -> new SymbolicState());
     errorState.markAsErrorState();
     this.constructorAllowed = true;
   }
@@ -166,6 +174,9 @@ public class TransitionSystem {
   //TODO: This constructor handling seems like a good idea, but it needs
   // to be checked against jDarts constructor extraction and behavior...
   public void initalize() {
+    session.run(() -> initalizeInSession());
+  }
+  private void initalizeInSession() {
     if(getInitState() == null){
       boolean foundConstructor = false;
       SymbolicState initState = 
@@ -197,7 +208,7 @@ public class TransitionSystem {
     }
   }
   protected boolean isNewValueInState(SymbolicState resultingState) {
-    SolverInstance solver = SolverInstance.getInstance();
+    SolverInstance solver = session.getSolverInstance();
     Expression newStateExpression = resultingState.toExpression();
     Expression reachedExpression = 
             TransitionSystemHelper.createReachExpression(this);
@@ -302,17 +313,24 @@ public class TransitionSystem {
     }
   }
   public void unrollToDepth(int depth) {
-    for(int i = 1; i <= depth; i++){
-      unrollIteration(i);
-    }
+    session.run(() -> {
+      for(int i = 1; i <= depth; i++){
+        unrollIteration(i);
+      }
+    });
   }
   //Returns last depth in which a new State has been reached.
   public int unrollToFixPoint() {
-    int depth = 0;
-    while(hasNewStates(depth)){
-      ++depth;
-      unrollIteration(depth);
-    }
-    return depth;
+    return session.execute(() -> {
+      int depth = 0;
+      while(hasNewStates(depth)){
+        ++depth;
+        unrollIteration(depth);
+      }
+      return depth;
+    });
+  }
+  public SearchSession getSession() {
+    return session;
   }
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.expressions.Quantifier;
 import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
-import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -31,7 +31,7 @@ public class ExpressionQuantifier {
           Expression expr, Collection<Variable<?>> stateVariables){
     ArrayList<Variable<?>> toBind = new ArrayList<>();
     Collection<Variable<?>> variablesInExpression = 
-            ExpressionUtil.freeVariables(expr);
+            ExpressionMetadata.getInstance().freeVariables(expr);
     for(Variable var: variablesInExpression){
       if(!stateVariables.contains(var)){
         toBind.add(var);
@@ -2,9 +2,9 @@ package gov.nasa.jstateexplorer.newTransitionSystem.helper;
 
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Variable;
-import gov.nasa.jpf.constraints.util.ExpressionUtil;
-import gov.nasa.jstateexplorer.datastructures.NameMap;
 import gov.nasa.jstateexplorer.newDatastructure.SymbolicState;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import gov.nasa.jstateexplorer.util.VariableRenaming;
 import java.util.Collection;
 import java.util.Set;
 
@@ -17,33 +17,37 @@ public class RenameUtils {
 
   public static SymbolicState rename(SymbolicState resultingState,
           Collection<Variable<?>> parameters, long id) {
-     NameMap renamings = createRenamingMap(resultingState.keySet(), parameters, id);
+     SymbolTable symbols = SymbolTable.getInstance();
+     VariableRenaming renamings = createRenamingMap(
+             symbols, resultingState.keySet(), parameters, id);
      for(Variable stateVariable: resultingState.keySet()){
        Expression value = resultingState.get(stateVariable);
-       value = ExpressionUtil.renameVars(value, renamings);
-       NameMap primeRename = new NameMap();
-       primeRename.mapNames(
-               stateVariable.getName() +"'", stateVariable.getName());
-       value = ExpressionUtil.renameVars(value, primeRename);
+       value = renamings.apply(value);
+       int stateVariableId = symbols.getId(stateVariable);
+       VariableRenaming primeRename = new VariableRenaming(symbols);
+       primeRename.map(symbols.getPrime(stateVariableId), stateVariableId);
+       value = primeRename.apply(value);
        resultingState.put(stateVariable, value);
     }
     return resultingState;
   }
 
-  private static NameMap createRenamingMap(
+  private static VariableRenaming createRenamingMap(SymbolTable symbols,
           Set<Variable<?>> stateVariables,
           Collection<Variable<?>> parameters, long id) {
-    NameMap renamings = new NameMap();
+    VariableRenaming renamings = new VariableRenaming(symbols);
 
     //State Variable Renamings:
     for(Variable stateVariable: stateVariables){
-      String replacementName = stateVariable.getName() + "_sv_" + id;
-      renamings.mapNames(stateVariable.getName(), replacementName);
+      int variableId = symbols.getId(stateVariable);
+      renamings.map(variableId, symbols.getInStep(
+              variableId, SymbolTable.STATE_VARIABLE_SUFFIX, id));
     }
     //Parameter Renamings
     for(Variable parameter: parameters){
-      String replacementName = parameter.getName() + "_p_" + id;
-      renamings.mapNames(parameter.getName(), replacementName);
+      int parameterId = symbols.getId(parameter);
+      renamings.map(parameterId, symbols.getInStep(
+              parameterId, SymbolTable.PARAMETER_SUFFIX, id));
     }
     return renamings;
   }
@@ -1,15 +1,15 @@
 package gov.nasa.jstateexplorer.newTransitionSystem.helper;
 
+import gov.nasa.jstateexplorer.SearchSession;
+
 /**
- *
+ * The ids are unique within the current search session.
  * @author mmuesly
  */
 public class TransitionIDGenerator {
-  private static long ID = 0;
   
-  public  static synchronized long getNext() {
-    ID++;
-    return ID;
+  public static long getNext() {
+    return SearchSession.current().nextTransitionId();
   }
   
 }
@@ -2,7 +2,7 @@ package gov.nasa.jstateexplorer.newTransitionSystem.helper;
 
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Variable;
-import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
 import java.util.Collection;
 
 /**
@@ -26,8 +26,7 @@ public class TransitionLabelHelper {
   
   public static boolean containsAnyVar(Collection<Variable<?>> toBeFound,
           Expression universe) {
-    Collection<Variable<?>> varsInExpression = 
-            ExpressionUtil.freeVariables(universe);
-    return TransitionLabelHelper.containsAnyVar(toBeFound, varsInExpression);
+    return ExpressionMetadata.getInstance()
+            .containsAnyFree(toBeFound, universe);
   }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Enumerates all solutions of a formula projected on a set of variables.
+ * The formula is asserted once in a solver context. After each model a
+ * blocking clause excluding the projected model is added to the context,
+ * so the solver keeps what it learned between the calls. The solutions
+ * are returned in batches and the enumeration stops after a limit.
+ * close() removes the formula and the blocking clauses from the context
+ * again, so the context can be reused for the next formula.
+ */
+public class AllSolutionsEnumerator {
+
+  private final SolverContext ctx;
+  private final Set<Variable<?>> projection;
+  private final int limit;
+  private int found = 0;
+  private boolean exhausted = false;
+  private boolean closed = false;
+
+  public AllSolutionsEnumerator(SolverContext ctx, Expression<Boolean> formula,
+          Collection<? extends Variable<?>> projection, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException(
+              "The solution limit must be positive, but is: " + limit);
+    }
+    this.ctx = ctx;
+    this.projection = new HashSet<>(projection);
+    this.limit = limit;
+    ctx.push();
+    ctx.add(formula);
+  }
+
+  public boolean hasNext() {
+    return !closed && !exhausted && found < limit;
+  }
+
+  /**
+   * True, if the enumeration stopped at the limit and there might be
+   * more solutions.
+   */
+  public boolean isLimitReached() {
+    return !exhausted && found >= limit;
+  }
+
+  public int getSolutionCount() {
+    return found;
+  }
+
+  /**
+   * Returns up to batchSize further solutions. The batch is empty,
+   * if there are no more solutions or the limit is reached.
+   */
+  public List<Valuation> nextBatch(int batchSize) {
+    List<Valuation> batch = new ArrayList<>();
+    while (hasNext() && batch.size() < batchSize) {
+      Valuation model = new Valuation();
+      Result res = ctx.solve(model);
+      if (res == Result.UNSAT) {
+        exhausted = true;
+      } else if (res == Result.SAT) {
+        Valuation projected = project(model);
+        batch.add(projected);
+        ++found;
+        Expression<Boolean> blockingClause = blockingClause(projected);
+        if (blockingClause == null) {
+          //Nothing to block: the projection has a single solution.
+          exhausted = true;
+        } else {
+          ctx.add(blockingClause);
+        }
+      } else {
+        throw new IllegalStateException(
+                "Cannot enumerate the solutions, the solver returned: " + res);
+      }
+    }
+    return batch;
+  }
+
+  public void close() {
+    if (!closed) {
+      ctx.pop();
+      closed = true;
+    }
+  }
+
+  private Valuation project(Valuation model) {
+    Valuation projected = new Valuation();
+    for (ValuationEntry entry : model) {
+      if (projection.contains(entry.getVariable())) {
+        projected.addEntry(entry);
+      }
+    }
+    return projected;
+  }
+
+  private static Expression<Boolean> blockingClause(Valuation solution) {
+    ExpressionFactory factory = ExpressionFactory.getInstance();
+    Expression<Boolean> clause = null;
+    for (ValuationEntry entry : solution) {
+      Variable var = entry.getVariable();
+      Expression<Boolean> differs;
+      if (var.getType() instanceof BuiltinTypes.BoolType) {
+        differs = Boolean.TRUE.equals(entry.getValue())
+                ? factory.negation(var) : var;
+      } else {
+        Constant value = factory.constant(var.getType(), entry.getValue());
+        differs = factory.numericBoolean(var, NumericComparator.NE, value);
+      }
+      clause = clause == null ? differs : factory.or(clause, differs);
+    }
+    return clause;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jstateexplorer.solver.SolverResultCache.CachedResult;
+
+/**
+ * Decorates a ConstraintSolver with a SolverResultCache.
+ * Queries are canonicalized first, so alpha equivalent queries, that only
+ * differ in the generated variable names or the conjunct order, are
+ * answered from the cache. DONT_KNOW results are never cached.
+ * Solver contexts are not cached and are created by the decorated solver.
+ */
+public class CachingConstraintSolver extends ConstraintSolver {
+
+  private final ConstraintSolver solver;
+  private final SolverResultCache cache;
+
+  public CachingConstraintSolver(ConstraintSolver solver, int cacheSize) {
+    this(solver, new SolverResultCache(cacheSize));
+  }
+
+  public CachingConstraintSolver(ConstraintSolver solver,
+          SolverResultCache cache) {
+    this.solver = solver;
+    this.cache = cache;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> query, Valuation result) {
+    CanonicalQuery canonicalQuery = CanonicalQuery.create(query);
+    CachedResult cached = cache.lookup(canonicalQuery, result != null);
+    if (cached != null) {
+      if (result != null && cached.getResult() == Result.SAT) {
+        canonicalQuery.fillValuation(cached.getModel(), result);
+      }
+      return cached.getResult();
+    }
+    Result res = result == null
+            ? solver.isSatisfiable(query) : solver.solve(query, result);
+    if (res != Result.DONT_KNOW) {
+      cache.store(canonicalQuery, res,
+              res == Result.SAT && result != null
+                      ? canonicalQuery.toCanonicalModel(result) : null);
+    }
+    return res;
+  }
+
+  @Override
+  public Result isSatisfiable(Expression<Boolean> query) {
+    return solve(query, null);
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return solver.createContext();
+  }
+
+  public SolverResultCache getCache() {
+    return cache;
+  }
+
+  public ConstraintSolver getDecoratedSolver() {
+    return solver;
+  }
+}
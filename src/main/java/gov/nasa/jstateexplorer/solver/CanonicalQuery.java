@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The canonical form of a solver query.
+ * The query is split into its top level conjuncts. The variable names
+ * generated during the search (uVarReplacement_N, x_sv_N and x_p_N) are
+ * replaced by canonical names and the conjuncts are sorted.
+ * So queries, that only differ in the generated names or the conjunct order,
+ * share the same key. The key also contains the types of all variables.
+ */
+public class CanonicalQuery {
+
+  private static final Pattern GENERATED_NAME = Pattern.compile(
+          "\\b(?:uVarReplacement_\\d+|\\w+_(?:sv|p)_\\d+)\\b");
+  //'#' is not part of any identifier, so the canonical names cannot clash
+  //with the names used in the transition system.
+  private static final String CANONICAL_PREFIX = "#g";
+
+  private final String key;
+  private final List<Expression<Boolean>> conjuncts;
+  private final List<String> conjunctKeys;
+  private final String[] keysOfConjuncts;
+  private final Map<String, String> canonicalNames;
+  private final Map<String, Variable<?>> freeVariables;
+
+  private CanonicalQuery(Expression<Boolean> query) {
+    Map<String, Variable<?>> allVariables = new HashMap<>();
+    collectVariables(query, allVariables);
+
+    conjuncts = new ArrayList<>();
+    flattenConjunction(query, conjuncts);
+    canonicalNames = new HashMap<>();
+    keysOfConjuncts = canonicalizeConjuncts(conjuncts, canonicalNames,
+            allVariables);
+    conjunctKeys = new ArrayList<>(
+            new TreeSet<>(Arrays.asList(keysOfConjuncts)));
+
+    freeVariables = new HashMap<>();
+    for (Variable<?> var : ExpressionUtil.freeVariables(query)) {
+      freeVariables.put(toCanonicalName(var.getName()), var);
+    }
+
+    TreeMap<String, String> types = new TreeMap<>();
+    for (Variable<?> var : allVariables.values()) {
+      types.put(toCanonicalName(var.getName()), var.getType().getName());
+    }
+    key = String.join(" && ", conjunctKeys) + " | " + types;
+  }
+
+  public static CanonicalQuery create(Expression<Boolean> query) {
+    return new CanonicalQuery(query);
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public List<Expression<Boolean>> getConjuncts() {
+    return Collections.unmodifiableList(conjuncts);
+  }
+
+  /**
+   * The canonical conjuncts, sorted and free of duplicates.
+   * Equal conjunct keys of two queries denote the same conjunct up to a
+   * consistent renaming of the generated variables.
+   */
+  public List<String> getConjunctKeys() {
+    return Collections.unmodifiableList(conjunctKeys);
+  }
+
+  /**
+   * The canonical key of the conjunct at the index in getConjuncts().
+   */
+  public String getConjunctKey(int index) {
+    return keysOfConjuncts[index];
+  }
+
+  public String toCanonicalName(String name) {
+    return canonicalNames.getOrDefault(name, name);
+  }
+
+  /**
+   * Converts a model of this query into a model over the canonical names.
+   */
+  public Map<String, Object> toCanonicalModel(Valuation model) {
+    Map<String, Object> canonicalModel = new HashMap<>();
+    for (ValuationEntry<?> entry : model) {
+      String name = toCanonicalName(entry.getVariable().getName());
+      if (freeVariables.containsKey(name)) {
+        canonicalModel.put(name, entry.getValue());
+      }
+    }
+    return canonicalModel;
+  }
+
+  /**
+   * Adds a model over the canonical names to the valuation using
+   * the variables of this query.
+   */
+  public void fillValuation(Map<String, Object> canonicalModel,
+          Valuation result) {
+    for (Map.Entry<String, Object> entry : canonicalModel.entrySet()) {
+      Variable var = freeVariables.get(entry.getKey());
+      if (var != null) {
+        result.addEntry(new ValuationEntry(var, entry.getValue()));
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CanonicalQuery)) {
+      return false;
+    }
+    return key.equals(((CanonicalQuery) obj).key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+
+  static void flattenConjunction(Expression<Boolean> expr,
+          List<Expression<Boolean>> result) {
+    if (expr instanceof PropositionalCompound
+            && ((PropositionalCompound) expr).getOperator()
+            == LogicalOperator.AND) {
+      PropositionalCompound compound = (PropositionalCompound) expr;
+      flattenConjunction(compound.getLeft(), result);
+      flattenConjunction(compound.getRight(), result);
+    } else {
+      result.add(expr);
+    }
+  }
+
+  private static String[] canonicalizeConjuncts(
+          List<Expression<Boolean>> conjuncts,
+          Map<String, String> canonicalNames,
+          Map<String, Variable<?>> variables) {
+    List<String> printed = new ArrayList<>();
+    List<String> shapes = new ArrayList<>();
+    List<Integer> order = new ArrayList<>();
+    for (Expression<Boolean> conjunct : conjuncts) {
+      String conjunctString = conjunct.toString();
+      order.add(printed.size());
+      printed.add(conjunctString);
+      shapes.add(GENERATED_NAME.matcher(conjunctString).replaceAll("#"));
+    }
+    //The generated names are numbered in the order of their first
+    //occurrence. Sorting by the shape first makes this order independent
+    //of the generated names themselves. The shape of a conjunct is refined
+    //by the places, where its generated names occur in the other conjuncts.
+    //Conjuncts of the same refined shape are ordered by their renamed form:
+    //The smallest one under the names assigned so far is renamed next.
+    refineShapes(printed, shapes);
+    order.sort((a, b) -> shapes.get(a).compareTo(shapes.get(b)));
+    String[] result = new String[conjuncts.size()];
+    int groupStart = 0;
+    while (groupStart < order.size()) {
+      int groupEnd = groupStart + 1;
+      while (groupEnd < order.size() && shapes.get(order.get(groupEnd))
+              .equals(shapes.get(order.get(groupStart)))) {
+        ++groupEnd;
+      }
+      List<Integer> pending
+              = new ArrayList<>(order.subList(groupStart, groupEnd));
+      while (!pending.isEmpty()) {
+        int next = 0;
+        String nextRenamed = null;
+        for (int i = 0; i < pending.size(); i++) {
+          String renamed = rename(printed.get(pending.get(i)),
+                  new HashMap<>(canonicalNames), variables);
+          if (nextRenamed == null || renamed.compareTo(nextRenamed) < 0) {
+            next = i;
+            nextRenamed = renamed;
+          }
+        }
+        int index = pending.remove(next);
+        result[index] = rename(printed.get(index), canonicalNames, variables);
+      }
+      groupStart = groupEnd;
+    }
+    return result;
+  }
+
+  /**
+   * Replaces the generated names in each shape by the sorted list of the
+   * shapes and positions, at which the name occurs in all conjuncts.
+   */
+  private static void refineShapes(List<String> printed,
+          List<String> shapes) {
+    Map<String, List<String>> occurrences = new HashMap<>();
+    for (int i = 0; i < printed.size(); i++) {
+      Matcher matcher = GENERATED_NAME.matcher(printed.get(i));
+      for (int position = 0; matcher.find(); position++) {
+        occurrences.computeIfAbsent(matcher.group(),
+                name -> new ArrayList<>())
+                .add(shapes.get(i) + "@" + position);
+      }
+    }
+    Map<String, String> signatures = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : occurrences.entrySet()) {
+      Collections.sort(entry.getValue());
+      signatures.put(entry.getKey(),
+              "#[" + String.join(",", entry.getValue()) + "]");
+    }
+    for (int i = 0; i < printed.size(); i++) {
+      Matcher matcher = GENERATED_NAME.matcher(printed.get(i));
+      StringBuffer refined = new StringBuffer();
+      while (matcher.find()) {
+        matcher.appendReplacement(refined,
+                Matcher.quoteReplacement(signatures.get(matcher.group())));
+      }
+      matcher.appendTail(refined);
+      shapes.set(i, refined.toString());
+    }
+  }
+
+  /**
+   * Replaces the generated names in the printed conjunct. Names without
+   * a canonical name yet are numbered in the order of their occurrence
+   * and added to the canonical names.
+   */
+  private static String rename(String printed,
+          Map<String, String> canonicalNames,
+          Map<String, Variable<?>> variables) {
+    Matcher matcher = GENERATED_NAME.matcher(printed);
+    StringBuffer canonical = new StringBuffer();
+    while (matcher.find()) {
+      String name = matcher.group();
+      String canonicalName = canonicalNames.get(name);
+      if (canonicalName == null) {
+        //The type is part of the canonical name, so each canonical
+        //conjunct is well typed on its own.
+        Variable<?> var = variables.get(name);
+        canonicalName = CANONICAL_PREFIX + canonicalNames.size()
+                + (var != null ? ":" + var.getType().getName() : "");
+        canonicalNames.put(name, canonicalName);
+      }
+      matcher.appendReplacement(canonical,
+              Matcher.quoteReplacement(canonicalName));
+    }
+    matcher.appendTail(canonical);
+    return canonical.toString();
+  }
+
+  private static void collectVariables(Expression<?> expr,
+          Map<String, Variable<?>> variables) {
+    if (expr instanceof Variable) {
+      Variable<?> var = (Variable<?>) expr;
+      variables.putIfAbsent(var.getName(), var);
+      return;
+    }
+    if (expr instanceof QuantifierExpression) {
+      for (Variable<?> var
+              : ((QuantifierExpression) expr).getBoundVariables()) {
+        variables.putIfAbsent(var.getName(), var);
+      }
+    }
+    for (Expression<?> child : expr.getChildren()) {
+      collectVariables(child, variables);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Keeps the most recent models returned by the solver.
+ * A query is satisfied by a cached model, if the model assigns all free
+ * variables of the query and the query evaluates to true under it.
+ * This is the counterexample cache known from KLEE and Green.
+ * The models are evaluated outside of the lock of the cache, so parallel
+ * searches only synchronize on the lookup of the candidates.
+ */
+public class ModelCache {
+
+  private final int maxSize;
+  private final LinkedList<Valuation> models;
+  private long hits = 0;
+  private long misses = 0;
+
+  public ModelCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException(
+              "The model cache size must be positive, but is: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.models = new LinkedList<>();
+  }
+
+  /**
+   * Returns a cached model satisfying the query or null.
+   * The model in use is moved to the front of the cache.
+   */
+  public Valuation findModel(Expression<Boolean> query) {
+    if (!containsQuantifier(query)) {
+      Set<Variable<?>> variables
+              = ExpressionMetadata.getInstance().freeVariables(query);
+      Valuation[] candidates;
+      synchronized (this) {
+        candidates = models.toArray(new Valuation[models.size()]);
+      }
+      for (Valuation model : candidates) {
+        if (satisfies(model, query, variables)) {
+          synchronized (this) {
+            //Another thread might have evicted the model meanwhile.
+            if (models.remove(model)) {
+              models.addFirst(model);
+            }
+            ++hits;
+          }
+          return model;
+        }
+      }
+    }
+    synchronized (this) {
+      ++misses;
+    }
+    return null;
+  }
+
+  public synchronized void addModel(Valuation model) {
+    models.addFirst(model);
+    if (models.size() > maxSize) {
+      models.removeLast();
+    }
+  }
+
+  /**
+   * Copies the values of the query variables from the model to the result.
+   * Variables without a value in the model are skipped.
+   */
+  public static void copyModel(Valuation model, Expression<Boolean> query,
+          Valuation result) {
+    for (Variable var
+            : ExpressionMetadata.getInstance().freeVariables(query)) {
+      if (model.containsValueFor(var)) {
+        result.addEntry(new ValuationEntry(var, model.getValue(var)));
+      }
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return models.size();
+  }
+
+  public synchronized void clear() {
+    models.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  public synchronized String getStatistics() {
+    long lookups = hits + misses;
+    long rate = lookups == 0 ? 0 : (hits * 100) / lookups;
+    return "model cache: " + hits + " hits, " + misses + " misses ("
+            + rate + "% hit rate), " + models.size() + "/" + maxSize
+            + " models";
+  }
+
+  private boolean satisfies(Valuation model, Expression<Boolean> query,
+          Set<Variable<?>> variables) {
+    for (Variable<?> var : variables) {
+      if (!model.containsValueFor(var)) {
+        return false;
+      }
+    }
+    try {
+      return Boolean.TRUE.equals(query.evaluate(model));
+    } catch (RuntimeException e) {
+      //Some expressions cannot be evaluated concretely.
+      //The solver has to decide them.
+      return false;
+    }
+  }
+
+  private static boolean containsQuantifier(Expression<?> expr) {
+    if (expr instanceof QuantifierExpression) {
+      return true;
+    }
+    for (Expression<?> child : expr.getChildren()) {
+      if (containsQuantifier(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+
+/**
+ * Decorates a ConstraintSolver with a ModelCache.
+ * A query is first evaluated against the cached models. The solver is
+ * only called, if none of them satisfies the query. In this case a model
+ * is requested from the solver even for a plain satisfiability check,
+ * so it can be reused later.
+ */
+public class ModelReusingConstraintSolver extends ConstraintSolver {
+
+  private final ConstraintSolver solver;
+  private final ModelCache cache;
+
+  public ModelReusingConstraintSolver(ConstraintSolver solver,
+          int cacheSize) {
+    this(solver, new ModelCache(cacheSize));
+  }
+
+  public ModelReusingConstraintSolver(ConstraintSolver solver,
+          ModelCache cache) {
+    this.solver = solver;
+    this.cache = cache;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> query, Valuation result) {
+    Valuation model = cache.findModel(query);
+    if (model != null) {
+      if (result != null) {
+        ModelCache.copyModel(model, query, result);
+      }
+      return Result.SAT;
+    }
+    Valuation newModel = new Valuation();
+    Result res = solver.solve(query, newModel);
+    if (res == Result.SAT) {
+      cache.addModel(newModel);
+      if (result != null) {
+        ModelCache.copyModel(newModel, query, result);
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public Result isSatisfiable(Expression<Boolean> query) {
+    return solve(query, null);
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return solver.createContext();
+  }
+
+  public ModelCache getCache() {
+    return cache;
+  }
+
+  public ConstraintSolver getDecoratedSolver() {
+    return solver;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a query into independent parts before solving it.
+ * The top level conjuncts are partitioned into components connected by
+ * shared free variables. The query is satisfiable, iff each component is
+ * satisfiable, and a model of the query is the union of the component
+ * models. Each component is solved separately by the decorated solver.
+ * Decorating a CachingConstraintSolver, the components of the state
+ * formula, that are not touched by a guard, are answered from the cache.
+ */
+public class SlicingConstraintSolver extends ConstraintSolver {
+
+  private final ConstraintSolver solver;
+
+  public SlicingConstraintSolver(ConstraintSolver solver) {
+    this.solver = solver;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> query, Valuation result) {
+    List<List<Expression<Boolean>>> components = sliceQuery(query);
+    if (components.size() <= 1) {
+      return result == null
+              ? solver.isSatisfiable(query) : solver.solve(query, result);
+    }
+    //Small components are cheap to solve and are checked first.
+    components.sort((a, b) -> Integer.compare(a.size(), b.size()));
+    Result res = Result.SAT;
+    for (List<Expression<Boolean>> component : components) {
+      Expression<Boolean> part = ExpressionUtil.and(component);
+      Result partResult;
+      if (result == null) {
+        partResult = solver.isSatisfiable(part);
+      } else {
+        Valuation partModel = new Valuation();
+        partResult = solver.solve(part, partModel);
+        if (partResult == Result.SAT) {
+          for (ValuationEntry<?> entry : partModel) {
+            result.addEntry(entry);
+          }
+        }
+      }
+      if (partResult == Result.UNSAT) {
+        return Result.UNSAT;
+      }
+      if (partResult == Result.DONT_KNOW) {
+        res = Result.DONT_KNOW;
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public Result isSatisfiable(Expression<Boolean> query) {
+    return solve(query, null);
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return solver.createContext();
+  }
+
+  public ConstraintSolver getDecoratedSolver() {
+    return solver;
+  }
+
+  /**
+   * Partitions the conjuncts of the query into components connected by
+   * shared free variables. Conjuncts without free variables form
+   * a component of their own.
+   */
+  public static List<List<Expression<Boolean>>> sliceQuery(
+          Expression<Boolean> query) {
+    List<Expression<Boolean>> conjuncts = new ArrayList<>();
+    CanonicalQuery.flattenConjunction(query, conjuncts);
+    int[] parent = new int[conjuncts.size()];
+    Map<String, Integer> owner = new HashMap<>();
+    for (int i = 0; i < conjuncts.size(); i++) {
+      parent[i] = i;
+      for (Variable<?> var
+              : ExpressionUtil.freeVariables(conjuncts.get(i))) {
+        Integer other = owner.putIfAbsent(var.getName(), i);
+        if (other != null) {
+          union(parent, i, other);
+        }
+      }
+    }
+    Map<Integer, List<Expression<Boolean>>> components
+            = new LinkedHashMap<>();
+    for (int i = 0; i < conjuncts.size(); i++) {
+      components.computeIfAbsent(find(parent, i), k -> new ArrayList<>())
+              .add(conjuncts.get(i));
+    }
+    return new ArrayList<>(components.values());
+  }
+
+  private static int find(int[] parent, int element) {
+    while (parent[element] != element) {
+      parent[element] = parent[parent[element]];
+      element = parent[element];
+    }
+    return element;
+  }
+
+  private static void union(int[] parent, int first, int second) {
+    int firstRoot = find(parent, first);
+    int secondRoot = find(parent, second);
+    if (firstRoot != secondRoot) {
+      parent[Math.max(firstRoot, secondRoot)]
+              = Math.min(firstRoot, secondRoot);
+    }
+  }
+}
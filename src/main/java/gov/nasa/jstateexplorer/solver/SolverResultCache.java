@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache for solver results keyed by canonical queries.
+ * SAT results might carry a model over the canonical names.
+ * The cache might be shared between several CachingConstraintSolvers,
+ * e.g. between the worker solvers of a parallel search.
+ */
+public class SolverResultCache {
+
+  private final int maxSize;
+  private final LinkedHashMap<String, CachedResult> entries;
+  private long hits = 0;
+  private long misses = 0;
+
+  public SolverResultCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException(
+              "The cache size must be positive, but is: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+              Map.Entry<String, CachedResult> eldest) {
+        return size() > SolverResultCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached result or null. A SAT result without a model does
+   * not answer a query asking for a model.
+   */
+  public synchronized CachedResult lookup(CanonicalQuery query,
+          boolean needsModel) {
+    CachedResult cached = entries.get(query.getKey());
+    if (cached == null || (needsModel && cached.getResult() == Result.SAT
+            && cached.getModel() == null)) {
+      ++misses;
+      return null;
+    }
+    ++hits;
+    return cached;
+  }
+
+  public synchronized void store(CanonicalQuery query, Result result,
+          Map<String, Object> model) {
+    entries.put(query.getKey(), new CachedResult(result, model));
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  public synchronized String getStatistics() {
+    long lookups = hits + misses;
+    long rate = lookups == 0 ? 0 : (hits * 100) / lookups;
+    return "solver cache: " + hits + " hits, " + misses + " misses ("
+            + rate + "% hit rate), " + entries.size() + "/" + maxSize
+            + " entries";
+  }
+
+  public static class CachedResult {
+
+    private final Result result;
+    private final Map<String, Object> model;
+
+    CachedResult(Result result, Map<String, Object> model) {
+      this.result = result;
+      this.model = model;
+    }
+
+    public Result getResult() {
+      return result;
+    }
+
+    public Map<String, Object> getModel() {
+      return model;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Stores sets of canonical conjuncts, that are known to be unsatisfiable.
+ * A query is unsatisfiable, if its conjuncts contain one of those sets.
+ * The cores are indexed by their first conjunct key, so a lookup only
+ * checks the cores sharing a conjunct with the query.
+ * The least recently used cores are evicted first.
+ */
+public class UnsatCoreCache {
+
+  private final int maxSize;
+  private final LinkedHashMap<SortedSet<String>, Boolean> cores;
+  private final Map<String, List<SortedSet<String>>> index;
+  private long hits = 0;
+  private long misses = 0;
+
+  public UnsatCoreCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException(
+              "The core cache size must be positive, but is: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.index = new HashMap<>();
+    this.cores = new LinkedHashMap<SortedSet<String>, Boolean>(16, 0.75f,
+            true) {
+      @Override
+      protected boolean removeEldestEntry(
+              Map.Entry<SortedSet<String>, Boolean> eldest) {
+        if (size() > UnsatCoreCache.this.maxSize) {
+          removeFromIndex(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Checks, whether the conjuncts contain a known unsatisfiable core.
+   */
+  public synchronized boolean isSubsumed(Collection<String> conjunctKeys) {
+    Set<String> keys = conjunctKeys instanceof Set
+            ? (Set<String>) conjunctKeys : new HashSet<>(conjunctKeys);
+    for (String key : keys) {
+      List<SortedSet<String>> candidates = index.get(key);
+      if (candidates == null) {
+        continue;
+      }
+      for (SortedSet<String> core : candidates) {
+        if (keys.containsAll(core)) {
+          cores.get(core);
+          ++hits;
+          return true;
+        }
+      }
+    }
+    ++misses;
+    return false;
+  }
+
+  public synchronized void addCore(SortedSet<String> core) {
+    if (core.isEmpty() || cores.containsKey(core)) {
+      return;
+    }
+    index.computeIfAbsent(core.first(), k -> new ArrayList<>()).add(core);
+    cores.put(core, Boolean.TRUE);
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return cores.size();
+  }
+
+  public synchronized void clear() {
+    cores.clear();
+    index.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  public synchronized String getStatistics() {
+    long lookups = hits + misses;
+    long rate = lookups == 0 ? 0 : (hits * 100) / lookups;
+    return "unsat core cache: " + hits + " hits, " + misses + " misses ("
+            + rate + "% hit rate), " + cores.size() + "/" + maxSize
+            + " cores";
+  }
+
+  private void removeFromIndex(SortedSet<String> core) {
+    List<SortedSet<String>> candidates = index.get(core.first());
+    if (candidates != null) {
+      candidates.remove(core);
+      if (candidates.isEmpty()) {
+        index.remove(core.first());
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Decorates a ConstraintSolver with an UnsatCoreCache.
+ * Queries containing a known unsatisfiable core are answered UNSAT
+ * without a solver call. After an UNSAT result the conjuncts of the query
+ * are minimized by deletion: a conjunct is dropped, if the remaining
+ * conjuncts are still unsatisfiable. The minimization stops after the
+ * given amount of solver calls. The remaining conjuncts are unsatisfiable
+ * anyhow and are stored as core.
+ */
+public class UnsatCoreConstraintSolver extends ConstraintSolver {
+
+  private final ConstraintSolver solver;
+  private final UnsatCoreCache cache;
+  private final int minimizationBudget;
+
+  public UnsatCoreConstraintSolver(ConstraintSolver solver,
+          UnsatCoreCache cache, int minimizationBudget) {
+    this.solver = solver;
+    this.cache = cache;
+    this.minimizationBudget = minimizationBudget;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> query, Valuation result) {
+    CanonicalQuery canonicalQuery = CanonicalQuery.create(query);
+    if (cache.isSubsumed(canonicalQuery.getConjunctKeys())) {
+      return Result.UNSAT;
+    }
+    Result res = result == null
+            ? solver.isSatisfiable(query) : solver.solve(query, result);
+    if (res == Result.UNSAT) {
+      cache.addCore(minimizeCore(canonicalQuery));
+    }
+    return res;
+  }
+
+  @Override
+  public Result isSatisfiable(Expression<Boolean> query) {
+    return solve(query, null);
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return solver.createContext();
+  }
+
+  public UnsatCoreCache getCache() {
+    return cache;
+  }
+
+  public ConstraintSolver getDecoratedSolver() {
+    return solver;
+  }
+
+  private SortedSet<String> minimizeCore(CanonicalQuery query) {
+    List<Expression<Boolean>> conjuncts = query.getConjuncts();
+    List<Integer> core = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < conjuncts.size(); i++) {
+      if (seen.add(query.getConjunctKey(i))) {
+        core.add(i);
+      }
+    }
+    int budget = minimizationBudget;
+    int position = 0;
+    while (position < core.size() && core.size() > 1 && budget > 0) {
+      List<Expression<Boolean>> candidate = new ArrayList<>();
+      for (int i = 0; i < core.size(); i++) {
+        if (i != position) {
+          candidate.add(conjuncts.get(core.get(i)));
+        }
+      }
+      --budget;
+      if (solver.isSatisfiable(ExpressionUtil.and(candidate))
+              == Result.UNSAT) {
+        core.remove(position);
+      } else {
+        ++position;
+      }
+    }
+    SortedSet<String> coreKeys = new TreeSet<>();
+    for (int index : core) {
+      coreKeys.add(query.getConjunctKey(index));
+    }
+    return coreKeys;
+  }
+}
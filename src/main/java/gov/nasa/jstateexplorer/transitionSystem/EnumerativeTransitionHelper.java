@@ -17,6 +17,7 @@ package gov.nasa.jstateexplorer.transitionSystem;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.api.Variable;
@@ -25,12 +26,59 @@ import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
 import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
 import gov.nasa.jstateexplorer.datastructures.searchImage.SearchIterationImage;
 import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.solver.AllSolutionsEnumerator;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
 import gov.nasa.jstateexplorer.util.HelperMethods;
+import gov.nasa.jstateexplorer.util.SearchProfiler;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class EnumerativeTransitionHelper extends TransitionHelper {
 
+  private static final int ENUMERATION_BATCH_SIZE = 64;
+
+  private int successorLimit = 0;
+  private boolean fusedGuardCheck = false;
+  private SolverContext enumerationContext;
+
+  /**
+   * If the limit is positive, all successors of a state are enumerated
+   * up to the limit. Otherwise the solver picks a single successor.
+   */
+  public void setSuccessorLimit(int successorLimit) {
+    this.successorLimit = successorLimit;
+  }
+
+  public int getSuccessorLimit() {
+    return successorLimit;
+  }
+
+  /**
+   * If set, the guard check and the successor computation of a state
+   * are done by one solver call.
+   */
+  public void setFusedGuardCheck(boolean fusedGuardCheck) {
+    this.fusedGuardCheck = fusedGuardCheck;
+  }
+
+  public boolean isFusedGuardCheck() {
+    return fusedGuardCheck;
+  }
+
+  /**
+   * Releases the solver context used to enumerate the successors.
+   */
+  public void dispose() {
+    if (enumerationContext != null) {
+      enumerationContext.dispose();
+      enumerationContext = null;
+    }
+  }
+
   @Override
   public SearchIterationImage applyOkTransition(SearchIterationImage image, Transition transition) {
     if (image instanceof EnumerativeImage) {
@@ -40,10 +88,19 @@ public class EnumerativeTransitionHelper extends TransitionHelper {
       for (EnumerativeState state
               : currentSearchStatus.getPreviousNewStates().values()) {
         System.out.println("gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper.applyOkTransition()");
-        System.out.println("state: " + state.getHistoryAsString());
-        if (satisfiesGuardCondition(state, transition, depth)) {
+        logger.finest(() -> "state: " + state.getHistoryAsString());
+        List<EnumerativeState> successors;
+        if (fusedGuardCheck) {
+          successors = executeEnabledTransition(transition, state, depth);
+        } else if (satisfiesGuardCondition(state, transition, depth)) {
+          successors = executeTransition(transition, state);
+        } else {
+          successors = Collections.emptyList();
+        }
+        if (!successors.isEmpty()) {
           transition.setReached(true);
-          EnumerativeState newState = executeTransition(transition, state);
+        }
+        for (EnumerativeState newState : successors) {
           newRegion.put(HelperMethods.getUniqueStateName(), newState);
         }
       }
@@ -53,20 +110,85 @@ public class EnumerativeTransitionHelper extends TransitionHelper {
     return null;
   }
 
-  private EnumerativeState executeTransition(Transition transition,
+  /**
+   * Computes the successors of a single state, e.g. for a state the
+   * compiled search cannot evaluate. Returns null, if the transition is
+   * not enabled. Error transitions have no successors. The successors
+   * assign the primed state variables.
+   */
+  public List<EnumerativeState> computeSuccessors(Transition transition,
+          EnumerativeState state) {
+    if (transition.getGuard() != null
+            && !isGuardSatisfiable(state, transition)) {
+      return null;
+    }
+    if (!transition.isOk()) {
+      return Collections.emptyList();
+    }
+    return executeTransition(transition, state);
+  }
+
+  private List<EnumerativeState> executeTransition(Transition transition,
+          EnumerativeState state) {
+    EnumerativeState successor = evaluateTransition(transition, state);
+    if (successor != null) {
+      return Collections.singletonList(successor);
+    }
+    List<EnumerativeState> successors = solveSuccessors(transition, state);
+    if (successors.isEmpty()) {
+      throw new IllegalStateException("Solver could not SAT state result.");
+    }
+    return successors;
+  }
+
+  /**
+   * Checks the guard and computes the successors with a single solver call
+   * per state and transition. The guard is part of the transition
+   * expression, so an unsatisfiable query means the transition is not
+   * enabled. Returns no successors in this case.
+   */
+  private List<EnumerativeState> executeEnabledTransition(
+          Transition transition, EnumerativeState state, int depth) {
+    Valuation concrete = state.getConcreteValuation();
+    Object enabled = transition.getGuard() == null ? Boolean.TRUE
+            : evaluateConcrete(transition.getGuard(),
+                    transition.getGuardVariables(), concrete);
+    if (enabled != null) {
+      return (Boolean) enabled
+              ? executeTransition(transition, state)
+              : Collections.<EnumerativeState>emptyList();
+    }
+    SearchProfiler.startGuardProfiler(depth);
+    try {
+      return solveSuccessors(transition, state);
+    } finally {
+      SearchProfiler.stopGuardProfiler(depth);
+    }
+  }
+
+  /**
+   * Solves state and transition expression for the successors.
+   * Returns no successors, if the query is unsatisfiable.
+   */
+  private List<EnumerativeState> solveSuccessors(Transition transition,
           EnumerativeState state) {
     Expression resultingExpression = state.toExpression();
-    Set primeVariablesForStateVars = createFilterVariabel(resultingExpression);
+    Set<Variable<?>> primeVariablesForStateVars
+            = createFilterVariabel(resultingExpression);
     Expression transitionEffects
             = transition.convertToExpression();
-    resultingExpression
-            = ExpressionUtil.and(resultingExpression, transitionEffects);
+    resultingExpression = ExpressionFactory.getInstance()
+            .and(resultingExpression, transitionEffects);
     logger.info("gov.nasa.jpf.psyco.search.transitionSystem."
             + "EnumerativeTransitionHelper.executeTransition()");
     logger.info(resultingExpression.toString());
 
     System.out.println("gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper.executeTransition()");
     System.out.println(primeVariablesForStateVars);
+    if (successorLimit > 0) {
+      return enumerateSuccessors(transition, resultingExpression,
+              primeVariablesForStateVars);
+    }
     Valuation result = new Valuation();
     Result res = solver.solve(resultingExpression, result);
     logger.finest("Valuation: " + result.toString());
@@ -77,20 +199,81 @@ public class EnumerativeTransitionHelper extends TransitionHelper {
       }
     }
     if (res == Result.SAT) {
-      return new EnumerativeState(filtered);
+      return Collections.singletonList(new EnumerativeState(filtered));
+    } else if (res == Result.UNSAT) {
+      return Collections.emptyList();
     } else {
       throw new IllegalStateException("Solver could not SAT state result.");
     }
   }
 
-  private Set createFilterVariabel(Expression resultingExpression) {
+  /**
+   * Enumerates the successors with blocking clauses over the primed state
+   * variables. A successor differs from the others in at least one state
+   * variable, the values of the parameters are not distinguished.
+   */
+  private List<EnumerativeState> enumerateSuccessors(Transition transition,
+          Expression<Boolean> resultingExpression,
+          Set<Variable<?>> primeVariablesForStateVars) {
+    if (enumerationContext == null) {
+      enumerationContext = solver.createContext();
+    }
+    List<EnumerativeState> successors = new ArrayList<>();
+    AllSolutionsEnumerator enumerator = new AllSolutionsEnumerator(
+            enumerationContext, resultingExpression,
+            primeVariablesForStateVars, successorLimit);
+    try {
+      while (enumerator.hasNext()) {
+        for (Valuation successor
+                : enumerator.nextBatch(ENUMERATION_BATCH_SIZE)) {
+          successors.add(new EnumerativeState(successor));
+        }
+      }
+      if (enumerator.isLimitReached()) {
+        logger.warning("The successors of transition " + transition.getId()
+                + " are cut off after " + successorLimit + " states.");
+      }
+    } finally {
+      enumerator.close();
+    }
+    return successors;
+  }
+
+  /**
+   * Computes the successor of a concrete state by evaluating the effects.
+   * Each effect only needs its own variables to be assigned.
+   * Returns null, if an effect depends on a parameter or a state variable
+   * has no effect. Then the successor is not determined by the state
+   * and the solver has to pick one.
+   */
+  private EnumerativeState evaluateTransition(Transition transition,
+          EnumerativeState state) {
+    Valuation current = state.getConcreteValuation();
+    SymbolTable symbols = SymbolTable.getInstance();
+    EnumerativeState successor = new EnumerativeState();
+    for (ValuationEntry entry : state) {
+      Expression effect = transition.getEffect(entry.getVariable());
+      if (effect == null) {
+        return null;
+      }
+      Object value = evaluateConcrete(effect,
+              transition.getEffectVariables(entry.getVariable()), current);
+      if (value == null) {
+        return null;
+      }
+      successor.add(new ValuationEntry(
+              symbols.getPrimeVariable(entry.getVariable()), value));
+    }
+    return successor;
+  }
+
+  private Set<Variable<?>> createFilterVariabel(
+          Expression resultingExpression) {
     Set<Variable<?>> oldVariables = ExpressionUtil.freeVariables(resultingExpression);
     Set<Variable<?>> filterVariable = new HashSet();
+    SymbolTable symbols = SymbolTable.getInstance();
     for (Variable var: oldVariables){
-      String currentName = var.getName();
-      String newName = currentName + "'";
-      Variable filter = new Variable(var.getType(), newName);
-      filterVariable.add(filter);
+      filterVariable.add(symbols.getPrimeVariable(var));
     }
     return filterVariable;
   }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.transitionSystem;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jstateexplorer.SearchSession;
+import gov.nasa.jstateexplorer.datastructures.region.SymbolicRegion;
+import gov.nasa.jstateexplorer.datastructures.searchImage.SearchIterationImage;
+import gov.nasa.jstateexplorer.datastructures.searchImage.SymbolicImage;
+import gov.nasa.jstateexplorer.datastructures.state.SymbolicState;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.HelperMethods;
+import gov.nasa.jstateexplorer.util.SearchProfiler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+
+/**
+ * Spreads the guard checks and the successor construction of the
+ * symbolic post image over a ForkJoinPool.
+ * Each worker thread creates its own solver from the solver configuration.
+ * The successors are collected per state and named afterwards in the order
+ * of the previous new states, so the resulting region is named exactly as
+ * in the sequential run. The workers run within the search session of the
+ * calling thread.
+ * The guard time of a depth is the wall time of the parallel expansion,
+ * so it is comparable to the guard time of the sequential helper.
+ * shutdown() stops the workers and closes their solvers.
+ */
+public class ParallelSymbolicTransitionHelper extends SymbolicTransitionHelper {
+
+  private final ForkJoinPool pool;
+  private final ThreadLocal<ConstraintSolver> workerSolvers;
+  private final Queue<ConstraintSolver> createdSolvers;
+
+  public ParallelSymbolicTransitionHelper(Properties solverConfiguration,
+          int parallelism) {
+    this(solverConfiguration, parallelism, UnaryOperator.identity());
+  }
+
+  /**
+   * The decorator is applied to each worker solver, e.g. to share
+   * a solver cache between the workers.
+   */
+  public ParallelSymbolicTransitionHelper(Properties solverConfiguration,
+          int parallelism, UnaryOperator<ConstraintSolver> decorator) {
+    super();
+    this.pool = new ForkJoinPool(parallelism);
+    this.createdSolvers = new ConcurrentLinkedQueue<>();
+    this.workerSolvers = ThreadLocal.withInitial(() -> {
+      ConstraintSolver created
+              = ConstraintSolverFactory.createSolver(solverConfiguration);
+      ConstraintSolver decorated = decorator.apply(created);
+      createdSolvers.add(created);
+      if (decorated != created) {
+        createdSolvers.add(decorated);
+      }
+      return decorated;
+    });
+  }
+
+  @Override
+  public SearchIterationImage applyOkTransition(SearchIterationImage image,
+          Transition transition) {
+    if (image instanceof SymbolicImage) {
+      SymbolicImage currentState = (SymbolicImage) image;
+      int depth = currentState.getDepth();
+      List<SymbolicState> states = new ArrayList<>(
+              currentState.getPreviousNewStates().values());
+      SymbolicState[] successors = new SymbolicState[states.size()];
+      SearchSession session = SearchSession.current();
+      long start = System.currentTimeMillis();
+      pool.invoke(new SuccessorTask(session, states, successors, transition,
+              0, states.size()));
+      SearchProfiler.addGuardTime(depth, System.currentTimeMillis() - start);
+      SymbolicRegion newRegion = new SymbolicRegion();
+      for (SymbolicState successor : successors) {
+        if (successor != null) {
+          newRegion.put(HelperMethods.getUniqueStateName(), successor);
+        }
+      }
+      currentState.addNewStates(newRegion);
+      return currentState;
+    }
+    return null;
+  }
+
+  /**
+   * Stops the workers and closes the worker solvers, that are closeable.
+   */
+  public void shutdown() {
+    pool.shutdown();
+    try {
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    ConstraintSolver created;
+    while ((created = createdSolvers.poll()) != null) {
+      if (created instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) created).close();
+        } catch (Exception ex) {
+          logger.log(Level.WARNING, "Cannot close a worker solver", ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * The number of worker solvers created and not closed yet, including
+   * their decorators.
+   */
+  public int getOpenSolverCount() {
+    return createdSolvers.size();
+  }
+
+  private SymbolicState computeSuccessor(SymbolicState state,
+          Transition transition) {
+    solver.setSolverForCurrentThread(workerSolvers.get());
+    try {
+      boolean enabled = isGuardSatisfiable(state, transition);
+      return enabled ? executeTransition(state, transition) : null;
+    } finally {
+      solver.setSolverForCurrentThread(null);
+    }
+  }
+
+  private class SuccessorTask extends RecursiveAction {
+
+    private final SearchSession session;
+    private final List<SymbolicState> states;
+    private final SymbolicState[] successors;
+    private final Transition transition;
+    private final int from, to;
+
+    SuccessorTask(SearchSession session, List<SymbolicState> states,
+            SymbolicState[] successors, Transition transition,
+            int from, int to) {
+      this.session = session;
+      this.states = states;
+      this.successors = successors;
+      this.transition = transition;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      //Each guard check is a solver call. So it is worth
+      //to split down to single states.
+      if (to - from <= 1) {
+        if (from < to) {
+          successors[from] = session.execute(() ->
+                  computeSuccessor(states.get(from), transition));
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+              new SuccessorTask(session, states, successors, transition,
+                      from, middle),
+              new SuccessorTask(session, states, successors, transition,
+                      middle, to));
+    }
+  }
+}
@@ -24,7 +24,6 @@ import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericComparator;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import gov.nasa.jstateexplorer.SymbolicSearchEngine;
-import gov.nasa.jstateexplorer.datastructures.NameMap;
 import gov.nasa.jstateexplorer.datastructures.VariableReplacementMap;
 import gov.nasa.jstateexplorer.datastructures.region.SymbolicRegion;
 import gov.nasa.jstateexplorer.datastructures.searchImage.SearchIterationImage;
@@ -34,8 +33,13 @@ import gov.nasa.jstateexplorer.datastructures.state.SymbolicState;
 import gov.nasa.jstateexplorer.transitionSystem.helperVisitors.VariableReplacementVisitor;
 import gov.nasa.jstateexplorer.transitionSystem.helperVisitors.VariableRestrictionsVisitor;
 import gov.nasa.jstateexplorer.transitionSystem.helperVisitors.VariableAssignmentVisitor;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
 import gov.nasa.jstateexplorer.util.HelperMethods;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import gov.nasa.jstateexplorer.util.VariableRenaming;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -72,7 +76,7 @@ public class SymbolicTransitionHelper extends TransitionHelper {
     return null;
   }
 
-  private SymbolicState executeTransition(SymbolicState state,
+  protected SymbolicState executeTransition(SymbolicState state,
           Transition transition) {
     Expression newValue = null;
     SymbolicState resultingState = new SymbolicState();
@@ -88,8 +92,7 @@ public class SymbolicTransitionHelper extends TransitionHelper {
       resultingState.add(primeEntry);
     }
     transition.setReached(true);
-    resultingState.copyHistory(state.getHistory());
-    resultingState.addToHistory(transition);
+    resultingState.setHistory(state.getHistoryNode().append(transition));
     return resultingState;
   }
 
@@ -127,7 +130,8 @@ public class SymbolicTransitionHelper extends TransitionHelper {
 //    Set<Variable<?>> possibleBound = 
 //            ExpressionUtil.freeVariables(entry.getValue());
     newValue = (newValue != null) ? 
-                  ExpressionUtil.and(newValue, entry.getValue()): entry.getValue();
+                  ExpressionFactory.getInstance()
+                          .and(newValue, entry.getValue()): entry.getValue();
 //    entry.getValue().accept(restrictionsVisitor, oldRestrictionsToKeep);
 //    for (NumericBooleanExpression expr : oldRestrictionsToKeep) {
 //      Set<Variable<?>> variables = ExpressionUtil.freeVariables(expr);
@@ -167,9 +171,9 @@ public class SymbolicTransitionHelper extends TransitionHelper {
 
   private Expression createStutterTransition(Variable oldVariable,
           Variable primeVariable, Expression<Boolean> value) {
-    NameMap rename = new NameMap();
-    rename.mapNames(oldVariable.getName(), primeVariable.getName());
-    return ExpressionUtil.renameVars(value, rename);
+    VariableRenaming rename = new VariableRenaming(SymbolTable.getInstance());
+    rename.map(oldVariable, primeVariable);
+    return rename.apply(value);
   }
 
   private boolean isConstantAssignment(Expression transitionEffekt) {
@@ -178,7 +182,7 @@ public class SymbolicTransitionHelper extends TransitionHelper {
 
   private Expression createConstantAssignment(Variable primeVariable,
           Expression transitionEffekt) {
-    return NumericBooleanExpression.create(primeVariable,
+    return ExpressionFactory.getInstance().numericBoolean(primeVariable,
             NumericComparator.EQ, transitionEffekt);
   }
 
@@ -189,8 +193,9 @@ public class SymbolicTransitionHelper extends TransitionHelper {
           Expression prefix) {
     transitionEffekt = (Expression)
             transitionEffekt.accept(replacementVisitor, replacements);
-    Expression newValuePart = NumericBooleanExpression.create(primeVariable,
-            NumericComparator.EQ, transitionEffekt);
+    Expression newValuePart = ExpressionFactory.getInstance()
+            .numericBoolean(primeVariable, NumericComparator.EQ,
+                    transitionEffekt);
     return simplifyNewValue(appendNewValue(prefix, newValuePart), primeVariable);
   }
 
@@ -211,33 +216,28 @@ public class SymbolicTransitionHelper extends TransitionHelper {
 
   private Expression appendNewValue(Expression newValue, Expression toAppend) {
     newValue = (newValue == null ? toAppend
-            : ExpressionUtil.and(newValue, toAppend));
+            : ExpressionFactory.getInstance().and(newValue, toAppend));
     return newValue;
   }
 
   private Variable createPrimeVariable(Variable var) {
-    String newName = var.getName() + "'";
-    return Variable.create(var.getType(), newName);
+    return SymbolTable.getInstance().getPrimeVariable(var);
   }
 
   private boolean isTainted(Expression transitionEffekt, Expression guard, Variable oldVariable) {
     if(guard == null || transitionEffekt == null){
       return false;
     }
-    Set<Variable<?>> effectVariables = ExpressionUtil.freeVariables(transitionEffekt);
-    effectVariables.remove(oldVariable);
+    ExpressionMetadata metadata = ExpressionMetadata.getInstance();
+    BitSet effectVariables = metadata.getFreeVariableIds(transitionEffekt);
+    int oldId = SymbolTable.getInstance().getId(oldVariable);
+    effectVariables.clear(oldId);
     if(effectVariables.isEmpty()){
       return false;
     }else{
-      effectVariables.add(oldVariable);
-    }
-    Set<Variable<?>> guardVariables = ExpressionUtil.freeVariables(guard);
-    for(Variable effectVar: effectVariables){
-      if(guardVariables.contains(effectVar)){
-        return true;
-      }
+      effectVariables.set(oldId);
     }
-    return false;
+    return effectVariables.intersects(metadata.getFreeVariableIds(guard));
   }
 
   private Expression simplifyNewValue(Expression appendNewValue , Variable prime) {
@@ -245,15 +245,17 @@ public class SymbolicTransitionHelper extends TransitionHelper {
     Result ret = solver.solve(appendNewValue, res);
     if(simplifiableValue(appendNewValue, prime.getName()) && ret == Result.SAT){
       Object newValue = res.getValue(prime);
-      Expression constant = new Constant(prime.getType(), newValue);
-      return NumericBooleanExpression.create(prime, NumericComparator.EQ, constant);
+      ExpressionFactory factory = ExpressionFactory.getInstance();
+      Expression constant = factory.constant(prime.getType(), newValue);
+      return factory.numericBoolean(prime, NumericComparator.EQ, constant);
     }
     return appendNewValue;
   }
 
   //FiXME: Is this condition enough?
   private boolean simplifiableValue(Expression newValue, String primeName){
-    Set<Variable<?>> variablesInExpression = ExpressionUtil.freeVariables(newValue);
+    Set<Variable<?>> variablesInExpression
+            = ExpressionMetadata.getInstance().freeVariables(newValue);
     //System.out.println("simplifiableValue");
     //System.out.println("newValue" + newValue);
     for(Variable candidate: variablesInExpression){
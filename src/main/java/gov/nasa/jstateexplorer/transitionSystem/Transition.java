@@ -11,6 +11,7 @@ import gov.nasa.jstateexplorer.transitionSystem.helperVisitors.TransitionEncodin
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +32,8 @@ public class Transition {
   private boolean isError;
   private List<Variable> modified;
   private boolean isConstructor;
+  private Set<Variable<?>> guardVariables;
+  private Map<Variable, Set<Variable<?>>> effectVariables;
 
   public Transition() {
     guard = null;
@@ -106,6 +109,38 @@ public class Transition {
 
   public void setGuard(Expression guard) {
     this.guard = guard;
+    this.guardVariables = null;
+  }
+
+  /**
+   * The free variables of the guard. They are computed once.
+   */
+  public Set<Variable<?>> getGuardVariables() {
+    if (guardVariables == null) {
+      guardVariables = guard != null
+              ? ExpressionUtil.freeVariables(guard)
+              : new HashSet<>();
+    }
+    return guardVariables;
+  }
+
+  /**
+   * The free variables of the effect on the given state variable.
+   * They are computed once for all effects. Returns null, if the variable
+   * has no effect.
+   */
+  public Set<Variable<?>> getEffectVariables(Variable var) {
+    Map<Variable, Set<Variable<?>>> variables = effectVariables;
+    if (variables == null) {
+      variables = new HashMap<>();
+      for (Map.Entry<Variable, Expression<Boolean>> effect
+              : effects.entrySet()) {
+        variables.put(effect.getKey(),
+                ExpressionUtil.freeVariables(effect.getValue()));
+      }
+      effectVariables = variables;
+    }
+    return variables.get(var);
   }
 
   public boolean isGuardSymbolicConstant() {
@@ -125,6 +160,7 @@ public class Transition {
       this.effects = effects;
       stateVariables = new ArrayList(this.effects.keySet());
       transition = null;
+      effectVariables = null;
     } 
   }
 
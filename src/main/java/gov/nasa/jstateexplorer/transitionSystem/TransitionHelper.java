@@ -17,14 +17,19 @@ package gov.nasa.jstateexplorer.transitionSystem;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
-import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
 import gov.nasa.jstateexplorer.SolverInstance;
 import gov.nasa.jstateexplorer.datastructures.region.Region;
 import gov.nasa.jstateexplorer.datastructures.searchImage.SearchIterationImage;
 import gov.nasa.jstateexplorer.datastructures.state.State;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
 import gov.nasa.jstateexplorer.util.HelperMethods;
 import gov.nasa.jstateexplorer.util.SearchProfiler;
 import java.io.IOException;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +40,7 @@ import java.util.logging.Logger;
  */
 public abstract class TransitionHelper {
 
+  //A helper uses the solver of the session it has been created in.
   protected SolverInstance solver = SolverInstance.getInstance();
   protected static final Logger logger
           = Logger.getLogger(HelperMethods.getLoggerName());
@@ -70,15 +76,36 @@ public abstract class TransitionHelper {
 
   protected boolean satisfiesGuardCondition(State state,
           Transition transition, int depth) throws IllegalStateException {
+    SearchProfiler.startGuardProfiler(depth);
+    try {
+      return isGuardSatisfiable(state, transition);
+    } finally {
+      SearchProfiler.stopGuardProfiler(depth);
+    }
+  }
+
+  /**
+   * The guard test without profiling. It only uses the solver of the
+   * current thread and might be called concurrently.
+   */
+  protected boolean isGuardSatisfiable(State state, Transition transition)
+          throws IllegalStateException {
+    Valuation concrete = state.getConcreteValuation();
+    if (concrete != null && transition.getGuard() != null) {
+      Object enabled = evaluateConcrete(transition.getGuard(),
+              transition.getGuardVariables(), concrete);
+      if (enabled != null) {
+        return (Boolean) enabled;
+      }
+    }
     Expression guardTest = state.toExpression();
     if(guardTest != null){
-      guardTest = ExpressionUtil.and(guardTest, transition.getGuard());
+      guardTest = ExpressionFactory.getInstance()
+              .and(guardTest, transition.getGuard());
     }else{
       guardTest = transition.getGuard();
     }
-    SearchProfiler.startGuardProfiler(depth);
     Result res = solver.isSatisfiable(guardTest);
-    SearchProfiler.stopGuardProfiler(depth);
     if (null != res) {
       switch (res) {
         case SAT:
@@ -94,6 +121,93 @@ public abstract class TransitionHelper {
             "The solver result is not allowed to be null.");
   }
   
+  /**
+   * Evaluates the expression without the solver, if the valuation assigns
+   * all of its variables. Returns null, if the solver is needed. This is
+   * also the case, if evaluate might differ from the solver: The solver
+   * uses unbounded integers, so it doesn't overflow, and it rounds the
+   * division of negative numbers down, e.g. -7 div 2 is -4.
+   */
+  protected static Object evaluateConcrete(Expression expr,
+          Set<Variable<?>> variables, Valuation valuation) {
+    for (Variable<?> var : variables) {
+      if (!valuation.containsValueFor(var)) {
+        return null;
+      }
+    }
+    try {
+      checkArithmetic(expr, valuation);
+      return expr.evaluate(valuation);
+    } catch (ArithmeticException ex) {
+      //e.g. a division by zero. The solver decides, how to handle it.
+      return null;
+    }
+  }
+
+  /**
+   * Throws an ArithmeticException, if an integral operation of the
+   * expression overflows or divides a negative number.
+   */
+  private static void checkArithmetic(Expression<?> expr,
+          Valuation valuation) {
+    for (Expression<?> child : expr.getChildren()) {
+      checkArithmetic(child, valuation);
+    }
+    if (expr instanceof UnaryMinus) {
+      Object negated = ((UnaryMinus<?>) expr).getNegated()
+              .evaluate(valuation);
+      if (isIntegral(negated)) {
+        checkExact(expr.evaluate(valuation),
+                Math.negateExact(longValue(negated)));
+      }
+    } else if (expr instanceof NumericCompound) {
+      NumericCompound<?> compound = (NumericCompound<?>) expr;
+      Object left = compound.getLeft().evaluate(valuation);
+      Object right = compound.getRight().evaluate(valuation);
+      if (!isIntegral(left) || !isIntegral(right)) {
+        return;
+      }
+      long l = longValue(left);
+      long r = longValue(right);
+      switch (compound.getOperator()) {
+        case PLUS:
+          checkExact(expr.evaluate(valuation), Math.addExact(l, r));
+          break;
+        case MINUS:
+          checkExact(expr.evaluate(valuation), Math.subtractExact(l, r));
+          break;
+        case MUL:
+          checkExact(expr.evaluate(valuation), Math.multiplyExact(l, r));
+          break;
+        case DIV:
+        case REM:
+          if (l < 0 || r < 0) {
+            throw new ArithmeticException("Division of a negative number");
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static void checkExact(Object evaluated, long exact) {
+    if (longValue(evaluated) != exact) {
+      throw new ArithmeticException("Integer overflow");
+    }
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte
+            || value instanceof Character;
+  }
+
+  private static long longValue(Object value) {
+    return value instanceof Character ? (Character) value
+            : ((Number) value).longValue();
+  }
+
   public boolean shouldContinue(SearchIterationImage image) {
     return true;
   }
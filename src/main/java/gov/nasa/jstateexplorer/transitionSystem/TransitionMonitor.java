@@ -1,27 +1,28 @@
 package gov.nasa.jstateexplorer.transitionSystem;
 
+import gov.nasa.jstateexplorer.SearchSession;
+
 /**
- *
+ * The running flag belongs to the current search session.
  * @author malte
  */
 
 
 public class TransitionMonitor {
-    private static boolean runing = true;
     private TransitionMonitor(){
         
     }
     
     public static boolean isRunning(){
-        return runing;
+        return SearchSession.current().isRunning();
     };
     
     public static void stopRuning(){
-        runing = false;
+        SearchSession.current().setRunning(false);
     }
     
     public static void startRuning(){
-        runing = true;
+        SearchSession.current().setRunning(true);
     }
 }
 
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+
+/**
+ * Compiles expressions into column terms, that evaluate the expression
+ * for all rows of a StateBatch at once. Each term is one tight loop over
+ * the columns of its operands, so the JIT can unroll and vectorize it.
+ * Conditions yield columns of 0 and 1. The supported expressions are
+ * those of the ExpressionCompiler. Both operands of a propositional
+ * operator are evaluated for all rows, so a division by zero in a row,
+ * that the scalar term would have skipped, throws an ArithmeticException.
+ * The same holds for the arithmetic, that differs from the solver, like in
+ * the scalar terms. The caller falls back to the scalar terms then.
+ */
+public class ColumnCompiler {
+
+  public interface ColumnTerm {
+
+    /**
+     * The column of the values for the rows of the batch. It might be a
+     * column of the batch itself and must not be modified.
+     */
+    long[] evaluate(StateBatch batch);
+  }
+
+  private final ExpressionCompiler compiler;
+  private int terms;
+
+  public ColumnCompiler(ExpressionCompiler compiler) {
+    this.compiler = compiler;
+  }
+
+  public ColumnTerm compileCondition(Expression<?> expr) {
+    try {
+      return condition(expr);
+    } catch (NotCompilableException ex) {
+      return null;
+    }
+  }
+
+  public ColumnTerm compileValue(Expression<?> expr) {
+    try {
+      return value(expr);
+    } catch (NotCompilableException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * A column term with the same value for all rows.
+   */
+  public ColumnTerm constant(long constant) {
+    int id = nextId();
+    return batch -> {
+      long[] result = batch.result(id);
+      int size = batch.size();
+      for (int row = 0; row < size; row++) {
+        result[row] = constant;
+      }
+      return result;
+    };
+  }
+
+  /**
+   * The column of the slot.
+   */
+  public ColumnTerm slot(int slot) {
+    return batch -> batch.column(slot);
+  }
+
+  private synchronized int nextId() {
+    return terms++;
+  }
+
+  private ColumnTerm condition(Expression<?> expr) {
+    if (expr instanceof Constant
+            && ExpressionCompiler.isBoolean(expr.getType())) {
+      return constant((Boolean) ((Constant<?>) expr).getValue() ? 1 : 0);
+    } else if (expr instanceof Variable
+            && ExpressionCompiler.isBoolean(expr.getType())) {
+      return slot(slotOf((Variable<?>) expr));
+    } else if (expr instanceof Negation) {
+      ColumnTerm negated = condition(((Negation) expr).getNegated());
+      int id = nextId();
+      return batch -> {
+        long[] operand = negated.evaluate(batch);
+        long[] result = batch.result(id);
+        int size = batch.size();
+        for (int row = 0; row < size; row++) {
+          result[row] = operand[row] ^ 1;
+        }
+        return result;
+      };
+    } else if (expr instanceof PropositionalCompound) {
+      PropositionalCompound compound = (PropositionalCompound) expr;
+      return propositional(condition(compound.getLeft()),
+              compound.getOperator(), condition(compound.getRight()));
+    } else if (expr instanceof NumericBooleanExpression) {
+      NumericBooleanExpression comparison = (NumericBooleanExpression) expr;
+      return comparison(value(comparison.getLeft()),
+              comparison.getComparator(), value(comparison.getRight()));
+    }
+    throw new NotCompilableException();
+  }
+
+  private ColumnTerm value(Expression<?> expr) {
+    Type<?> type = expr.getType();
+    if (ExpressionCompiler.isBoolean(type)) {
+      return condition(expr);
+    }
+    if (!ExpressionCompiler.isIntegral(type)) {
+      throw new NotCompilableException();
+    }
+    if (expr instanceof Constant) {
+      Object constantValue = ((Constant<?>) expr).getValue();
+      return constant(constantValue instanceof Character
+              ? (Character) constantValue
+              : ((Number) constantValue).longValue());
+    } else if (expr instanceof Variable) {
+      return slot(slotOf((Variable<?>) expr));
+    } else if (expr instanceof UnaryMinus) {
+      ColumnTerm negated = value(((UnaryMinus<?>) expr).getNegated());
+      int id = nextId();
+      return batch -> {
+        long[] operand = negated.evaluate(batch);
+        long[] result = batch.result(id);
+        int size = batch.size();
+        for (int row = 0; row < size; row++) {
+          result[row] = Math.negateExact(operand[row]);
+        }
+        return checkRange(result, size, type);
+      };
+    } else if (expr instanceof NumericCompound) {
+      NumericCompound<?> compound = (NumericCompound<?>) expr;
+      return arithmetic(value(compound.getLeft()), compound,
+              value(compound.getRight()), type);
+    }
+    throw new NotCompilableException();
+  }
+
+  private ColumnTerm arithmetic(ColumnTerm left, NumericCompound<?> compound,
+          ColumnTerm right, Type<?> type) {
+    int id = nextId();
+    switch (compound.getOperator()) {
+      case PLUS:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = Math.addExact(a[row], b[row]);
+          }
+          return checkRange(result, size, type);
+        };
+      case MINUS:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = Math.subtractExact(a[row], b[row]);
+          }
+          return checkRange(result, size, type);
+        };
+      case MUL:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = Math.multiplyExact(a[row], b[row]);
+          }
+          return checkRange(result, size, type);
+        };
+      case DIV:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = ExpressionCompiler.divide(a[row], b[row]);
+          }
+          return result;
+        };
+      case REM:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = ExpressionCompiler.remainder(a[row], b[row]);
+          }
+          return result;
+        };
+      default:
+        throw new NotCompilableException();
+    }
+  }
+
+  private ColumnTerm propositional(ColumnTerm left, LogicalOperator operator,
+          ColumnTerm right) {
+    int id = nextId();
+    switch (operator) {
+      case AND:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] & b[row];
+          }
+          return result;
+        };
+      case OR:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] | b[row];
+          }
+          return result;
+        };
+      case IMPLY:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = (a[row] ^ 1) | b[row];
+          }
+          return result;
+        };
+      case EQUIV:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] ^ b[row] ^ 1;
+          }
+          return result;
+        };
+      case XOR:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] ^ b[row];
+          }
+          return result;
+        };
+      default:
+        throw new NotCompilableException();
+    }
+  }
+
+  private ColumnTerm comparison(ColumnTerm left, NumericComparator comparator,
+          ColumnTerm right) {
+    int id = nextId();
+    switch (comparator) {
+      case EQ:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] == b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      case NE:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] != b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      case LT:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] < b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      case LE:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] <= b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      case GT:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] > b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      case GE:
+        return batch -> {
+          long[] a = left.evaluate(batch), b = right.evaluate(batch);
+          long[] result = batch.result(id);
+          int size = batch.size();
+          for (int row = 0; row < size; row++) {
+            result[row] = a[row] >= b[row] ? 1 : 0;
+          }
+          return result;
+        };
+      default:
+        throw new NotCompilableException();
+    }
+  }
+
+  /**
+   * Throws an ArithmeticException, if a value of the result does not fit
+   * into the type, as the scalar terms do.
+   */
+  private static long[] checkRange(long[] result, int size, Type<?> type) {
+    if (type instanceof BuiltinTypes.SInt32Type) {
+      checkRange(result, size, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.SInt16Type) {
+      checkRange(result, size, Short.MIN_VALUE, Short.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.SInt8Type) {
+      checkRange(result, size, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.UInt16Type) {
+      checkRange(result, size, Character.MIN_VALUE, Character.MAX_VALUE);
+    }
+    return result;
+  }
+
+  private static void checkRange(long[] result, int size, long min,
+          long max) {
+    for (int row = 0; row < size; row++) {
+      ExpressionCompiler.checkRange(result[row], min, max);
+    }
+  }
+
+  private int slotOf(Variable<?> var) {
+    int slot = compiler.getSlot(var);
+    if (slot < 0) {
+      throw new NotCompilableException();
+    }
+    return slot;
+  }
+
+  /**
+   * Signals an expression that can't be compiled. It is only thrown
+   * while compiling and never escapes the compiler.
+   */
+  private static class NotCompilableException extends RuntimeException {
+
+    NotCompilableException() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ColumnCompiler.ColumnTerm;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ExpressionCompiler.BooleanTerm;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ExpressionCompiler.LongTerm;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A transition compiled over the slots of a state vector.
+ * The guard is a BooleanTerm and there is one LongTerm per slot, that
+ * computes the value of the slot in the successor. Error transitions
+ * have no effects. A transition is only compiled, if its successor is
+ * determined by the state, so the effects can't depend on parameters.
+ * If the column compiler supports the guard and the effects as well,
+ * applyBatch evaluates the transition for a whole StateBatch at once.
+ * A division by zero throws an ArithmeticException, as the compiled terms
+ * have no value for it. The search evaluates the transition for such a
+ * state with the solver instead.
+ */
+public class CompiledTransition {
+
+  private final Transition transition;
+  private final BooleanTerm guard;
+  private final LongTerm[] effects;
+  private ColumnTerm columnGuard;
+  private ColumnTerm[] columnEffects;
+
+  private CompiledTransition(Transition transition, BooleanTerm guard,
+          LongTerm[] effects) {
+    this.transition = transition;
+    this.guard = guard;
+    this.effects = effects;
+  }
+
+  /**
+   * Compiles the guard and effects of the transition.
+   * Returns null, if the compiler can't handle one of them
+   * or a slot has no effect.
+   */
+  public static CompiledTransition compile(Transition transition,
+          ExpressionCompiler compiler, List<? extends Variable<?>> slots) {
+    BooleanTerm guard = transition.getGuard() != null
+            ? compiler.compileCondition(transition.getGuard())
+            : state -> true;
+    if (guard == null || (!transition.isOk() && !transition.isError())) {
+      return null;
+    }
+    ColumnCompiler columns = compiler.getColumnCompiler();
+    ColumnTerm columnGuard = transition.getGuard() != null
+            ? columns.compileCondition(transition.getGuard())
+            : columns.constant(1);
+    if (!transition.isOk()) {
+      return new CompiledTransition(transition, guard, new LongTerm[0])
+              .withColumns(columnGuard, new ColumnTerm[0]);
+    }
+    LongTerm[] effects = new LongTerm[slots.size()];
+    ColumnTerm[] columnEffects = new ColumnTerm[slots.size()];
+    for (int i = 0; i < effects.length; i++) {
+      Expression effect = transition.getEffect(slots.get(i));
+      effects[i] = effect != null ? compiler.compileValue(effect) : null;
+      if (effects[i] == null) {
+        return null;
+      }
+      columnEffects[i] = columns.compileValue(effect);
+    }
+    return new CompiledTransition(transition, guard, effects)
+            .withColumns(columnGuard, columnEffects);
+  }
+
+  /**
+   * Compiles all transitions or returns null, if one of them
+   * can't be compiled.
+   */
+  public static List<CompiledTransition> compileAll(
+          List<Transition> transitions, ExpressionCompiler compiler,
+          List<? extends Variable<?>> slots) {
+    List<CompiledTransition> compiled = new ArrayList<>();
+    for (Transition transition : transitions) {
+      CompiledTransition compiledTransition
+              = compile(transition, compiler, slots);
+      if (compiledTransition == null) {
+        return null;
+      }
+      compiled.add(compiledTransition);
+    }
+    return compiled;
+  }
+
+  public Transition getTransition() {
+    return transition;
+  }
+
+  /**
+   * Throws an ArithmeticException, if the guard divides by zero.
+   */
+  public boolean isEnabled(long[] state) {
+    return guard.evaluate(state);
+  }
+
+  /**
+   * Writes the successor of the state into the buffer. The buffer must
+   * not be the state itself, as all effects read the old values.
+   * Throws an ArithmeticException, if an effect divides by zero.
+   */
+  public void apply(long[] state, long[] successor) {
+    for (int i = 0; i < effects.length; i++) {
+      successor[i] = effects[i].evaluate(state);
+    }
+  }
+
+  /**
+   * True, if the guard and all effects have column terms.
+   */
+  public boolean supportsBatch() {
+    return columnGuard != null && columnEffects != null;
+  }
+
+  /**
+   * Evaluates the transition for all states of the batch. The enabled
+   * states are selected into enabled and the successors replace the
+   * content of successors. Error transitions have no successors.
+   * Returns the amount of enabled states.
+   * A column term throws an ArithmeticException for a division by zero
+   * in any row, even if the scalar guard would have skipped it. The caller
+   * has to evaluate the states one by one then.
+   */
+  public int applyBatch(StateBatch states, StateBatch enabled,
+          StateBatch successors) {
+    if (!supportsBatch()) {
+      throw new IllegalStateException("The transition has no column terms.");
+    }
+    enabled.select(states, columnGuard.evaluate(states));
+    if (enabled.size() == 0 || columnEffects.length == 0) {
+      successors.clear();
+      return enabled.size();
+    }
+    long[][] values = new long[columnEffects.length][];
+    for (int i = 0; i < columnEffects.length; i++) {
+      values[i] = columnEffects[i].evaluate(enabled);
+    }
+    successors.set(values, enabled.size());
+    return enabled.size();
+  }
+
+  private CompiledTransition withColumns(ColumnTerm columnGuard,
+          ColumnTerm[] columnEffects) {
+    this.columnGuard = columnGuard;
+    for (ColumnTerm effect : columnEffects) {
+      if (effect == null) {
+        return this;
+      }
+    }
+    this.columnEffects = columnEffects;
+    return this;
+  }
+}
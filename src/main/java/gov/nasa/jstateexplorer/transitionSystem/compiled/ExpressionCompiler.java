@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles expressions into trees of small closures over a primitive
+ * state vector. The slots of the vector are the slots of a StateEncoder,
+ * so booleans are 0 and 1 and integral values are stored as they are.
+ * A compiled term doesn't allocate and has no virtual dispatch on the
+ * expression classes, so the JIT can inline it.
+ * Only boolean and the fixed width integral types are supported.
+ * The terms follow the solver, which has unbounded integers and rounds
+ * the division of negative numbers down. Where the Java arithmetic would
+ * differ, i.e. for an overflow of the type of the expression and for the
+ * division of a negative number, a term throws an ArithmeticException, as
+ * it does for a division by zero. The search solves such states instead.
+ * Everything else, e.g. variables without a slot, is not compiled and the
+ * compile methods return null.
+ */
+public class ExpressionCompiler {
+
+  public interface LongTerm {
+
+    long evaluate(long[] state);
+  }
+
+  public interface BooleanTerm {
+
+    boolean evaluate(long[] state);
+  }
+
+  private final Map<Variable<?>, Integer> slots;
+  private ColumnCompiler columnCompiler;
+
+  public ExpressionCompiler(List<? extends Variable<?>> slotVariables) {
+    this.slots = new HashMap<>();
+    for (int i = 0; i < slotVariables.size(); i++) {
+      slots.put(slotVariables.get(i), i);
+    }
+  }
+
+  public int getSlot(Variable<?> var) {
+    Integer slot = slots.get(var);
+    return slot != null ? slot : -1;
+  }
+
+  /**
+   * The column compiler over the same slots. All column terms of one
+   * compiler can share a StateBatch.
+   */
+  public synchronized ColumnCompiler getColumnCompiler() {
+    if (columnCompiler == null) {
+      columnCompiler = new ColumnCompiler(this);
+    }
+    return columnCompiler;
+  }
+
+  public BooleanTerm compileCondition(Expression<?> expr) {
+    try {
+      return condition(expr);
+    } catch (NotCompilableException ex) {
+      return null;
+    }
+  }
+
+  public LongTerm compileValue(Expression<?> expr) {
+    try {
+      return value(expr);
+    } catch (NotCompilableException ex) {
+      return null;
+    }
+  }
+
+  private BooleanTerm condition(Expression<?> expr) {
+    if (expr instanceof Constant && isBoolean(expr.getType())) {
+      boolean constant = (Boolean) ((Constant<?>) expr).getValue();
+      return state -> constant;
+    } else if (expr instanceof Variable && isBoolean(expr.getType())) {
+      int slot = slot((Variable<?>) expr);
+      return state -> state[slot] != 0;
+    } else if (expr instanceof Negation) {
+      BooleanTerm negated = condition(((Negation) expr).getNegated());
+      return state -> !negated.evaluate(state);
+    } else if (expr instanceof PropositionalCompound) {
+      PropositionalCompound compound = (PropositionalCompound) expr;
+      return propositional(condition(compound.getLeft()),
+              compound.getOperator(), condition(compound.getRight()));
+    } else if (expr instanceof NumericBooleanExpression) {
+      NumericBooleanExpression comparison = (NumericBooleanExpression) expr;
+      return comparison(value(comparison.getLeft()),
+              comparison.getComparator(), value(comparison.getRight()));
+    }
+    throw new NotCompilableException();
+  }
+
+  private LongTerm value(Expression<?> expr) {
+    Type<?> type = expr.getType();
+    if (isBoolean(type)) {
+      BooleanTerm condition = condition(expr);
+      return state -> condition.evaluate(state) ? 1 : 0;
+    }
+    if (!isIntegral(type)) {
+      throw new NotCompilableException();
+    }
+    if (expr instanceof Constant) {
+      Object constantValue = ((Constant<?>) expr).getValue();
+      long constant = constantValue instanceof Character
+              ? (Character) constantValue
+              : ((Number) constantValue).longValue();
+      return state -> constant;
+    } else if (expr instanceof Variable) {
+      int slot = slot((Variable<?>) expr);
+      return state -> state[slot];
+    } else if (expr instanceof UnaryMinus) {
+      LongTerm negated = value(((UnaryMinus<?>) expr).getNegated());
+      return exact(state -> Math.negateExact(negated.evaluate(state)), type);
+    } else if (expr instanceof NumericCompound) {
+      NumericCompound<?> compound = (NumericCompound<?>) expr;
+      LongTerm left = value(compound.getLeft());
+      LongTerm right = value(compound.getRight());
+      switch (compound.getOperator()) {
+        case PLUS:
+          return exact(state -> Math.addExact(left.evaluate(state),
+                  right.evaluate(state)), type);
+        case MINUS:
+          return exact(state -> Math.subtractExact(left.evaluate(state),
+                  right.evaluate(state)), type);
+        case MUL:
+          return exact(state -> Math.multiplyExact(left.evaluate(state),
+                  right.evaluate(state)), type);
+        case DIV:
+          return state -> divide(left.evaluate(state),
+                  right.evaluate(state));
+        case REM:
+          return state -> remainder(left.evaluate(state),
+                  right.evaluate(state));
+        default:
+          throw new NotCompilableException();
+      }
+    }
+    throw new NotCompilableException();
+  }
+
+  /**
+   * The division of the solver and of Java only agree on operands, that
+   * are not negative. Their quotient fits into the type of the operands.
+   */
+  static long divide(long left, long right) {
+    if (left < 0 || right < 0) {
+      throw new ArithmeticException("Division of a negative number");
+    }
+    return left / right;
+  }
+
+  static long remainder(long left, long right) {
+    if (left < 0 || right < 0) {
+      throw new ArithmeticException("Division of a negative number");
+    }
+    return left % right;
+  }
+
+  private static BooleanTerm propositional(BooleanTerm left,
+          LogicalOperator operator, BooleanTerm right) {
+    switch (operator) {
+      case AND:
+        return state -> left.evaluate(state) && right.evaluate(state);
+      case OR:
+        return state -> left.evaluate(state) || right.evaluate(state);
+      case IMPLY:
+        return state -> !left.evaluate(state) || right.evaluate(state);
+      case EQUIV:
+        return state -> left.evaluate(state) == right.evaluate(state);
+      case XOR:
+        return state -> left.evaluate(state) != right.evaluate(state);
+      default:
+        throw new NotCompilableException();
+    }
+  }
+
+  private static BooleanTerm comparison(LongTerm left,
+          NumericComparator comparator, LongTerm right) {
+    switch (comparator) {
+      case EQ:
+        return state -> left.evaluate(state) == right.evaluate(state);
+      case NE:
+        return state -> left.evaluate(state) != right.evaluate(state);
+      case LT:
+        return state -> left.evaluate(state) < right.evaluate(state);
+      case LE:
+        return state -> left.evaluate(state) <= right.evaluate(state);
+      case GT:
+        return state -> left.evaluate(state) > right.evaluate(state);
+      case GE:
+        return state -> left.evaluate(state) >= right.evaluate(state);
+      default:
+        throw new NotCompilableException();
+    }
+  }
+
+  /**
+   * Throws an ArithmeticException, if the value of the term does not fit
+   * into the type. The long arithmetic itself must be exact already.
+   */
+  private static LongTerm exact(LongTerm term, Type<?> type) {
+    if (type instanceof BuiltinTypes.SInt32Type) {
+      return state -> checkRange(term.evaluate(state),
+              Integer.MIN_VALUE, Integer.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.SInt16Type) {
+      return state -> checkRange(term.evaluate(state),
+              Short.MIN_VALUE, Short.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.SInt8Type) {
+      return state -> checkRange(term.evaluate(state),
+              Byte.MIN_VALUE, Byte.MAX_VALUE);
+    } else if (type instanceof BuiltinTypes.UInt16Type) {
+      return state -> checkRange(term.evaluate(state),
+              Character.MIN_VALUE, Character.MAX_VALUE);
+    }
+    return term;
+  }
+
+  static long checkRange(long value, long min, long max) {
+    if (value < min || value > max) {
+      throw new ArithmeticException("Integer overflow");
+    }
+    return value;
+  }
+
+  private int slot(Variable<?> var) {
+    Integer slot = slots.get(var);
+    if (slot == null) {
+      throw new NotCompilableException();
+    }
+    return slot;
+  }
+
+  static boolean isBoolean(Type<?> type) {
+    return type instanceof BuiltinTypes.BoolType;
+  }
+
+  static boolean isIntegral(Type<?> type) {
+    return type instanceof BuiltinTypes.SInt32Type
+            || type instanceof BuiltinTypes.SInt64Type
+            || type instanceof BuiltinTypes.SInt16Type
+            || type instanceof BuiltinTypes.SInt8Type
+            || type instanceof BuiltinTypes.UInt16Type;
+  }
+
+  /**
+   * Signals an expression that can't be compiled. It is only thrown
+   * while compiling and never escapes the compiler.
+   */
+  private static class NotCompilableException extends RuntimeException {
+
+    NotCompilableException() {
+      super(null, null, false, false);
+    }
+  }
+}
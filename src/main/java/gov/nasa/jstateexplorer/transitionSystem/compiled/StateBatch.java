@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of encoded states laid out as struct of arrays: There is one
+ * column per slot and the states are the rows. The compiled column terms
+ * evaluate an expression for all rows in tight loops over the columns.
+ * The batch also provides the result columns of the terms, so a batch
+ * must only be used by one thread at a time.
+ */
+public class StateBatch {
+
+  private final int width;
+  private final int capacity;
+  private final long[][] columns;
+  private final List<long[]> results;
+  private final int[] selection;
+  private int size;
+
+  public StateBatch(int width, int capacity) {
+    this.width = width;
+    this.capacity = capacity;
+    this.columns = new long[width][capacity];
+    this.results = new ArrayList<>();
+    this.selection = new int[capacity];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Appends the state as a new row.
+   */
+  public void add(long[] state) {
+    if (size == capacity) {
+      throw new IllegalStateException("The batch is full.");
+    }
+    for (int slot = 0; slot < width; slot++) {
+      columns[slot][size] = state[slot];
+    }
+    ++size;
+  }
+
+  /**
+   * Copies the row into the state.
+   */
+  public void get(int row, long[] state) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+    }
+    for (int slot = 0; slot < width; slot++) {
+      state[slot] = columns[slot][row];
+    }
+  }
+
+  public long[] column(int slot) {
+    return columns[slot];
+  }
+
+  /**
+   * Replaces the content by the rows of the other batch, whose value
+   * in the mask is not 0.
+   */
+  public void select(StateBatch other, long[] mask) {
+    int selected = 0;
+    for (int row = 0; row < other.size; row++) {
+      if (mask[row] != 0) {
+        selection[selected++] = row;
+      }
+    }
+    for (int slot = 0; slot < width; slot++) {
+      long[] from = other.columns[slot];
+      long[] to = columns[slot];
+      for (int row = 0; row < selected; row++) {
+        to[row] = from[selection[row]];
+      }
+    }
+    size = selected;
+  }
+
+  /**
+   * Replaces the content by the first count rows of the columns.
+   */
+  public void set(long[][] newColumns, int count) {
+    if (count > capacity) {
+      throw new IllegalStateException("The batch is full.");
+    }
+    for (int slot = 0; slot < width; slot++) {
+      System.arraycopy(newColumns[slot], 0, columns[slot], 0, count);
+    }
+    size = count;
+  }
+
+  /**
+   * The result column of the term with the id.
+   */
+  long[] result(int id) {
+    while (results.size() <= id) {
+      results.add(null);
+    }
+    long[] result = results.get(id);
+    if (result == null) {
+      result = new long[capacity];
+      results.set(id, result);
+    }
+    return result;
+  }
+}
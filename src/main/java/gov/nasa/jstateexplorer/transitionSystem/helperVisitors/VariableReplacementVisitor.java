@@ -24,10 +24,12 @@ import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericCompound;
 import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
 import gov.nasa.jstateexplorer.datastructures.VariableReplacementMap;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
 
 /**
  * This visitor is able to replace a Variable by any other expression 
  * and return the resulting expression as copy.
+ * The copy is built with the ExpressionFactory of the current session.
  */
 public class VariableReplacementVisitor
         extends AbstractExpressionVisitor<Expression<?>,
@@ -39,7 +41,8 @@ public class VariableReplacementVisitor
     Expression left = expr.getLeft(), right = expr.getRight();
     left = check(left, data);
     right = check(right, data);
-    return new PropositionalCompound(left, expr.getOperator(), right);
+    return ExpressionFactory.getInstance()
+            .propositional(left, expr.getOperator(), right);
   }
 
   @Override
@@ -48,8 +51,8 @@ public class VariableReplacementVisitor
     Expression left = expr.getLeft(), right = expr.getRight();
     left = check(left, data);
     right = check(right, data);
-    expr = new NumericCompound(left, expr.getOperator(), right);
-    return expr;
+    return ExpressionFactory.getInstance()
+            .numericCompound(left, expr.getOperator(), right);
   }
 
   @Override
@@ -58,15 +61,15 @@ public class VariableReplacementVisitor
     Expression left = expr.getLeft(), right = expr.getRight();
     left = check(left, data);
     right = check(right, data);
-    expr = new NumericBooleanExpression(left, expr.getComparator(), right);
-    return expr;
+    return ExpressionFactory.getInstance()
+            .numericBoolean(left, expr.getComparator(), right);
   }
 
   @Override
   public Expression visit(Negation expr, VariableReplacementMap data) {
     Expression innerValue = expr.getNegated();
     innerValue = check(innerValue, data);
-    return new Negation(innerValue);
+    return ExpressionFactory.getInstance().negation(innerValue);
   }
 
   @Override
@@ -74,7 +77,8 @@ public class VariableReplacementVisitor
         Expression visit(CastExpression<F,E> expr, VariableReplacementMap data) {
     Expression innerValue = expr.getCasted();
     innerValue = check(innerValue, data);
-    return new CastExpression(innerValue, expr.getType(), expr.getCastOp());
+    return ExpressionFactory.getInstance().intern(
+            new CastExpression(innerValue, expr.getType(), expr.getCastOp()));
   }
 
   @Override
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.util;
+
+import com.google.common.base.Function;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.Quantifier;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.SearchSession;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A hash consing factory for expressions.
+ * Structurally equal expressions created by the factory are the same
+ * instance. So they are stored only once and can be compared with ==.
+ * The table looks up a node by its class, its own data (operator, name,
+ * value, ...) and the identity of its already interned children, so each
+ * lookup is constant time. The precomputed hash is kept in the table key.
+ * There is one factory per SearchSession. The table holds the interned
+ * nodes weakly, so a node no longer referenced by the search is dropped
+ * together with its entry. A table key holds the children of its node,
+ * so they stay shared as long as the parent does.
+ */
+public class ExpressionFactory {
+
+  static final Object NOT_INTERNABLE = new Object();
+
+  private final ConcurrentHashMap<Node, SharedNode> nodes;
+  private final ConcurrentHashMap<WeakIdentityKey<Expression<?>>, Boolean>
+          interned;
+  private final ReferenceQueue<Expression<?>> collected;
+
+  public ExpressionFactory() {
+    this.nodes = new ConcurrentHashMap<>();
+    this.interned = new ConcurrentHashMap<>();
+    this.collected = new ReferenceQueue<>();
+  }
+
+  public static ExpressionFactory getInstance() {
+    return SearchSession.current().getExpressionFactory();
+  }
+
+  public <E> Variable<E> variable(Type<E> type, String name) {
+    return (Variable<E>) intern(new Variable<>(type, name));
+  }
+
+  public <E> Constant<E> constant(Type<E> type, E value) {
+    return (Constant<E>) intern(new Constant<>(type, value));
+  }
+
+  public Expression<Boolean> and(Expression<Boolean> left,
+          Expression<Boolean> right) {
+    return propositional(left, LogicalOperator.AND, right);
+  }
+
+  /**
+   * Conjoins the expressions from left to right.
+   * The empty conjunction is true.
+   */
+  public Expression<Boolean> and(
+          Iterable<? extends Expression<Boolean>> expressions) {
+    Expression<Boolean> result = null;
+    for (Expression<Boolean> expr : expressions) {
+      result = result == null ? intern(expr) : and(result, expr);
+    }
+    return result == null ? ExpressionUtil.TRUE : result;
+  }
+
+  public Expression<Boolean> or(Expression<Boolean> left,
+          Expression<Boolean> right) {
+    return propositional(left, LogicalOperator.OR, right);
+  }
+
+  public Expression<Boolean> propositional(Expression<Boolean> left,
+          LogicalOperator operator, Expression<Boolean> right) {
+    return intern(new PropositionalCompound(
+            intern(left), operator, intern(right)));
+  }
+
+  public Expression<Boolean> negation(Expression<Boolean> negated) {
+    return intern(new Negation(intern(negated)));
+  }
+
+  public Expression<Boolean> numericBoolean(Expression<?> left,
+          NumericComparator comparator, Expression<?> right) {
+    return intern(new NumericBooleanExpression(
+            intern(left), comparator, intern(right)));
+  }
+
+  public <E> Expression<E> numericCompound(Expression<E> left,
+          NumericOperator operator, Expression<E> right) {
+    return intern(new NumericCompound<>(
+            intern(left), operator, intern(right)));
+  }
+
+  public Expression<Boolean> quantifier(Quantifier quantifier,
+          List<? extends Variable<?>> bound, Expression<Boolean> body) {
+    return intern(new QuantifierExpression(quantifier, bound, intern(body)));
+  }
+
+  /**
+   * Renames the variables like ExpressionUtil.renameVars
+   * and interns the result.
+   */
+  public <E> Expression<E> renameVars(Expression<E> expr,
+          Function<String, String> renaming) {
+    return intern(ExpressionUtil.renameVars(expr, renaming));
+  }
+
+  /**
+   * Returns the shared instance structurally equal to the expression.
+   * The children are interned first, so the expression might be rebuilt.
+   * Node types unknown to the factory are not shared themselves,
+   * but their children are.
+   */
+  public <E> Expression<E> intern(Expression<E> expr) {
+    if (expr == null
+            || interned.containsKey(new WeakIdentityKey<>(expr, null))) {
+      return expr;
+    }
+    Expression<?>[] children = expr.getChildren();
+    Expression<?>[] internedChildren = new Expression<?>[children.length];
+    boolean changed = false;
+    for (int i = 0; i < children.length; i++) {
+      internedChildren[i] = intern(children[i]);
+      changed |= internedChildren[i] != children[i];
+    }
+    Expression<E> node = changed
+            ? (Expression<E>) expr.duplicate(internedChildren) : expr;
+    Object data = nodeData(node);
+    if (data == NOT_INTERNABLE) {
+      return node;
+    }
+    expungeCollected();
+    Node key = new Node(node.getClass(), data, internedChildren);
+    SharedNode shared = new SharedNode(node, key, collected);
+    SharedNode existing;
+    while ((existing = nodes.putIfAbsent(key, shared)) != null) {
+      Expression<?> existingNode = existing.get();
+      if (existingNode != null) {
+        return (Expression<E>) existingNode;
+      }
+      //The shared node was collected, but its entry is not expunged yet.
+      if (nodes.replace(key, existing, shared)) {
+        break;
+      }
+    }
+    interned.put(new WeakIdentityKey<>(node, collected), Boolean.TRUE);
+    return node;
+  }
+
+  public int size() {
+    expungeCollected();
+    return nodes.size();
+  }
+
+  public void clear() {
+    nodes.clear();
+    interned.clear();
+    expungeCollected();
+  }
+
+  private void expungeCollected() {
+    Reference<? extends Expression<?>> reference;
+    while ((reference = collected.poll()) != null) {
+      if (reference instanceof SharedNode) {
+        SharedNode shared = (SharedNode) reference;
+        nodes.remove(shared.key, shared);
+      } else {
+        interned.remove(reference);
+      }
+    }
+  }
+
+  static Object nodeData(Expression<?> expr) {
+    if (expr instanceof Variable) {
+      Variable<?> var = (Variable<?>) expr;
+      return Arrays.asList(var.getType(), var.getName());
+    } else if (expr instanceof Constant) {
+      Constant<?> constant = (Constant<?>) expr;
+      return Arrays.asList(constant.getType(), constant.getValue());
+    } else if (expr instanceof PropositionalCompound) {
+      return ((PropositionalCompound) expr).getOperator();
+    } else if (expr instanceof NumericBooleanExpression) {
+      return ((NumericBooleanExpression) expr).getComparator();
+    } else if (expr instanceof NumericCompound) {
+      return ((NumericCompound<?>) expr).getOperator();
+    } else if (expr instanceof Negation || expr instanceof UnaryMinus) {
+      return null;
+    } else if (expr instanceof CastExpression) {
+      CastExpression<?, ?> cast = (CastExpression<?, ?>) expr;
+      return Arrays.asList(cast.getType(), cast.getCastOp());
+    } else if (expr instanceof QuantifierExpression) {
+      QuantifierExpression quantified = (QuantifierExpression) expr;
+      return Arrays.asList(quantified.getQuantifier(),
+              quantified.getBoundVariables());
+    }
+    return NOT_INTERNABLE;
+  }
+
+  private static final class Node {
+
+    private final Class<?> kind;
+    private final Object data;
+    private final Expression<?>[] children;
+    private final int hash;
+
+    Node(Class<?> kind, Object data, Expression<?>[] children) {
+      this.kind = kind;
+      this.data = data;
+      this.children = children;
+      int childHash = 1;
+      for (Expression<?> child : children) {
+        childHash = 31 * childHash + System.identityHashCode(child);
+      }
+      this.hash = (31 * kind.hashCode() + Objects.hashCode(data)) * 31
+              + childHash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Node)) {
+        return false;
+      }
+      Node other = (Node) obj;
+      if (hash != other.hash || kind != other.kind
+              || children.length != other.children.length
+              || !Objects.equals(data, other.data)) {
+        return false;
+      }
+      //The children are interned, so identity is structural equality.
+      for (int i = 0; i < children.length; i++) {
+        if (children[i] != other.children[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class SharedNode
+          extends WeakReference<Expression<?>> {
+
+    private final Node key;
+
+    SharedNode(Expression<?> node, Node key,
+            ReferenceQueue<Expression<?>> queue) {
+      super(node, queue);
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jstateexplorer.SearchSession;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the free variables, the node count and a structural hash of
+ * expressions, so the search doesn't walk the same expression trees again
+ * and again. The free variables are kept as bit set over the ids of the
+ * SymbolTable. The cache is keyed by the identity of the expressions and
+ * holds them weakly. The metadata of a node is computed from the cached
+ * metadata of its children, so a new expression built on top of known
+ * ones, e.g. the conjunction of the values of a state, only costs its new
+ * nodes. Node types binding variables, that are unknown to the cache,
+ * are walked by jConstraints.
+ * There is one cache per SearchSession. It is a ConcurrentHashMap, so the
+ * workers of a parallel search look up metadata without a lock. Collected
+ * keys are expunged, when new entries are added.
+ */
+public class ExpressionMetadata {
+
+  private static final BitSet NO_VARIABLES = new BitSet();
+
+  private final SymbolTable symbols;
+  private final ConcurrentHashMap<WeakIdentityKey<Expression<?>>, Metadata>
+          entries;
+  private final ReferenceQueue<Expression<?>> collected;
+
+  public ExpressionMetadata(SymbolTable symbols) {
+    this.symbols = symbols;
+    this.entries = new ConcurrentHashMap<>();
+    this.collected = new ReferenceQueue<>();
+  }
+
+  public static ExpressionMetadata getInstance() {
+    return SearchSession.current().getExpressionMetadata();
+  }
+
+  /**
+   * Returns a new set of the free variables of the expression,
+   * like ExpressionUtil.freeVariables, but without walking the expression.
+   */
+  public Set<Variable<?>> freeVariables(Expression<?> expr) {
+    BitSet ids = get(expr).freeVariables;
+    Set<Variable<?>> variables = new HashSet<>();
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      variables.add(symbols.getVariable(id));
+    }
+    return variables;
+  }
+
+  public BitSet getFreeVariableIds(Expression<?> expr) {
+    return (BitSet) get(expr).freeVariables.clone();
+  }
+
+  public boolean isFree(Variable<?> var, Expression<?> expr) {
+    return get(expr).freeVariables.get(symbols.getId(var));
+  }
+
+  public boolean containsAnyFree(Collection<Variable<?>> variables,
+          Expression<?> expr) {
+    BitSet ids = get(expr).freeVariables;
+    for (Variable<?> var : variables) {
+      if (ids.get(symbols.getId(var))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean sharesFreeVariables(Expression<?> first,
+          Expression<?> second) {
+    return get(first).freeVariables.intersects(get(second).freeVariables);
+  }
+
+  public int getNodeCount(Expression<?> expr) {
+    return get(expr).nodeCount;
+  }
+
+  /**
+   * A hash of the structure of the expression. Structurally equal
+   * expressions have the same hash within one JVM.
+   */
+  public int getStructuralHash(Expression<?> expr) {
+    return get(expr).hash;
+  }
+
+  public int size() {
+    expungeCollected();
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+    expungeCollected();
+  }
+
+  private Metadata get(Expression<?> expr) {
+    Metadata metadata = lookup(expr);
+    if (metadata != null) {
+      return metadata;
+    }
+    Expression<?>[] children = expr.getChildren();
+    int nodeCount = 1;
+    int childHash = 1;
+    BitSet freeVariables = NO_VARIABLES;
+    for (Expression<?> child : children) {
+      Metadata childMetadata = get(child);
+      nodeCount += childMetadata.nodeCount;
+      childHash = 31 * childHash + childMetadata.hash;
+      freeVariables = union(freeVariables, childMetadata.freeVariables);
+    }
+    Object data = ExpressionFactory.nodeData(expr);
+    if (expr instanceof Variable) {
+      freeVariables = new BitSet();
+      freeVariables.set(symbols.getId((Variable<?>) expr));
+    } else if (expr instanceof QuantifierExpression) {
+      freeVariables = (BitSet) freeVariables.clone();
+      for (Variable<?> bound
+              : ((QuantifierExpression) expr).getBoundVariables()) {
+        freeVariables.clear(symbols.getId(bound));
+      }
+    } else if (data == ExpressionFactory.NOT_INTERNABLE) {
+      //An unknown node type might bind variables itself.
+      data = null;
+      List<Variable<?>> variables = new ArrayList<>();
+      expr.collectFreeVariables(variables);
+      freeVariables = new BitSet();
+      for (Variable<?> var : variables) {
+        freeVariables.set(symbols.getId(var));
+      }
+    }
+    int hash = (31 * expr.getClass().hashCode() + Objects.hashCode(data))
+            * 31 + childHash;
+    return store(expr, new Metadata(freeVariables, nodeCount, hash));
+  }
+
+  private static BitSet union(BitSet first, BitSet second) {
+    if (second.isEmpty() || first == second) {
+      return first;
+    }
+    if (first.isEmpty()) {
+      return second;
+    }
+    BitSet union = (BitSet) first.clone();
+    union.or(second);
+    return union;
+  }
+
+  private Metadata lookup(Expression<?> expr) {
+    return entries.get(new WeakIdentityKey<>(expr, null));
+  }
+
+  private Metadata store(Expression<?> expr, Metadata metadata) {
+    expungeCollected();
+    Metadata existing = entries.putIfAbsent(
+            new WeakIdentityKey<>(expr, collected), metadata);
+    return existing != null ? existing : metadata;
+  }
+
+  private void expungeCollected() {
+    Reference<?> reference;
+    while ((reference = collected.poll()) != null) {
+      entries.remove(reference);
+    }
+  }
+
+  /**
+   * The bit sets are shared between the entries and must not be changed.
+   */
+  private static final class Metadata {
+
+    private final BitSet freeVariables;
+    private final int nodeCount;
+    private final int hash;
+
+    Metadata(BitSet freeVariables, int nodeCount, int hash) {
+      this.freeVariables = freeVariables;
+      this.nodeCount = nodeCount;
+      this.hash = hash;
+    }
+  }
+}
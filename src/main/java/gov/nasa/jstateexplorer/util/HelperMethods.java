@@ -15,16 +15,14 @@
  */
 package gov.nasa.jstateexplorer.util;
 
-public class HelperMethods {
+import gov.nasa.jstateexplorer.SearchSession;
 
-  private static long currentCounter = 0;
-  private static long stateCounter = 0;
+public class HelperMethods {
 
   //We need unique State names in the search.
+  //They are unique within the current search session.
   public static String getUniqueStateName() {
-    String stateName = "state_" + stateCounter;
-    ++stateCounter;
-    return stateName;
+    return "state_" + SearchSession.current().nextStateNumber();
   }
 
   //The search algortihms use all this logger.
@@ -15,6 +15,7 @@
  */
 package gov.nasa.jstateexplorer.util;
 
+import gov.nasa.jstateexplorer.SearchSession;
 import java.util.Map;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -28,40 +29,46 @@ import java.util.logging.Logger;
  * An adadpted version of the SimpleProfiler to collect execution 
  * insights on the search behavior.
  * Calls to SimpleProfiler are also included in the PsycoProfiler result.
+ * The collected data belongs to a SearchSession. The static methods
+ * record into the profiler of the current session.
  */
 public class SearchProfiler {
 
   public static final boolean PROFILE = true;
 
-  private static HashMap<Integer, Long> cumulatedGuardTime =
+  private HashMap<Integer, Long> cumulatedGuardTime =
           new HashMap<>();
-  private static HashMap<Integer, Long> cumulatedDiffTime =
+  private HashMap<Integer, Long> cumulatedDiffTime =
           new HashMap<>();
-  private static HashMap<Integer, Long> cumulatedTransitionTime =
+  private HashMap<Integer, Long> cumulatedTransitionTime =
           new HashMap<>();
-  private static HashMap<Integer, Long> cumulatedRenamingTime =
+  private HashMap<Integer, Long> cumulatedRenamingTime =
           new HashMap<>();
-  private static HashMap<Integer, Long> transitionProfiler =
+  private HashMap<Integer, Long> transitionProfiler =
           new HashMap<>();
-  private static HashMap<Integer, Long> guardProfiler =
+  private HashMap<Integer, Long> guardProfiler =
           new HashMap<>();
-  private static HashMap<Integer, Long> differenceProfiler =
+  private HashMap<Integer, Long> differenceProfiler =
           new HashMap<>();
-  private static HashMap<Integer, Long> renamingTimer =
+  private HashMap<Integer, Long> renamingTimer =
           new HashMap<>();
-  private static HashMap<Integer, Integer> newStates =
+  private HashMap<Integer, Integer> newStates =
           new HashMap<>();
-  private static final Map<String,Long> cumulated = new HashMap<String, Long>();
-  private static final Map<String,Long> pending = new HashMap<String, Long>();
+  private final Map<String,Long> cumulated = new HashMap<String, Long>();
+  private final Map<String,Long> pending = new HashMap<String, Long>();
           
   
+  public SearchProfiler() {
+  }
+
   public static void start(String name) {
     if (!PROFILE) {
       return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
     long start = System.currentTimeMillis();
   
-    pending.put(name,start);
+    profile.pending.put(name,start);
     
   }
   
@@ -69,35 +76,38 @@ public class SearchProfiler {
     if (!PROFILE) {
       return;
     }
-    Long start = pending.remove(name);
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    Long start = profile.pending.remove(name);
     if (start == null) {
       return;
     }
     long duration = System.currentTimeMillis() - start;
-    Long sum = cumulated.get(name);
+    Long sum = profile.cumulated.get(name);
     if (sum == null) {
       sum = (long)0;
     }
-    cumulated.put(name, sum + duration);
+    profile.cumulated.put(name, sum + duration);
   }
   
   public static void startTransitionProfiler(int depth) {
     if (!PROFILE) {
       return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
     long currentTimeStamp = System.currentTimeMillis();
-    transitionProfiler.put(depth, currentTimeStamp);
+    profile.transitionProfiler.put(depth, currentTimeStamp);
   }
 
   public static void stopTransitionProfiler(int depth) {
-    if (transitionProfiler.containsKey(depth)) {
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    if (profile.transitionProfiler.containsKey(depth)) {
       long currentTimeStamp = System.currentTimeMillis();
-      long startTimeStamp = transitionProfiler.get(depth);
+      long startTimeStamp = profile.transitionProfiler.get(depth);
       long diff = currentTimeStamp - startTimeStamp;
-      if (cumulatedTransitionTime.containsKey(depth)) {
-        diff += cumulatedTransitionTime.get(depth);
+      if (profile.cumulatedTransitionTime.containsKey(depth)) {
+        diff += profile.cumulatedTransitionTime.get(depth);
       }
-      cumulatedTransitionTime.put(depth, diff);
+      profile.cumulatedTransitionTime.put(depth, diff);
     }
   }
 
@@ -105,19 +115,21 @@ public class SearchProfiler {
     if (!PROFILE) {
       return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
     long currentTimeStamp = System.currentTimeMillis();
-    renamingTimer.put(depth, currentTimeStamp);
+    profile.renamingTimer.put(depth, currentTimeStamp);
   }
 
   public static void stopRenamingProfiler(int depth) {
-    if (renamingTimer.containsKey(depth)) {
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    if (profile.renamingTimer.containsKey(depth)) {
       long currentTimeStamp = System.currentTimeMillis();
-      long startTimeStamp = renamingTimer.get(depth);
+      long startTimeStamp = profile.renamingTimer.get(depth);
       long diff = currentTimeStamp - startTimeStamp;
-      if (cumulatedRenamingTime.containsKey(depth)) {
-        diff += cumulatedRenamingTime.get(depth);
+      if (profile.cumulatedRenamingTime.containsKey(depth)) {
+        diff += profile.cumulatedRenamingTime.get(depth);
       }
-      cumulatedRenamingTime.put(depth, diff);
+      profile.cumulatedRenamingTime.put(depth, diff);
     }
   }
 
@@ -125,91 +137,111 @@ public class SearchProfiler {
     if (!PROFILE) {
       return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
     long currentTimeStamp = System.currentTimeMillis();
-    guardProfiler.put(depth, currentTimeStamp);
+    profile.guardProfiler.put(depth, currentTimeStamp);
   }
 
   public static void stopGuardProfiler(int depth) {
-    if (guardProfiler.containsKey(depth)) {
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    if (profile.guardProfiler.containsKey(depth)) {
       long currentTimeStamp = System.currentTimeMillis();
-      long startTimeStamp = guardProfiler.get(depth);
+      long startTimeStamp = profile.guardProfiler.get(depth);
       long diff = currentTimeStamp - startTimeStamp;
-      if (cumulatedGuardTime.containsKey(depth)) {
-        diff += cumulatedGuardTime.get(depth);
+      if (profile.cumulatedGuardTime.containsKey(depth)) {
+        diff += profile.cumulatedGuardTime.get(depth);
       }
-      cumulatedGuardTime.put(depth, diff);
+      profile.cumulatedGuardTime.put(depth, diff);
+    }
+  }
+
+  /**
+   * Adds guard time measured elsewhere, e.g. summed up over the workers of
+   * a parallel search. Must not be called concurrently.
+   */
+  public static void addGuardTime(int depth, long time) {
+    if (!PROFILE) {
+      return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    profile.cumulatedGuardTime.put(depth,
+            profile.cumulatedGuardTime.getOrDefault(depth, 0L) + time);
   }
 
   public static void startDiffProfiler(int depth) {
     if (!PROFILE) {
       return;
     }
+    SearchProfiler profile = SearchSession.current().getProfiler();
     long currentTimeStamp = System.currentTimeMillis();
-    differenceProfiler.put(depth, currentTimeStamp);
+    profile.differenceProfiler.put(depth, currentTimeStamp);
   }
 
   public static void stopDiffProfieler(int depth) {
-    if (differenceProfiler.containsKey(depth)) {
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    if (profile.differenceProfiler.containsKey(depth)) {
       long currentTimeStamp = System.currentTimeMillis();
-      long startTimeStamp = differenceProfiler.get(depth);
+      long startTimeStamp = profile.differenceProfiler.get(depth);
       long diff = currentTimeStamp - startTimeStamp;
-      if (cumulatedDiffTime.containsKey(depth)) {
-        diff += cumulatedDiffTime.get(depth);
+      if (profile.cumulatedDiffTime.containsKey(depth)) {
+        diff += profile.cumulatedDiffTime.get(depth);
       }
-      cumulatedDiffTime.put(depth, diff);
+      profile.cumulatedDiffTime.put(depth, diff);
     }
   }
 
   public static void newStates(int depth, int stateAmount) {
-    newStates.put(depth, stateAmount);
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    profile.newStates.put(depth, stateAmount);
   }
 
   public static void reset() {
-    cumulatedGuardTime = new HashMap<>();
-    cumulatedDiffTime = new HashMap<>();
-    cumulatedTransitionTime = new HashMap<>();
-    cumulatedRenamingTime = new HashMap<>();
-    transitionProfiler = new HashMap<>();
-    guardProfiler = new HashMap<>();
-    differenceProfiler = new HashMap<>();
-    renamingTimer = new HashMap<>();
-    newStates = new HashMap<>();
+    SearchProfiler profile = SearchSession.current().getProfiler();
+    profile.cumulatedGuardTime = new HashMap<>();
+    profile.cumulatedDiffTime = new HashMap<>();
+    profile.cumulatedTransitionTime = new HashMap<>();
+    profile.cumulatedRenamingTime = new HashMap<>();
+    profile.transitionProfiler = new HashMap<>();
+    profile.guardProfiler = new HashMap<>();
+    profile.differenceProfiler = new HashMap<>();
+    profile.renamingTimer = new HashMap<>();
+    profile.newStates = new HashMap<>();
   }
 
   public static String getResults() {
+    SearchProfiler profile = SearchSession.current().getProfiler();
     StringBuilder thisResult = new StringBuilder();
-    for (Entry<String, Long> e : cumulated.entrySet()) {
+    for (Entry<String, Long> e : profile.cumulated.entrySet()) {
       thisResult.append(e.getKey()).append(": ").append(e.getValue()).append(" ms [").append(e.getValue()/1000).append(" s]\n");
     }
     int sum = 0;
-    for (Map.Entry<Integer, Long> e : cumulatedGuardTime.entrySet()) {
+    for (Map.Entry<Integer, Long> e : profile.cumulatedGuardTime.entrySet()) {
       addEntryToString(e, thisResult, "guardTime-");
       sum += e.getValue();
     }
     thisResult.append("total time for guard checking: " + sum + " ms\n");
     sum = 0;
-    for (Map.Entry<Integer, Long> e : cumulatedDiffTime.entrySet()) {
+    for (Map.Entry<Integer, Long> e : profile.cumulatedDiffTime.entrySet()) {
       thisResult = addEntryToString(e, thisResult, "differnceTime-");
       sum += e.getValue();
     }
     thisResult.append("total time for difference: " + sum + " ms\n");
     sum = 0;
-    for (Map.Entry<Integer, Long> e : cumulatedTransitionTime.entrySet()) {
+    for (Map.Entry<Integer, Long> e : profile.cumulatedTransitionTime.entrySet()) {
       thisResult = addEntryToString(e, thisResult, "transition-");
       sum += e.getValue();
     }
     thisResult.append("total time for transition enrollment: " 
             + sum + " ms\n");
     sum = 0;
-    for (Map.Entry<Integer, Long> e : cumulatedRenamingTime.entrySet()) {
+    for (Map.Entry<Integer, Long> e : profile.cumulatedRenamingTime.entrySet()) {
       thisResult = addEntryToString(e, thisResult, "renaming-");
       sum += e.getValue();
     }
     thisResult.append("total time for renaming: " + sum + " ms\n");
 
     thisResult.append("\nStates enrollment over time\n");
-    for (Map.Entry<Integer, Integer> e : newStates.entrySet()) {
+    for (Map.Entry<Integer, Integer> e : profile.newStates.entrySet()) {
       thisResult.append("depth : " + e.getKey() + " has added: "
               + e.getValue() + " states\n");
     }
@@ -230,19 +262,20 @@ public class SearchProfiler {
   }
 
   public static void writeRunToFolder(String folderName, String prefix) {
+    SearchProfiler profile = SearchSession.current().getProfiler();
     String currentDateSuffix
             = new SimpleDateFormat("yyyyMMddhhmm'.csv'").format(new Date());
     if(prefix == null){
       prefix = "";
     }
     String fileName = folderName + prefix + "guardTimes-" + currentDateSuffix;
-    writeResultToFile(cumulatedGuardTime, fileName);
+    writeResultToFile(profile.cumulatedGuardTime, fileName);
     fileName = folderName + prefix + "differenceTimes-" + currentDateSuffix;
-    writeResultToFile(cumulatedDiffTime, fileName);
+    writeResultToFile(profile.cumulatedDiffTime, fileName);
     fileName = folderName + prefix + "transitionTimes-" + currentDateSuffix;
-    writeResultToFile(cumulatedTransitionTime, fileName);
+    writeResultToFile(profile.cumulatedTransitionTime, fileName);
     fileName = folderName + prefix + "renamingTimes-" + currentDateSuffix;
-    writeResultToFile(cumulatedRenamingTime, fileName);
+    writeResultToFile(profile.cumulatedRenamingTime, fileName);
     fileName = folderName + prefix + "profilerOverview-" + currentDateSuffix;
     writeResultToFile(getResults(), fileName);
   }
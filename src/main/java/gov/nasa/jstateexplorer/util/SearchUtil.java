@@ -79,10 +79,9 @@ public class SearchUtil<T extends SearchIterationImage> {
   private Region rename(Region existingRegion,
           Set<Variable<?>> variablesInPreviousState) {
     Map<Variable, Variable> renamings = new HashMap<>();
+    SymbolTable symbols = SymbolTable.getInstance();
     for (Variable var : variablesInPreviousState) {
-      String primeName = var.getName() + "'";
-      Variable primeVar = new Variable(var.getType(), primeName);
-      renamings.put(primeVar, var);
+      renamings.put(symbols.getPrimeVariable(var), var);
     }
     return util.rename(existingRegion, renamings);
   }
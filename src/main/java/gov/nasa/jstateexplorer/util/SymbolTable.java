@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jstateexplorer.SearchSession;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Interns the variables of a search to stable integer ids.
+ * Base variables, their primed versions and the variables renamed
+ * during the search are all kept in the table, so each of them is created
+ * only once and the prime of a variable is an array lookup afterwards.
+ * The Variable instances are created by the ExpressionFactory of the
+ * session, so they are shared with the interned expressions.
+ * Variables not created by the table are resolved by their name.
+ * Lookups of known variables don't lock, only adding a variable does.
+ * The fresh variables generated by a search are interned with
+ * internGenerated. Together with their primes and step renamings, they are
+ * released at the end of the search and their ids are reused, so the table
+ * doesn't grow with the number of searches.
+ * There is one symbol table per SearchSession.
+ */
+public class SymbolTable {
+
+  public static final String STATE_VARIABLE_SUFFIX = "_sv_";
+  public static final String PARAMETER_SUFFIX = "_p_";
+
+  private static final int NO_ID = -1;
+
+  private final ExpressionFactory factory;
+  private final ConcurrentHashMap<String, Integer> idsByName;
+  //The arrays are replaced, when they grow. A slot is written before the
+  //name is published in idsByName.
+  private volatile Variable<?>[] variables;
+  private volatile AtomicIntegerArray primes;
+  //Guarded by this.
+  private final BitSet generated;
+  private final BitSet released;
+  private int nextId;
+
+  public SymbolTable(ExpressionFactory factory) {
+    this.factory = factory;
+    this.idsByName = new ConcurrentHashMap<>();
+    this.variables = new Variable<?>[16];
+    this.primes = newPrimes(16);
+    this.generated = new BitSet();
+    this.released = new BitSet();
+    this.nextId = 0;
+  }
+
+  public static SymbolTable getInstance() {
+    return SearchSession.current().getSymbolTable();
+  }
+
+  public int getId(Variable<?> var) {
+    return intern(var.getType(), var.getName());
+  }
+
+  /**
+   * Returns the id of the variable with the given name.
+   * The variable is added to the table, if it is not known yet.
+   */
+  public int intern(Type<?> type, String name) {
+    Integer id = idsByName.get(name);
+    if (id != null) {
+      return checkType(id, type);
+    }
+    return add(type, name, false);
+  }
+
+  /**
+   * Like intern, but the variable is released by releaseGenerated.
+   * It is meant for the fresh variables created during a search.
+   */
+  public int internGenerated(Type<?> type, String name) {
+    Integer id = idsByName.get(name);
+    if (id != null) {
+      return checkType(id, type);
+    }
+    return add(type, name, true);
+  }
+
+  public Variable<?> getVariable(int id) {
+    return variables[id];
+  }
+
+  public int getPrime(int id) {
+    int prime = primes.get(id);
+    if (prime == NO_ID) {
+      prime = addPrime(id);
+    }
+    return prime;
+  }
+
+  public <E> Variable<E> getPrimeVariable(Variable<E> var) {
+    return (Variable<E>) getVariable(getPrime(getId(var)));
+  }
+
+  /**
+   * Returns the id of the variable renamed for the given step,
+   * e.g. x_sv_3 for the state variable x and the suffix _sv_.
+   */
+  public int getInStep(int id, String suffix, long step) {
+    Variable<?> var = variables[id];
+    String name = var.getName() + suffix + step;
+    Integer inStep = idsByName.get(name);
+    if (inStep != null) {
+      return checkType(inStep, var.getType());
+    }
+    return addDerived(id, name);
+  }
+
+  /**
+   * Releases the generated variables together with the variables derived
+   * from them. The ids of the released variables are reused, so the
+   * ExpressionMetadata of the session has to be cleared as well.
+   * It must not run concurrently to a search using the table.
+   * Returns the number of released variables.
+   */
+  public synchronized int releaseGenerated() {
+    Variable<?>[] vars = variables;
+    AtomicIntegerArray primeIds = primes;
+    for (int id = 0; id < nextId; id++) {
+      int prime = primeIds.get(id);
+      if (prime != NO_ID && generated.get(prime)) {
+        primeIds.set(id, NO_ID);
+      }
+    }
+    int count = 0;
+    for (int id = generated.nextSetBit(0); id >= 0;
+            id = generated.nextSetBit(id + 1)) {
+      idsByName.remove(vars[id].getName());
+      vars[id] = null;
+      primeIds.set(id, NO_ID);
+      count++;
+    }
+    released.or(generated);
+    generated.clear();
+    return count;
+  }
+
+  public ExpressionFactory getExpressionFactory() {
+    return factory;
+  }
+
+  public int size() {
+    return idsByName.size();
+  }
+
+  private int checkType(int id, Type<?> type) {
+    Variable<?> known = variables[id];
+    if (!known.getType().equals(type)) {
+      throw new IllegalStateException("The variable " + known.getName()
+              + " is used with type " + known.getType() + " and " + type);
+    }
+    return id;
+  }
+
+  private synchronized int add(Type<?> type, String name,
+          boolean isGenerated) {
+    Integer known = idsByName.get(name);
+    if (known != null) {
+      return checkType(known, type);
+    }
+    int id = released.nextSetBit(0);
+    if (id >= 0) {
+      released.clear(id);
+    } else {
+      id = nextId++;
+    }
+    if (id >= variables.length) {
+      int length = variables.length * 2;
+      AtomicIntegerArray grown = newPrimes(length);
+      for (int i = 0; i < variables.length; i++) {
+        grown.set(i, primes.get(i));
+      }
+      primes = grown;
+      variables = Arrays.copyOf(variables, length);
+    }
+    variables[id] = factory.variable(type, name);
+    generated.set(id, isGenerated);
+    idsByName.put(name, id);
+    return id;
+  }
+
+  /**
+   * Variables derived from a generated variable are generated as well.
+   */
+  private synchronized int addDerived(int id, String name) {
+    return add(variables[id].getType(), name, generated.get(id));
+  }
+
+  private synchronized int addPrime(int id) {
+    int prime = primes.get(id);
+    if (prime == NO_ID) {
+      prime = addDerived(id, variables[id].getName() + "'");
+      primes.set(id, prime);
+    }
+    return prime;
+  }
+
+  private static AtomicIntegerArray newPrimes(int length) {
+    AtomicIntegerArray primes = new AtomicIntegerArray(length);
+    for (int i = 0; i < length; i++) {
+      primes.set(i, NO_ID);
+    }
+    return primes;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A renaming of variables stored as int to int array over the ids
+ * of a SymbolTable. It replaces the NameMap on the renaming hot paths:
+ * Looking up a variable is an array access instead of hashing its name
+ * and the renamed variables are the interned instances of the table.
+ * Shared subexpressions are renamed only once.
+ */
+public class VariableRenaming {
+
+  private static final int UNCHANGED = -1;
+
+  private final SymbolTable table;
+  private int[] targets;
+  private int size;
+
+  public VariableRenaming(SymbolTable table) {
+    this.table = table;
+    this.targets = new int[Math.max(table.size(), 16)];
+    Arrays.fill(targets, UNCHANGED);
+  }
+
+  public VariableRenaming(VariableRenaming other) {
+    this.table = other.table;
+    this.targets = other.targets.clone();
+    this.size = other.size;
+  }
+
+  public void map(int from, int to) {
+    if (from >= targets.length) {
+      int oldLength = targets.length;
+      targets = Arrays.copyOf(targets, Math.max(oldLength * 2, from + 1));
+      Arrays.fill(targets, oldLength, targets.length, UNCHANGED);
+    }
+    if (targets[from] == UNCHANGED) {
+      ++size;
+    }
+    targets[from] = to;
+  }
+
+  public void map(Variable<?> from, Variable<?> to) {
+    map(table.getId(from), table.getId(to));
+  }
+
+  public int apply(int id) {
+    if (id < targets.length && targets[id] != UNCHANGED) {
+      return targets[id];
+    }
+    return id;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Renames all variables in the expression including the bound variables
+   * of quantifiers, the same way ExpressionUtil.renameVars does.
+   * The result is interned by the ExpressionFactory of the symbol table.
+   */
+  public <E> Expression<E> apply(Expression<E> expr) {
+    if (expr == null || isEmpty()) {
+      return expr;
+    }
+    return (Expression<E>) rename(expr, new IdentityHashMap<>(),
+            table.getExpressionFactory());
+  }
+
+  private Expression<?> rename(Expression<?> expr,
+          Map<Expression<?>, Expression<?>> renamed,
+          ExpressionFactory factory) {
+    Expression<?> result = renamed.get(expr);
+    if (result != null) {
+      return result;
+    }
+    if (expr instanceof Variable) {
+      int id = table.getId((Variable<?>) expr);
+      int target = apply(id);
+      result = target == id ? expr : table.getVariable(target);
+    } else if (expr instanceof QuantifierExpression) {
+      QuantifierExpression quantified = (QuantifierExpression) expr;
+      List<Variable<?>> bound = new ArrayList<>();
+      for (Variable<?> var : quantified.getBoundVariables()) {
+        bound.add((Variable<?>) rename(var, renamed, factory));
+      }
+      Expression<Boolean> body = (Expression<Boolean>) rename(
+              quantified.getBody(), renamed, factory);
+      result = factory.quantifier(quantified.getQuantifier(), bound, body);
+    } else {
+      Expression<?>[] children = expr.getChildren();
+      Expression<?>[] renamedChildren = new Expression<?>[children.length];
+      boolean changed = false;
+      for (int i = 0; i < children.length; i++) {
+        renamedChildren[i] = rename(children[i], renamed, factory);
+        changed |= renamedChildren[i] != children[i];
+      }
+      Expression node = changed ? expr.duplicate(renamedChildren) : expr;
+      result = factory.intern(node);
+    }
+    renamed.put(expr, result);
+    return result;
+  }
+}
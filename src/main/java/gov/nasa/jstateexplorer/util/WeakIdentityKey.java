@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The PSYCO: A Predicate-based Symbolic Compositional Reasoning environment 
+ * platform is licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may obtain a 
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed 
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR 
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the 
+ * specific language governing permissions and limitations under the License.
+ */
+package gov.nasa.jstateexplorer.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A weak reference usable as hash map key that compares its referent by
+ * identity. A key without queue can be used for lookups. Once the referent
+ * is collected, the key only equals itself, so the entry has to be removed
+ * with the key polled from the queue.
+ */
+class WeakIdentityKey<T> extends WeakReference<T> {
+
+  private final int hash;
+
+  WeakIdentityKey(T referent, ReferenceQueue<? super T> queue) {
+    super(referent, queue);
+    this.hash = System.identityHashCode(referent);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof WeakIdentityKey)) {
+      return false;
+    }
+    Object referent = get();
+    return referent != null && referent == ((WeakIdentityKey<?>) obj).get();
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -38,10 +38,9 @@ public class EnumerativeRegionUtil
           Map<Variable, Variable> renamings) {
     EnumerativeRegion toBeRenamed = (EnumerativeRegion) region;
     EnumerativeRegion renamedRegion = toBeRenamed.createNewRegion();
-    for (String key : region.keySet()) {
-      EnumerativeState state = region.get(key);
-      state = renameState(state, renamings);
-      renamedRegion.put(key, state);
+    for (Map.Entry<String, EnumerativeState> entry : region.entrySet()) {
+      EnumerativeState state = renameState(entry.getValue(), renamings);
+      renamedRegion.append(entry.getKey(), state);
     }
     return renamedRegion;
   }
@@ -17,17 +17,22 @@ package gov.nasa.jstateexplorer.util.region;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.api.Variable;
-import gov.nasa.jpf.constraints.expressions.Negation;
 import gov.nasa.jpf.constraints.expressions.Quantifier;
-import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.types.Type;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import gov.nasa.jstateexplorer.datastructures.region.Region;
 import gov.nasa.jstateexplorer.datastructures.state.State;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
+import gov.nasa.jstateexplorer.util.SymbolTable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -43,21 +48,46 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
   ConstraintSolver solver;
   protected final Logger logger;
 
+  private boolean incrementalDifference;
+  private SolverContext differenceContext;
+  private Set<State<?>> excludedInContext;
+
   public RegionUtil(ConstraintSolver solver) {
     this.solver = solver;
     this.unique = 1L;
+    this.incrementalDifference = false;
     logger = Logger.getLogger("psyco");
   }
 
+  /**
+   * In the incremental mode, the negated reached region is asserted once in
+   * a persistent solver context and only grows by the newly accepted states.
+   * Each candidate is checked with push/pop instead of rebuilding
+   * the whole excluded region for every state.
+   * @param incrementalDifference true enables the incremental mode.
+   */
+  public void setIncrementalDifference(boolean incrementalDifference) {
+    this.incrementalDifference = incrementalDifference;
+  }
+
+  public boolean isIncrementalDifference() {
+    return incrementalDifference;
+  }
+
+  /**
+   * The union shares the states of regionA and appends the states of
+   * regionB as a new segment. regionA is not changed.
+   */
   public T union(T regionA, T regionB) {
     T union = (T) regionA.createNewRegion();
-    union.putAll(regionA);
-    for (String key : regionB.keySet()) {
+    union.share(regionA);
+    union.markSegment();
+    for (Map.Entry<String, V> entry : regionB.entrySet()) {
       //This assumes, that state names are unique to work!
-      if (union.containsKey(key)) {
+      if (union.containsKey(entry.getKey())) {
         continue;
       }
-      union.put(key, regionB.get(key));
+      union.append(entry.getKey(), entry.getValue());
     }
     return union;
   }
@@ -68,6 +98,9 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
 
   public T difference(T outterRegion, T excludedRegion,
           ConstraintSolver solver) {
+    if (incrementalDifference) {
+      return incrementalDifference(outterRegion, excludedRegion, solver);
+    }
     T resultRegion = (T) outterRegion.createNewRegion();
     Expression notRegion = null;
     if (null == excludedRegion || excludedRegion.isEmpty()) {
@@ -79,13 +112,15 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
     }
     logger.finer("gov.nasa.jpf.psyco.search.region."
             + "util.RegionUtil.difference()");
-    for (String key : outterRegion.keySet()) {
+    for (Map.Entry<String, V> entry : outterRegion.entrySet()) {
+      String key = entry.getKey();
       Expression excludedRegionExpr = convertSetToExpression(toExclude);
       Set<Variable<?>> stateVariables = convertToVariableSet(excludedRegion);
-      notRegion = new Negation(excludedRegionExpr);
+      notRegion = ExpressionFactory.getInstance()
+              .negation(excludedRegionExpr);
       notRegion
               = bindParameters(notRegion, stateVariables, Quantifier.FORALL);
-      V state = outterRegion.get(key);
+      V state = entry.getValue();
       Expression stateRegion = state.toExpression();
       Set<Variable<?>> newStateVariables = convertToVariableSet(state);
       newStateVariables.addAll(stateVariables);
@@ -94,7 +129,8 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
                       newStateVariables, Quantifier.EXISTS);
       logger.finer("stateRegion: " + stateRegion);
       logger.finer("notRegion: "+ notRegion);
-      Expression testDiffState = ExpressionUtil.and(stateRegion, notRegion);
+      Expression testDiffState
+              = ExpressionFactory.getInstance().and(stateRegion, notRegion);
       long start = System.currentTimeMillis();
       Valuation val = new Valuation();
       logger.finest("Diff state for test: " + testDiffState.toString());
@@ -116,16 +152,113 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
     return resultRegion;
   }
 
+  /**
+   * Computes the same difference as difference, but keeps the negated
+   * excluded region in a solver context across calls. The excluded region is
+   * expected to only grow between two calls, as the reachable region does
+   * in the search loop. States already asserted are skipped. If a state
+   * asserted before is missing in the excluded region, the context is
+   * rebuilt from the excluded region.
+   */
+  public T incrementalDifference(T outterRegion, T excludedRegion,
+          ConstraintSolver solver) {
+    if (null == excludedRegion || excludedRegion.isEmpty()) {
+      return outterRegion;
+    }
+    T resultRegion = (T) outterRegion.createNewRegion();
+    SolverContext ctx = getDifferenceContext(solver);
+    Set<Variable<?>> stateVariables = convertToVariableSet(excludedRegion);
+    int asserted = excludedInContext.size();
+    int stillExcluded = 0;
+    for (V state : excludedRegion.values()) {
+      if (!excludeInContext(ctx, state, stateVariables)) {
+        ++stillExcluded;
+      }
+    }
+    if (stillExcluded < asserted) {
+      logger.fine("The excluded region shrank. The difference context "
+              + "is rebuilt.");
+      dispose();
+      ctx = getDifferenceContext(solver);
+      for (V state : excludedRegion.values()) {
+        excludeInContext(ctx, state, stateVariables);
+      }
+    }
+    logger.finer("gov.nasa.jpf.psyco.search.region."
+            + "util.RegionUtil.incrementalDifference()");
+    for (Map.Entry<String, V> entry : outterRegion.entrySet()) {
+      String key = entry.getKey();
+      V state = entry.getValue();
+      Set<Variable<?>> newStateVariables = convertToVariableSet(state);
+      newStateVariables.addAll(stateVariables);
+      Expression stateRegion
+              = bindParameters(state.toExpression(),
+                      newStateVariables, Quantifier.EXISTS);
+      logger.finer("stateRegion: " + stateRegion);
+      ctx.push();
+      ctx.add(stateRegion);
+      ConstraintSolver.Result rs = ctx.isSatisfiable();
+      ctx.pop();
+      if (rs == ConstraintSolver.Result.SAT) {
+        resultRegion.put(key, state);
+        excludeInContext(ctx, state, stateVariables);
+        logger.finer("excludedSize: " + excludedInContext.size());
+      } else if (rs == ConstraintSolver.Result.DONT_KNOW) {
+        throw new IllegalStateException("Cannot compute difference test");
+      } else {
+        logger.finer("result: " + rs);
+      }
+    }
+    return resultRegion;
+  }
+
+  /**
+   * Releases the solver context used by the incremental difference.
+   * The next incremental difference starts with an empty context again.
+   */
+  public void dispose() {
+    if (differenceContext != null) {
+      differenceContext.dispose();
+      differenceContext = null;
+      excludedInContext = null;
+    }
+  }
+
+  private SolverContext getDifferenceContext(ConstraintSolver solver) {
+    if (differenceContext == null) {
+      differenceContext = solver.createContext();
+      excludedInContext
+              = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+    return differenceContext;
+  }
+
+  //Forall x. not(A or B) is equivalent to (Forall x. not A)
+  //and (Forall x. not B), so each state can be excluded on its own.
+  //Returns false, if the state has been excluded before.
+  private boolean excludeInContext(SolverContext ctx, State<?> state,
+          Set<Variable<?>> stateVariables) {
+    if (!excludedInContext.add(state)) {
+      return false;
+    }
+    Expression notState
+            = ExpressionFactory.getInstance().negation(state.toExpression());
+    notState = bindParameters(notState, stateVariables, Quantifier.FORALL);
+    logger.finest("exclude: " + notState);
+    ctx.add(notState);
+    return true;
+  }
+
   public T exists(T aRegion, Set<Variable<?>> subsetOfVariables) {
     T existingRegion = (T) aRegion.createNewRegion();
     if (aRegion.isEmpty()) {
       return existingRegion;
     }
-    for (String key : aRegion.keySet()) {
-      State<?> state = aRegion.get(key);
+    for (Map.Entry<String, V> stateEntry : aRegion.entrySet()) {
+      State<?> state = stateEntry.getValue();
       for (ValuationEntry entry : state) {
         if (!subsetOfVariables.contains(entry.getVariable())) {
-          existingRegion.put(key, (V) state);
+          existingRegion.put(stateEntry.getKey(), (V) state);
           break;
         }
       }
@@ -163,9 +296,23 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
     return uniqueName;
   }
 
+  protected Variable getUniqueVariable(Type<?> type) {
+    SymbolTable symbols = SymbolTable.getInstance();
+    return symbols.getVariable(
+            symbols.internGenerated(type, getUniqueName()));
+  }
+
+  protected Variable getUniqueParameter(Variable parameter) {
+    SymbolTable symbols = SymbolTable.getInstance();
+    String name = getUniqueParameterName(parameter);
+    return symbols.getVariable(
+            symbols.internGenerated(parameter.getType(), name));
+  }
+
   private Expression bindParameters(Expression region,
           Set<Variable<?>> stateVariables, Quantifier quantifier) {
-    Set<Variable<?>> freeVars = ExpressionUtil.freeVariables(region);
+    Set<Variable<?>> freeVars
+            = ExpressionMetadata.getInstance().freeVariables(region);
     ArrayList<Variable<?>> bound = new ArrayList<>();
     for (Variable var : freeVars) {
       if (!stateVariables.contains(var)
@@ -177,7 +324,8 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
       }
     }
     if (!bound.isEmpty()) {
-      region = new QuantifierExpression(quantifier, bound, region);
+      region = ExpressionFactory.getInstance()
+              .quantifier(quantifier, bound, region);
     }
     return region;
   }
@@ -186,7 +334,8 @@ public abstract class RegionUtil<V extends State<?>, T extends Region<?, V>> {
     Expression expr = null;
     for (State state : states) {
       Expression stateExpr = state.toExpression();
-      expr = expr == null ? stateExpr : ExpressionUtil.or(expr, stateExpr);
+      expr = expr == null ? stateExpr
+              : ExpressionFactory.getInstance().or(expr, stateExpr);
     }
     return expr;
   }
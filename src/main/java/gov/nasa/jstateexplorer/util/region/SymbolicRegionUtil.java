@@ -18,12 +18,13 @@ package gov.nasa.jstateexplorer.util.region;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Variable;
-import gov.nasa.jpf.constraints.util.ExpressionUtil;
-import gov.nasa.jstateexplorer.datastructures.NameMap;
 import gov.nasa.jstateexplorer.datastructures.region.Region;
 import gov.nasa.jstateexplorer.datastructures.region.SymbolicRegion;
 import gov.nasa.jstateexplorer.datastructures.state.SymbolicEntry;
 import gov.nasa.jstateexplorer.datastructures.state.SymbolicState;
+import gov.nasa.jstateexplorer.util.ExpressionMetadata;
+import gov.nasa.jstateexplorer.util.SymbolTable;
+import gov.nasa.jstateexplorer.util.VariableRenaming;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,12 +39,12 @@ public class SymbolicRegionUtil
   public SymbolicRegion rename(SymbolicRegion region,
           Map<Variable, Variable> renamings) {
     SymbolicRegion resultingRegion = region.createNewRegion();
-    for (String key : region.keySet()) {
-      SymbolicState state = region.get(key);
+    for (Map.Entry<String, SymbolicState> entry : region.entrySet()) {
+      SymbolicState state = entry.getValue();
       if(!state.isEmpty()){
           SymbolicState renamedState =
                   renameState(state, renamings);
-          resultingRegion.put(key, renamedState);
+          resultingRegion.append(entry.getKey(), renamedState);
       }
     }
     return resultingRegion;
@@ -58,7 +59,8 @@ public class SymbolicRegionUtil
       logger.finest("Var: " + entry.getVariable() + " : " + entry.getValue());
     }
     Set<Variable<?>> variablesInTheState
-            = ExpressionUtil.freeVariables(state.toExpression());
+            = ExpressionMetadata.getInstance()
+                    .freeVariables(state.toExpression());
     logger.finest("gov.nasa.jpf.psyco.search.region"
             + ".util.SymbolicRegionUtil.renameState()");
     logger.finest("State bevor rename: " + state.toExpression().toString());
@@ -71,9 +73,7 @@ public class SymbolicRegionUtil
     }
     for (Variable var : variablesInTheState) {
       if (!var.getName().startsWith("uVarReplacement")) {
-        String newParameterName = getUniqueParameterName(var);
-        Variable newParameter
-                = new Variable(var.getType(), newParameterName);
+        Variable newParameter = getUniqueParameter(var);
         state
                 = renameParameterInEntrys(state, var, newParameter);
       }
@@ -86,23 +86,24 @@ public class SymbolicRegionUtil
   private SymbolicState renameAllVariableEntrys(
           SymbolicState oldState, Variable primeName, Variable varibaleName) {
     SymbolicState renamedState = new SymbolicState();
-    renamedState.setHistory(oldState.getHistory());
-    NameMap renameVariable = new NameMap();
-    renameVariable.mapNames(varibaleName.getName(), getUniqueName());
-    logger.finest("renameMap: " + renameVariable.toString());
+    renamedState.setHistory(oldState.getHistoryNode());
+    SymbolTable symbols = SymbolTable.getInstance();
+    VariableRenaming renameVariable = new VariableRenaming(symbols);
+    Variable uniqueVariable = getUniqueVariable(varibaleName.getType());
+    renameVariable.map(varibaleName, uniqueVariable);
+    logger.finest("rename: " + varibaleName + " -> " + uniqueVariable);
     for (SymbolicEntry entry : oldState) {
       Expression value = (Expression) entry.getValue();
-      value = ExpressionUtil.renameVars(value, renameVariable);
+      value = renameVariable.apply(value);
       if (entry.getVariable().equals(primeName)) {
-        NameMap rename = new NameMap();
-        rename.mapNames(primeName.getName(), varibaleName.getName());
-        logger.finest("renameMap: " + rename.toString());
-        value = ExpressionUtil.renameVars(value, rename);
+        VariableRenaming rename = new VariableRenaming(symbols);
+        rename.map(primeName, varibaleName);
+        logger.finest("rename: " + primeName + " -> " + varibaleName);
+        value = rename.apply(value);
         SymbolicEntry newEntry = new SymbolicEntry(varibaleName, value);
         renamedState.add(newEntry);
       } else {
-        entry.setValue(value);
-        renamedState.add(entry);
+        renamedState.add(new SymbolicEntry(entry.getVariable(), value));
       }
     }
     return renamedState;
@@ -111,12 +112,12 @@ public class SymbolicRegionUtil
   private SymbolicState renameParameterInEntrys(SymbolicState renamedState,
           Variable var, Variable newParameter) {
     SymbolicState resultState = new SymbolicState();
-    resultState.setHistory(renamedState.getHistory());
-    NameMap rename = new NameMap();
-    rename.mapNames(var.getName(), newParameter.getName());
+    resultState.setHistory(renamedState.getHistoryNode());
+    VariableRenaming rename = new VariableRenaming(SymbolTable.getInstance());
+    rename.map(var, newParameter);
     for (SymbolicEntry entry : renamedState) {
       Expression valueExpression = entry.getValue();
-      valueExpression = ExpressionUtil.renameVars(valueExpression, rename);
+      valueExpression = rename.apply(valueExpression);
       resultState.add(new SymbolicEntry(entry.getVariable(), valueExpression));
     }
     return resultState;
@@ -0,0 +1,444 @@
+package gov.nasa.jstateexplorer;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
+import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
+import gov.nasa.jstateexplorer.datastructures.searchImage.SearchIterationImage;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.transitionSystem.EnumerativeTransitionHelper;
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import gov.nasa.jstateexplorer.transitionSystem.TransitionSystem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the compiled explicit state search with the interpreted
+ * enumerative search.
+ */
+public class ExplicitStateSearchTest {
+
+  private final Variable<Integer> x = new Variable<>(BuiltinTypes.SINT32, "x");
+  private final Variable<Integer> y = new Variable<>(BuiltinTypes.SINT32, "y");
+
+  private ConstraintSolver solver;
+
+  @BeforeMethod
+  public void setUp() {
+    Properties conf = new Properties();
+    conf.setProperty("symbolic.dp", "Z3");
+    conf.setProperty("symbolic.dp.z3.bitvectors", "false");
+    solver = ConstraintSolverFactory.createSolver(conf);
+  }
+
+  @Test
+  public void compiledSearchMatchesInterpretedSearch() {
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(lt(x, 5), plus(x, 1), y),
+            ok(and(lt(y, 3), ge(x, 2)), x, plus(y, 1)),
+            error(and(ge(x, 5), ge(y, 3))));
+    assertSameResult(system, false);
+    assertSameResult(system, true);
+  }
+
+  @Test
+  public void guardedDivisionIsCompiled() {
+    Expression<Boolean> divides = new NumericBooleanExpression(
+            new NumericCompound<>(x, NumericOperator.DIV, y),
+            NumericComparator.GT, constant(0));
+    Supplier<TransitionSystem> system = () -> system(1, 0,
+            ok(lt(y, 2), x, plus(y, 1)),
+            ok(and(new NumericBooleanExpression(y, NumericComparator.NE,
+                    constant(0)), and(divides, lt(x, 4))), plus(x, 1), y));
+    assertSameResult(system, false);
+    assertSameResult(system, true);
+  }
+
+  @Test
+  public void divisionByZeroIsSolved() {
+    //The guard divides by zero in the initial state.
+    Expression<Boolean> divides = new NumericBooleanExpression(
+            new NumericCompound<>(x, NumericOperator.DIV, y),
+            NumericComparator.GE, constant(0));
+    Supplier<TransitionSystem> system = () -> system(1, 0,
+            ok(lt(y, 2), x, plus(y, 1)),
+            ok(and(divides, lt(x, 3)), plus(x, 1), y));
+    assertSameResult(system, false);
+    assertSameResult(system, true);
+  }
+
+  @Test
+  public void parallelSearchMatchesSerialSearch() throws IOException {
+    //The visited set has to grow several times during the search.
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(lt(x, 60), plus(x, 1), y),
+            ok(lt(y, 60), x, plus(y, 1)),
+            error(and(ge(x, 60), ge(y, 60))));
+    SearchConfig serialConfig = new SearchConfig();
+    serialConfig.setExplicitStateHashing(true);
+    EnumerativeImage serial = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    serialConfig, Logger.getLogger("psyco"));
+    assertEquals(states(serial).size(), 61 * 61);
+    for (boolean frontier : new boolean[]{false, true}) {
+      SearchConfig parallelConfig = new SearchConfig();
+      parallelConfig.setExplicitStateHashing(true);
+      parallelConfig.setParallelism(4);
+      if (frontier) {
+        parallelConfig.setFrontierDirectory(
+                Files.createTempDirectory("frontier").toString());
+        parallelConfig.setFrontierReachableStates(true);
+      }
+      EnumerativeImage parallel = EnumerativeSearchEngine
+              .enumerativBreadthFirstSearch(system.get(), solver,
+                      parallelConfig, Logger.getLogger("psyco"));
+      assertEquals(parallel.getDepth(), serial.getDepth());
+      assertEquals(states(parallel), states(serial));
+      assertEquals(states(parallel.getPreviousNewStates()),
+              states(serial.getPreviousNewStates()));
+      assertEquals(parallel.reachableErrorsAsString(),
+              serial.reachableErrorsAsString());
+    }
+  }
+
+  @Test
+  public void solvedSuccessorsFitIntoTheParallelVisitedSet() {
+    //The solver may choose any value for a division by zero, so the
+    //fallback finds more successors than the headroom of the chunk.
+    Expression<Integer> divideByY
+            = new NumericCompound<>(x, NumericOperator.DIV, y);
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(new NumericBooleanExpression(y, NumericComparator.EQ,
+                    constant(0)), divideByY, constant(1)));
+    SearchConfig serialConfig = new SearchConfig();
+    serialConfig.setExplicitStateHashing(true);
+    serialConfig.setSuccessorLimit(3000);
+    EnumerativeImage serial = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    serialConfig, Logger.getLogger("psyco"));
+    SearchConfig parallelConfig = new SearchConfig();
+    parallelConfig.setExplicitStateHashing(true);
+    parallelConfig.setSuccessorLimit(3000);
+    parallelConfig.setParallelism(2);
+    EnumerativeImage parallel = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    parallelConfig, Logger.getLogger("psyco"));
+    assertTrue(states(serial).size() > 1000);
+    assertEquals(states(parallel), states(serial));
+  }
+
+  @Test
+  public void frontierSearchMatchesStateListSearch() throws IOException {
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(lt(x, 5), plus(x, 1), y),
+            ok(and(lt(y, 3), ge(x, 2)), x, plus(y, 1)),
+            error(and(ge(x, 5), ge(y, 3))));
+    SearchConfig listConfig = new SearchConfig();
+    listConfig.setExplicitStateHashing(true);
+    listConfig.setMaxSearchDepth(4);
+    EnumerativeImage list = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    listConfig, Logger.getLogger("psyco"));
+    for (boolean reachableStates : new boolean[]{false, true}) {
+      SearchConfig frontierConfig = new SearchConfig();
+      frontierConfig.setExplicitStateHashing(true);
+      frontierConfig.setMaxSearchDepth(4);
+      frontierConfig.setFrontierDirectory(
+              Files.createTempDirectory("frontier").toString());
+      frontierConfig.setFrontierReachableStates(reachableStates);
+      EnumerativeImage frontier = EnumerativeSearchEngine
+              .enumerativBreadthFirstSearch(system.get(), solver,
+                      frontierConfig, Logger.getLogger("psyco"));
+      assertEquals(frontier.getDepth(), list.getDepth());
+      assertEquals(states(frontier), reachableStates ? states(list)
+              : states(system.get().getInitValuation()));
+      assertEquals(states(frontier.getPreviousNewStates()),
+              states(list.getPreviousNewStates()));
+      assertEquals(frontier.reachableErrorsAsString(),
+              list.reachableErrorsAsString());
+    }
+  }
+
+  @Test
+  public void approximateSetKeepsOnlyTheInitialStates() throws IOException {
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(lt(x, 5), plus(x, 1), y),
+            ok(and(lt(y, 3), ge(x, 2)), x, plus(y, 1)),
+            error(and(ge(x, 5), ge(y, 3))));
+    SearchConfig exactConfig = new SearchConfig();
+    exactConfig.setExplicitStateHashing(true);
+    EnumerativeImage exact = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    exactConfig, Logger.getLogger("psyco"));
+    SearchConfig approximateConfig = new SearchConfig();
+    approximateConfig.setExplicitStateHashing(true);
+    approximateConfig.setHashCompaction(true);
+    try {
+      EnumerativeSearchEngine.enumerativBreadthFirstSearch(system.get(),
+              solver, approximateConfig, Logger.getLogger("psyco"));
+      fail("An approximate visited set needs a frontier.");
+    } catch (IllegalArgumentException expected) {
+    }
+    //The same holds, if the transitions are not compiled.
+    Variable<Integer> p = new Variable<>(BuiltinTypes.SINT32, "p");
+    TransitionSystem interpreted = system(0, 0,
+            ok(and(lt(x, 5), new NumericBooleanExpression(p,
+                    NumericComparator.EQ, constant(1))), plus(x, 1), p));
+    try {
+      EnumerativeSearchEngine.enumerativBreadthFirstSearch(interpreted,
+              solver, approximateConfig, Logger.getLogger("psyco"));
+      fail("An approximate visited set needs a frontier.");
+    } catch (IllegalArgumentException expected) {
+    }
+    approximateConfig.setFrontierDirectory(
+            Files.createTempDirectory("frontier").toString());
+    EnumerativeImage approximate = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    approximateConfig, Logger.getLogger("psyco"));
+    assertEquals(approximate.getDepth(), exact.getDepth());
+    assertEquals(states(approximate), states(system.get()
+            .getInitValuation()));
+    assertEquals(states(approximate.getPreviousNewStates()),
+            states(exact.getPreviousNewStates()));
+    assertEquals(approximate.reachableErrorsAsString(),
+            exact.reachableErrorsAsString());
+  }
+
+  @Test
+  public void resumedSearchStopsAtTheMaximalDepth() throws IOException {
+    Supplier<TransitionSystem> system = () -> system(0, 0,
+            ok(lt(x, 5), plus(x, 1), y),
+            ok(and(lt(y, 3), ge(x, 2)), x, plus(y, 1)));
+    SearchConfig config = new SearchConfig();
+    config.setExplicitStateHashing(true);
+    config.setMaxSearchDepth(3);
+    config.setVisitedStateStore(
+            Files.createTempDirectory("store").toString());
+    EnumerativeImage first = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver, config,
+                    Logger.getLogger("psyco"));
+    config.setMaxSearchDepth(2);
+    EnumerativeImage resumed = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver, config,
+                    Logger.getLogger("psyco"));
+    assertEquals(first.getDepth(), Integer.MAX_VALUE);
+    assertEquals(resumed.getDepth(), Integer.MAX_VALUE);
+    assertEquals(states(resumed), states(first));
+    assertEquals(states(resumed.getPreviousNewStates()),
+            states(first.getPreviousNewStates()));
+  }
+
+  @Test
+  public void interpretedSearchRejectsACheckpoint() throws IOException {
+    Variable<Integer> p = new Variable<>(BuiltinTypes.SINT32, "p");
+    Supplier<TransitionSystem> interpreted = () -> system(0, 0,
+            ok(and(lt(x, 3), new NumericBooleanExpression(p,
+                    NumericComparator.EQ, constant(1))), plus(x, 1), p));
+    SearchConfig config = new SearchConfig();
+    config.setExplicitStateHashing(true);
+    config.setVisitedStateStore(
+            Files.createTempDirectory("store").toString());
+    //The interpreted search writes no checkpoint, so a rerun starts over.
+    EnumerativeImage first = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(interpreted.get(), solver, config,
+                    Logger.getLogger("psyco"));
+    EnumerativeImage rerun = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(interpreted.get(), solver, config,
+                    Logger.getLogger("psyco"));
+    assertEquals(rerun.getDepth(), first.getDepth());
+    assertEquals(states(rerun), states(first));
+    assertTrue(states(first).size() > 1);
+    EnumerativeSearchEngine.enumerativBreadthFirstSearch(system(0, 0,
+            ok(lt(x, 3), plus(x, 1), y)), solver, config,
+            Logger.getLogger("psyco"));
+    try {
+      EnumerativeSearchEngine.enumerativBreadthFirstSearch(
+              interpreted.get(), solver, config, Logger.getLogger("psyco"));
+      fail("The interpreted search cannot resume a checkpoint.");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void ignoredOptionsAreReported() throws IOException {
+    Logger logger = Logger.getLogger("psyco");
+    List<String> warnings = new ArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        if (record.getLevel() == Level.WARNING) {
+          warnings.add(record.getMessage());
+        }
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    logger.addHandler(handler);
+    try {
+      SearchConfig config = new SearchConfig();
+      config.setExplicitStateHashing(true);
+      config.setHashCompaction(true);
+      config.setCollapseGroupSize(2);
+      config.setFrontierDirectory(
+              Files.createTempDirectory("frontier").toString());
+      EnumerativeSearchEngine.enumerativBreadthFirstSearch(system(0, 0,
+              ok(lt(x, 3), plus(x, 1), y)), solver, config, logger);
+      assertEquals(warnings.size(), 1);
+      assertTrue(warnings.get(0).startsWith("Collapse compression"));
+      warnings.clear();
+      config.setHashCompaction(false);
+      config.setCollapseGroupSize(0);
+      config.setVisitedStateStore(
+              Files.createTempDirectory("store").toString());
+      EnumerativeSearchEngine.enumerativBreadthFirstSearch(system(0, 0,
+              ok(lt(x, 3), plus(x, 1), y)), solver, config, logger);
+      assertEquals(warnings.size(), 1);
+      assertTrue(warnings.get(0).startsWith("The frontier is ignored"));
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  @Test
+  public void interpretedSearchRetainsAnImagePerDepth() {
+    SearchConfig config = new SearchConfig();
+    config.setRetainImages(true);
+    EnumerativeImage image = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system(0, 0,
+                    ok(lt(x, 5), plus(x, 1), y)), solver, config,
+                    Logger.getLogger("psyco"));
+    List<SearchIterationImage<EnumerativeRegion>> retained
+            = image.getRetainedImages();
+    assertEquals(retained.size(), image.getDepth());
+    for (int index = 0; index < retained.size(); index++) {
+      SearchIterationImage<EnumerativeRegion> snapshot = retained.get(index);
+      assertEquals(snapshot.getDepth(), index + 1);
+      assertEquals(snapshot.getReachableStates().size(),
+              Math.min(index + 2, 6));
+    }
+  }
+
+  private void assertSameResult(Supplier<TransitionSystem> system,
+          boolean batchEvaluation) {
+    SearchConfig interpretedConfig = new SearchConfig();
+    EnumerativeImage interpreted = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    interpretedConfig, Logger.getLogger("psyco"));
+    SearchConfig compiledConfig = new SearchConfig();
+    compiledConfig.setExplicitStateHashing(true);
+    compiledConfig.setBatchEvaluation(batchEvaluation);
+    EnumerativeImage compiled = EnumerativeSearchEngine
+            .enumerativBreadthFirstSearch(system.get(), solver,
+                    compiledConfig, Logger.getLogger("psyco"));
+    assertEquals(compiled.getDepth(), interpreted.getDepth());
+    assertEquals(states(compiled), states(interpreted));
+    assertEquals(compiled.reachableErrorsAsString(),
+            interpreted.reachableErrorsAsString());
+    assertTrue(states(compiled).size() > 1);
+  }
+
+  private static Set<String> states(EnumerativeImage image) {
+    return states(image.getReachableStates());
+  }
+
+  private static Set<String> states(Valuation valuation) {
+    return states(new EnumerativeRegion(valuation));
+  }
+
+  private static Set<String> states(EnumerativeRegion region) {
+    Set<String> states = new TreeSet<>();
+    for (EnumerativeState state : region.values()) {
+      Map<String, Object> values = new TreeMap<>();
+      for (ValuationEntry entry : state) {
+        values.put(entry.getVariable().getName(), entry.getValue());
+      }
+      states.add(values.toString());
+    }
+    return states;
+  }
+
+  private TransitionSystem system(int initX, int initY,
+          Transition... transitions) {
+    Valuation init = new Valuation();
+    init.setValue(x, initX);
+    init.setValue(y, initY);
+    TransitionSystem system = new TransitionSystem(init,
+            new EnumerativeTransitionHelper());
+    for (Transition transition : transitions) {
+      system.add(transition);
+    }
+    return system;
+  }
+
+  private Transition ok(Expression<Boolean> guard, Expression<?> xEffect,
+          Expression<?> yEffect) {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) xEffect);
+    effects.put(y, (Expression) yEffect);
+    return new Transition(guard, effects, "ok", true, false);
+  }
+
+  private static Transition error(Expression<Boolean> guard) {
+    return new Transition(guard, "error", "", "error", false, true);
+  }
+
+  private static Expression<Boolean> and(Expression<Boolean> left,
+          Expression<Boolean> right) {
+    return new PropositionalCompound(left, LogicalOperator.AND, right);
+  }
+
+  private static Expression<Boolean> lt(Variable<Integer> var, int value) {
+    return new NumericBooleanExpression(var, NumericComparator.LT,
+            constant(value));
+  }
+
+  private static Expression<Boolean> ge(Variable<Integer> var, int value) {
+    return new NumericBooleanExpression(var, NumericComparator.GE,
+            constant(value));
+  }
+
+  private static Expression<Integer> plus(Variable<Integer> var,
+          int value) {
+    return new NumericCompound<>(var, NumericOperator.PLUS, constant(value));
+  }
+
+  private static Constant<Integer> constant(int value) {
+    return new Constant<>(BuiltinTypes.SINT32, value);
+  }
+}
@@ -0,0 +1,51 @@
+package gov.nasa.jstateexplorer;
+
+import gov.nasa.jstateexplorer.transitionSystem.TransitionMonitor;
+import gov.nasa.jstateexplorer.util.HelperMethods;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that search sessions don't share their search state.
+ */
+@Test
+public class SearchSessionTest {
+
+  @Test
+  public void sessionsHaveIndependentStateNames() {
+    SearchSession first = new SearchSession();
+    SearchSession second = new SearchSession();
+    assertEquals(first.execute(() -> HelperMethods.getUniqueStateName()),
+            "state_0");
+    assertEquals(first.execute(() -> HelperMethods.getUniqueStateName()),
+            "state_1");
+    assertEquals(second.execute(() -> HelperMethods.getUniqueStateName()),
+            "state_0");
+  }
+
+  @Test
+  public void sessionsHaveIndependentSolverInstances() {
+    SearchSession first = new SearchSession();
+    SearchSession second = new SearchSession();
+    assertSame(first.execute(() -> SolverInstance.getInstance()),
+            first.getSolverInstance());
+    assertNotSame(first.getSolverInstance(), second.getSolverInstance());
+  }
+
+  @Test
+  public void executeRestoresPreviousSession() {
+    SearchSession outer = new SearchSession();
+    SearchSession inner = new SearchSession();
+    outer.run(() -> {
+      inner.run(() -> TransitionMonitor.stopRuning());
+      assertSame(SearchSession.current(), outer);
+      assertTrue(TransitionMonitor.isRunning());
+    });
+    assertFalse(inner.isRunning());
+    assertSame(SearchSession.current(), SearchSession.getDefault());
+  }
+}
@@ -0,0 +1,45 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests bitstate hashing and hash compaction.
+ */
+public class ApproximateStateSetTest {
+
+  @Test
+  public void bitstateDetectsRevisitedStates() {
+    BitstateStateSet visited = new BitstateStateSet(2, 20, 3);
+    for (long i = 0; i < 1000; i++) {
+      visited.add(new long[]{i, 7});
+    }
+    for (long i = 0; i < 1000; i++) {
+      assertFalse(visited.add(new long[]{i, 7}));
+      assertTrue(visited.contains(new long[]{i, 7}));
+    }
+    assertTrue(visited.size() <= 1000);
+    assertTrue(visited.getOmissionProbability() > 0);
+    assertTrue(visited.getOmissionProbability() < 0.01);
+  }
+
+  @Test
+  public void hashCompactionStoresFingerprints() {
+    HashCompactionStateSet visited = new HashCompactionStateSet(3, 4);
+    visited.ensureCapacity(5000);
+    for (long i = 0; i < 5000; i++) {
+      assertTrue(visited.add(new long[]{i, -i, 3}));
+    }
+    assertFalse(visited.add(new long[]{42, -42, 3}));
+    assertEquals(visited.size(), 5000);
+    assertTrue(visited.getOmissionProbability() > 0);
+    assertTrue(visited.getOmissionProbability() < 1e-9);
+  }
+
+  @Test
+  public void exactSetsOmitNothing() {
+    assertEquals(new OpenAddressingStateSet(1).getOmissionProbability(), 0.0);
+  }
+}
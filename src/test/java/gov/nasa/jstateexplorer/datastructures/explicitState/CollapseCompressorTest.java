@@ -0,0 +1,56 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the collapse compression of encoded states.
+ */
+public class CollapseCompressorTest {
+
+  @Test
+  public void compressedStatesAreDecompressedExactly() {
+    CollapseCompressor compressor = new CollapseCompressor(5, 2);
+    assertEquals(compressor.getCompressedWidth(), 2);
+    long[] key = {1, Long.MIN_VALUE, -3, 4, Long.MAX_VALUE};
+    long[] compressed = compressor.compress(key, new long[2]);
+    long[] decompressed = compressor.decompress(compressed, new long[5]);
+    for (int i = 0; i < key.length; i++) {
+      assertEquals(decompressed[i], key[i]);
+    }
+  }
+
+  @Test
+  public void equalStatesAreCompressedEqually() {
+    CollapseCompressor compressor = new CollapseCompressor(4, 2);
+    long[] first = compressor.compress(new long[]{1, 2, 3, 4}, new long[1]);
+    compressor.compress(new long[]{1, 2, 5, 6}, new long[1]);
+    compressor.compress(new long[]{7, 8, 3, 4}, new long[1]);
+    long[] again = compressor.compress(new long[]{1, 2, 3, 4}, new long[1]);
+    assertEquals(again[0], first[0]);
+    assertEquals(compressor.getTableSizes()[0], 2);
+    assertEquals(compressor.getTableSizes()[1], 2);
+  }
+
+  @Test
+  public void compressedSetKeepsAllStates() {
+    CollapseCompressor compressor = new CollapseCompressor(3, 2);
+    CompressedStateSet visited = new CompressedStateSet(compressor,
+            new OpenAddressingStateSet(compressor.getCompressedWidth()));
+    for (long i = 0; i < 1000; i++) {
+      assertTrue(visited.add(new long[]{i % 10, i / 10, 0}));
+    }
+    assertFalse(visited.add(new long[]{3, 4, 0}));
+    assertEquals(visited.size(), 1000);
+    List<long[]> keys = new ArrayList<>();
+    visited.forEach(key -> keys.add(key.clone()));
+    assertEquals(keys.size(), 1000);
+    for (long[] key : keys) {
+      assertTrue(visited.contains(key));
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the lock-free set of encoded states.
+ */
+public class ConcurrentStateSetTest {
+
+  @Test
+  public void eachKeyIsAddedByExactlyOneThread() throws InterruptedException {
+    ConcurrentStateSet visited = new ConcurrentStateSet(2, 40000);
+    AtomicInteger added = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (long i = 0; i < 20000; i++) {
+          if (visited.add(new long[]{i, i * 31})) {
+            added.incrementAndGet();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(added.get(), 20000);
+    assertEquals(visited.size(), 20000);
+    assertTrue(visited.contains(new long[]{19999, 19999 * 31}));
+    assertFalse(visited.contains(new long[]{20000, 20000 * 31}));
+  }
+
+  @Test
+  public void ensureCapacityKeepsTheKeys() {
+    ConcurrentStateSet visited = new ConcurrentStateSet(1, 4);
+    for (long i = 0; i < 10; i++) {
+      visited.add(new long[]{i});
+    }
+    visited.ensureCapacity(1000);
+    assertTrue(visited.getCapacity() * 3L >= 1000 * 4L);
+    for (long i = 0; i < 10; i++) {
+      assertFalse(visited.add(new long[]{i}));
+    }
+    assertEquals(visited.size(), 10);
+  }
+
+  @Test
+  public void hasCapacityMatchesEnsureCapacity() {
+    ConcurrentStateSet visited = new ConcurrentStateSet(1, 4);
+    assertTrue(visited.hasCapacity(11));
+    assertFalse(visited.hasCapacity(12));
+    visited.ensureCapacity(12);
+    assertTrue(visited.hasCapacity(12));
+    assertEquals(visited.getCapacity(), 32);
+  }
+}
@@ -0,0 +1,49 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the segment files of the frontier.
+ */
+public class FrontierQueueTest {
+
+  @Test
+  public void levelsAreReadInOrderAndDeleted() throws IOException {
+    Path directory = Files.createTempDirectory("frontier");
+    try (FrontierQueue frontier = new FrontierQueue(directory, 3)) {
+      frontier.openLevel();
+      for (long i = 0; i < 10000; i++) {
+        frontier.add(new long[]{i, -i, i % 5});
+      }
+      assertEquals(frontier.closeLevel(), 10000);
+      frontier.openLevel();
+      frontier.add(new long[]{7, 7, 7});
+      assertEquals(frontier.closeLevel(), 1);
+
+      long[] chunk = new long[3 * 300];
+      long next = 0;
+      try (FrontierQueue.Reader level = frontier.nextLevel()) {
+        int count;
+        while ((count = level.read(chunk, 300)) > 0) {
+          for (int i = 0; i < count; i++, next++) {
+            assertEquals(chunk[3 * i], next);
+            assertEquals(chunk[3 * i + 1], -next);
+            assertEquals(chunk[3 * i + 2], next % 5);
+          }
+        }
+      }
+      assertEquals(next, 10000);
+      assertFalse(Files.exists(directory.resolve("frontier-0.seg")));
+      try (FrontierQueue.Reader level = frontier.nextLevel()) {
+        assertEquals(level.read(chunk, 300), 1);
+        assertEquals(chunk[0], 7);
+        assertEquals(level.read(chunk, 300), 0);
+      }
+    }
+  }
+}
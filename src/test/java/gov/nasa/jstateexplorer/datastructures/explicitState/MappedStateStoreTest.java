@@ -0,0 +1,84 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the memory-mapped visited state store.
+ */
+public class MappedStateStoreTest {
+
+  @Test
+  public void storeGrowsAndKeepsTheOrder() throws IOException {
+    Path directory = Files.createTempDirectory("store");
+    try (MappedStateStore store = MappedStateStore.open(directory, 2)) {
+      for (long i = 0; i < 5000; i++) {
+        assertTrue(store.add(new long[]{i, i % 3}));
+      }
+      assertFalse(store.add(new long[]{42, 0}));
+      assertEquals(store.size(), 5000);
+      long[] state = new long[2];
+      store.get(4711, state);
+      assertEquals(state[0], 4711);
+      assertEquals(state[1], 4711 % 3);
+      assertEquals(store.getCheckpointDepth(), -1);
+    }
+  }
+
+  @Test
+  public void concurrentAddsKeepEachStateOnce() throws Exception {
+    Path directory = Files.createTempDirectory("store");
+    try (MappedStateStore store = MappedStateStore.open(directory, 2)) {
+      ExecutorService workers = Executors.newFixedThreadPool(4);
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(workers.submit(() -> {
+          long[] state = new long[2];
+          for (long i = 0; i < 5000; i++) {
+            store.add(new long[]{i, 1});
+            store.get(store.size() - 1, state);
+            assertEquals(state[1], 1);
+          }
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+      workers.shutdown();
+      assertEquals(store.size(), 5000);
+      for (long i = 0; i < 5000; i++) {
+        assertTrue(store.contains(new long[]{i, 1}));
+      }
+    }
+  }
+
+  @Test
+  public void reopenedStoreContinuesAtTheCheckpoint() throws IOException {
+    Path directory = Files.createTempDirectory("store");
+    try (MappedStateStore store = MappedStateStore.open(directory, 2)) {
+      store.add(new long[]{0, 0});
+      store.add(new long[]{1, 0});
+      store.add(new long[]{2, 0});
+      store.checkpoint(1, 1, 3);
+      store.add(new long[]{3, 0});
+    }
+    try (MappedStateStore store = MappedStateStore.open(directory, 2)) {
+      assertEquals(store.size(), 3);
+      assertEquals(store.getCheckpointDepth(), 1);
+      assertEquals(store.getCheckpointLevelStart(), 1);
+      assertEquals(store.getCheckpointLevelEnd(), 3);
+      assertTrue(store.contains(new long[]{2, 0}));
+      assertTrue(store.add(new long[]{3, 0}));
+    }
+  }
+}
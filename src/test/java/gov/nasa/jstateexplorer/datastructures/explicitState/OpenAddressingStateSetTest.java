@@ -0,0 +1,36 @@
+package gov.nasa.jstateexplorer.datastructures.explicitState;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the open addressing set of encoded states.
+ */
+public class OpenAddressingStateSetTest {
+
+  @Test
+  public void duplicatesAreDetected() {
+    OpenAddressingStateSet visited = new OpenAddressingStateSet(2);
+    assertTrue(visited.add(new long[]{1, 2}));
+    assertTrue(visited.add(new long[]{2, 1}));
+    assertFalse(visited.add(new long[]{1, 2}));
+    assertTrue(visited.contains(new long[]{2, 1}));
+    assertFalse(visited.contains(new long[]{2, 2}));
+    assertEquals(visited.size(), 2);
+  }
+
+  @Test
+  public void setGrowsAndKeepsAllKeys() {
+    OpenAddressingStateSet visited = new OpenAddressingStateSet(3, 4);
+    for (long i = 0; i < 10000; i++) {
+      assertTrue(visited.add(new long[]{i, -i, i % 7}));
+    }
+    assertEquals(visited.size(), 10000);
+    for (long i = 0; i < 10000; i++) {
+      assertFalse(visited.add(new long[]{i, -i, i % 7}));
+    }
+    assertTrue(visited.getCapacity() * 7L >= visited.size() * 10L);
+  }
+}
@@ -0,0 +1,84 @@
+package gov.nasa.jstateexplorer.datastructures.region;
+
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the state map of regions.
+ */
+public class RegionTest {
+
+  @Test
+  public void sharedRegionsDontSeeLaterStates() {
+    EnumerativeRegion first = new EnumerativeRegion();
+    EnumerativeState a = new EnumerativeState();
+    first.put("a", a);
+    EnumerativeRegion second = first.createNewRegion();
+    second.share(first);
+    second.markSegment();
+    EnumerativeState b = new EnumerativeState();
+    second.append("b", b);
+    assertEquals(first.size(), 1);
+    assertFalse(first.containsKey("b"));
+    assertSame(second.get("a"), a);
+    assertSame(second.get("b"), b);
+    assertEquals(second.getSegment(0).size(), 1);
+    assertSame(second.getSegment(0).get(0), b);
+
+    EnumerativeState c = new EnumerativeState();
+    first.put("c", c);
+    assertNull(second.get("c"));
+    assertSame(first.get("c"), c);
+    assertSame(second.getState(1), b);
+  }
+
+  @Test
+  public void replacingAStateDoesNotChangeSharingRegions() {
+    EnumerativeRegion first = new EnumerativeRegion();
+    EnumerativeState a = new EnumerativeState();
+    first.put("a", a);
+    EnumerativeRegion second = first.createNewRegion();
+    second.share(first);
+    EnumerativeState replaced = new EnumerativeState();
+    assertSame(second.put("a", replaced), a);
+    assertSame(first.get("a"), a);
+    assertSame(second.get("a"), replaced);
+    assertSame(second.remove("a"), replaced);
+    assertTrue(second.isEmpty());
+    assertEquals(first.size(), 1);
+  }
+
+  @Test
+  public void regionsOfEarlierDepthsKeepTheirStates() {
+    EnumerativeRegion[] depths = new EnumerativeRegion[8];
+    EnumerativeRegion current = new EnumerativeRegion();
+    for (int depth = 0; depth < depths.length; depth++) {
+      EnumerativeRegion next = current.createNewRegion();
+      next.share(current);
+      next.markSegment();
+      for (int i = 0; i < 300; i++) {
+        next.append(depth + "-" + i, new EnumerativeState());
+      }
+      depths[depth] = next;
+      current = next;
+    }
+    EnumerativeState replaced = new EnumerativeState();
+    EnumerativeState old = depths[2].get("1-100");
+    assertSame(depths[2].put("1-100", replaced), old);
+    depths[2].put("extra", new EnumerativeState());
+    for (int depth = 0; depth < depths.length; depth++) {
+      assertEquals(depths[depth].size(),
+              300 * (depth + 1) + (depth == 2 ? 1 : 0));
+      assertSame(depths[depth].get("1-100"),
+              depth == 2 ? replaced : depth >= 1 ? old : null);
+      assertTrue(depths[depth].containsKey(depth + "-299"));
+      assertFalse(depths[depth].containsKey((depth + 1) + "-0"));
+      assertEquals(depths[depth].containsKey("extra"), depth == 2);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package gov.nasa.jstateexplorer.datastructures.searchImage;
+
+import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.util.region.EnumerativeRegionUtil;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the snapshots of images retained during a search.
+ */
+public class SearchIterationImageTest {
+
+  private static final int DEPTHS = 4;
+  private static final int NEW_STATES = 10;
+
+  @Test
+  public void retainedImagesKeepTheirDepth() {
+    EnumerativeRegionUtil regionUtil = new EnumerativeRegionUtil(null);
+    EnumerativeRegion reachable = new EnumerativeRegion();
+    reachable.put("init", new EnumerativeState());
+    EnumerativeImage image = new EnumerativeImage(reachable);
+    for (int depth = 1; depth <= DEPTHS; depth++) {
+      EnumerativeRegion newStates = new EnumerativeRegion();
+      for (int i = 0; i < NEW_STATES; i++) {
+        newStates.put(depth + "-" + i, new EnumerativeState());
+      }
+      reachable = regionUtil.union(reachable, newStates);
+      image.increaseDepth(1);
+      image.setReachableStates(reachable);
+      image.setPreviousNewStates(newStates);
+      image.retain();
+    }
+    List<SearchIterationImage<EnumerativeRegion>> retained
+            = image.getRetainedImages();
+    assertEquals(retained.size(), DEPTHS);
+    for (int index = 0; index < DEPTHS; index++) {
+      SearchIterationImage<EnumerativeRegion> snapshot = retained.get(index);
+      assertEquals(snapshot.getDepth(), index + 1);
+      assertEquals(snapshot.getReachableStates().size(),
+              1 + NEW_STATES * (index + 1));
+      assertEquals(snapshot.getPreviousNewStates().size(), NEW_STATES);
+      assertTrue(snapshot.getPreviousNewStates()
+              .containsKey((index + 1) + "-0"));
+    }
+
+    retained.get(1).getReachableStates().put("extra",
+            new EnumerativeState());
+    retained.get(1).getPreviousNewStates().put("extra",
+            new EnumerativeState());
+    assertFalse(image.getReachableStates().containsKey("extra"));
+    assertFalse(image.getPreviousNewStates().containsKey("extra"));
+    assertEquals(image.getReachableStates().size(),
+            1 + NEW_STATES * DEPTHS);
+    assertFalse(retained.get(2).getReachableStates().containsKey("extra"));
+    assertEquals(retained.get(2).getReachableStates().size(),
+            1 + NEW_STATES * 3);
+    assertEquals(retained.get(1).getReachableStates().size(),
+            2 + NEW_STATES * 2);
+  }
+}
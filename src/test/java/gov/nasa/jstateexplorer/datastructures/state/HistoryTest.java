@@ -0,0 +1,67 @@
+package gov.nasa.jstateexplorer.datastructures.state;
+
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the persistent history of states.
+ */
+public class HistoryTest {
+
+  private final Transition first = new Transition();
+  private final Transition second = new Transition();
+  private final Transition third = new Transition();
+
+  @Test
+  public void historiesKeepTheOrderOfTheTransitions() {
+    History history = History.of(Arrays.asList(first, second));
+    assertEquals(history.length(), 2);
+    assertSame(history.getLast(), second);
+    History appended = history.append(third);
+    assertEquals(appended.length(), 3);
+    List<Transition> transitions = appended.toList();
+    assertEquals(transitions.size(), 3);
+    assertSame(transitions.get(0), first);
+    assertSame(transitions.get(1), second);
+    assertSame(transitions.get(2), third);
+    assertEquals(history.toList().size(), 2);
+    assertEquals(History.EMPTY.length(), 0);
+    assertTrue(History.EMPTY.toList().isEmpty());
+    assertSame(History.of(Arrays.<Transition>asList()), History.EMPTY);
+  }
+
+  @Test
+  public void successorsShareTheParentNode() {
+    EnumerativeState state = new EnumerativeState();
+    state.addToHistory(first);
+    EnumerativeState left = new EnumerativeState();
+    left.setHistory(state.getHistoryNode());
+    left.addToHistory(second);
+    EnumerativeState right = new EnumerativeState();
+    right.setHistory(state.getHistoryNode());
+    right.addToHistory(third);
+    assertSame(left.getHistoryNode().getParent(), state.getHistoryNode());
+    assertSame(right.getHistoryNode().getParent(), state.getHistoryNode());
+    assertEquals(state.getHistory(), Arrays.asList(first));
+    assertEquals(left.getHistory(), Arrays.asList(first, second));
+    assertEquals(right.getHistory(), Arrays.asList(first, third));
+  }
+
+  @Test
+  public void getHistoryReturnsACopy() {
+    EnumerativeState state = new EnumerativeState();
+    state.addToHistory(first);
+    List<Transition> history = state.getHistory();
+    history.add(second);
+    assertEquals(state.getHistory(), Arrays.asList(first));
+    //Changes go through addToHistory.
+    state.addToHistory(second);
+    assertEquals(state.getHistory(), Arrays.asList(first, second));
+    assertEquals(history.size(), 2);
+  }
+}
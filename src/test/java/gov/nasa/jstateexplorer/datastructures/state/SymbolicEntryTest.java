@@ -0,0 +1,82 @@
+package gov.nasa.jstateexplorer.datastructures.state;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.TestHelper;
+import java.util.HashSet;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the structural and the semantic equality of symbolic entries.
+ */
+public class SymbolicEntryTest {
+
+  private final Variable x = new Variable(BuiltinTypes.SINT32, "x");
+
+  @BeforeMethod
+  public void setUp() {
+    TestHelper.setupSolver();
+  }
+
+  private SymbolicEntry entry(int value) {
+    Expression<Boolean> assignment = new NumericBooleanExpression(x,
+            NumericComparator.EQ, new Constant(BuiltinTypes.SINT32, value));
+    return new SymbolicEntry(x, assignment);
+  }
+
+  @Test
+  public void entriesAreComparedStructurally() {
+    assertEquals(entry(1), entry(1));
+    assertEquals(entry(1).hashCode(), entry(1).hashCode());
+    assertNotEquals(entry(1), entry(2));
+    Set<SymbolicEntry> entries = new HashSet<>();
+    entries.add(entry(1));
+    entries.add(entry(1));
+    entries.add(entry(2));
+    assertEquals(entries.size(), 2);
+  }
+
+  @Test
+  public void changedValuesChangeTheHash() {
+    SymbolicEntry changed = entry(1);
+    changed.hashCode();
+    changed.setValue(entry(2).getValue());
+    assertEquals(changed, entry(2));
+    assertEquals(changed.hashCode(), entry(2).hashCode());
+  }
+
+  @Test
+  public void equivalentEntriesDifferStructurally() {
+    Expression<Boolean> swapped = new NumericBooleanExpression(
+            new Constant(BuiltinTypes.SINT32, 1), NumericComparator.EQ, x);
+    SymbolicEntry other = new SymbolicEntry(x, swapped);
+    assertNotEquals(entry(1), other);
+    assertTrue(entry(1).isEquivalent(other));
+    assertTrue(other.isEquivalent(entry(1)));
+    assertFalse(entry(2).isEquivalent(other));
+  }
+
+  @Test
+  public void statesAreComparedByEquivalentEntries() {
+    SymbolicState state = new SymbolicState();
+    state.add(entry(1));
+    SymbolicState other = new SymbolicState();
+    other.add(new SymbolicEntry(x, new NumericBooleanExpression(
+            new Constant(BuiltinTypes.SINT32, 1), NumericComparator.EQ, x)));
+    SymbolicState different = new SymbolicState();
+    different.add(entry(2));
+    assertNotEquals(state, other);
+    assertTrue(state.isEquivalent(other));
+    assertFalse(state.isEquivalent(different));
+  }
+}
@@ -0,0 +1,136 @@
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the enumeration of all solutions with blocking clauses.
+ */
+public class AllSolutionsEnumeratorTest {
+
+  private final Variable<Integer> x = new Variable<>(BuiltinTypes.SINT32, "x");
+  private final Variable<Integer> y = new Variable<>(BuiltinTypes.SINT32, "y");
+
+  private SolverContext ctx;
+
+  @BeforeMethod
+  public void setUp() {
+    Properties conf = new Properties();
+    conf.setProperty("symbolic.dp", "Z3");
+    conf.setProperty("symbolic.dp.z3.bitvectors", "false");
+    ConstraintSolver solver = ConstraintSolverFactory.createSolver(conf);
+    ctx = solver.createContext();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    ctx.dispose();
+  }
+
+  @Test
+  public void allProjectedSolutionsAreEnumerated() {
+    //y is not projected, so its values don't yield further solutions.
+    AllSolutionsEnumerator enumerator = new AllSolutionsEnumerator(ctx,
+            and(between(x, 0, 3), between(y, 0, 100)),
+            Collections.singleton(x), 10);
+    List<Valuation> solutions = enumerateAll(enumerator, 3);
+    enumerator.close();
+    assertEquals(values(solutions), new HashSet<>(
+            Arrays.asList(0, 1, 2, 3)));
+    assertEquals(enumerator.getSolutionCount(), 4);
+    assertFalse(enumerator.isLimitReached());
+    for (Valuation solution : solutions) {
+      assertFalse(solution.containsValueFor(y));
+    }
+  }
+
+  @Test
+  public void enumerationStopsAtTheLimit() {
+    AllSolutionsEnumerator enumerator = new AllSolutionsEnumerator(ctx,
+            between(x, 0, 9), Collections.singleton(x), 3);
+    List<Valuation> solutions = enumerateAll(enumerator, 2);
+    enumerator.close();
+    assertEquals(values(solutions).size(), 3);
+    assertTrue(enumerator.isLimitReached());
+    assertTrue(enumerator.nextBatch(2).isEmpty());
+  }
+
+  @Test
+  public void closeRemovesTheFormulaAndTheBlockingClauses() {
+    AllSolutionsEnumerator enumerator = new AllSolutionsEnumerator(ctx,
+            between(x, 0, 0), Collections.singleton(x), 5);
+    assertEquals(enumerateAll(enumerator, 5).size(), 1);
+    enumerator.close();
+    assertFalse(enumerator.hasNext());
+    //The blocking clause x != 0 is gone, so x == 5 is satisfiable again.
+    ctx.push();
+    ctx.add(between(x, 5, 5));
+    assertEquals(ctx.solve(new Valuation()), Result.SAT);
+    ctx.pop();
+    //A second close must not pop the context again.
+    enumerator.close();
+    assertEquals(ctx.solve(new Valuation()), Result.SAT);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void limitMustBePositive() {
+    new AllSolutionsEnumerator(ctx, between(x, 0, 1),
+            Collections.singleton(x), 0);
+  }
+
+  private static List<Valuation> enumerateAll(
+          AllSolutionsEnumerator enumerator, int batchSize) {
+    List<Valuation> solutions = new ArrayList<>();
+    while (enumerator.hasNext()) {
+      List<Valuation> batch = enumerator.nextBatch(batchSize);
+      assertTrue(batch.size() <= batchSize);
+      solutions.addAll(batch);
+    }
+    return solutions;
+  }
+
+  private Set<Object> values(List<Valuation> solutions) {
+    Set<Object> values = new HashSet<>();
+    for (Valuation solution : solutions) {
+      values.add(solution.getValue(x));
+    }
+    return values;
+  }
+
+  private static Expression<Boolean> between(Variable<Integer> var,
+          int min, int max) {
+    return and(new NumericBooleanExpression(var, NumericComparator.GE,
+            new Constant<>(BuiltinTypes.SINT32, min)),
+            new NumericBooleanExpression(var, NumericComparator.LE,
+                    new Constant<>(BuiltinTypes.SINT32, max)));
+  }
+
+  private static Expression<Boolean> and(Expression<Boolean> left,
+          Expression<Boolean> right) {
+    return new PropositionalCompound(left, LogicalOperator.AND, right);
+  }
+}
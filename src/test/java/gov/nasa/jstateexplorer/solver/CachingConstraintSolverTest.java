@@ -0,0 +1,115 @@
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the canonical queries and the solver result cache.
+ */
+public class CachingConstraintSolverTest {
+
+  private Variable x, y, ySv3, ySv7, uVar1, uVar2;
+  private Constant c5, c10;
+
+  @BeforeMethod
+  public void setUp() {
+    x = new Variable(BuiltinTypes.SINT32, "x");
+    y = new Variable(BuiltinTypes.SINT32, "y");
+    ySv3 = new Variable(BuiltinTypes.SINT32, "y_sv_3");
+    ySv7 = new Variable(BuiltinTypes.SINT32, "y_sv_7");
+    uVar1 = new Variable(BuiltinTypes.SINT32, "uVarReplacement_1");
+    uVar2 = new Variable(BuiltinTypes.SINT32, "uVarReplacement_2");
+    c5 = new Constant(BuiltinTypes.SINT32, 5);
+    c10 = new Constant(BuiltinTypes.SINT32, 10);
+  }
+
+  @Test
+  public void alphaEquivalentQueriesShareTheKey() {
+    Expression<Boolean> first = ExpressionUtil.and(
+            new NumericBooleanExpression(x, NumericComparator.GT, c5),
+            new NumericBooleanExpression(ySv3, NumericComparator.EQ, uVar1));
+    Expression<Boolean> second = ExpressionUtil.and(
+            new NumericBooleanExpression(ySv7, NumericComparator.EQ, uVar2),
+            new NumericBooleanExpression(x, NumericComparator.GT, c5));
+    assertEquals(CanonicalQuery.create(first).getKey(),
+            CanonicalQuery.create(second).getKey());
+  }
+
+  @Test
+  public void conjunctsOfTheSameShapeAreOrderedByTheirRenamedForm() {
+    Expression<Boolean> bound
+            = new NumericBooleanExpression(uVar1, NumericComparator.GT, c5);
+    Expression<Boolean> first = ExpressionUtil.and(
+            new NumericBooleanExpression(ySv3, NumericComparator.EQ, uVar1),
+            new NumericBooleanExpression(ySv7, NumericComparator.EQ, uVar2),
+            bound);
+    //The same query with y_sv_3 and y_sv_7 swapped.
+    Expression<Boolean> second = ExpressionUtil.and(
+            new NumericBooleanExpression(ySv3, NumericComparator.EQ, uVar2),
+            new NumericBooleanExpression(ySv7, NumericComparator.EQ, uVar1),
+            bound);
+    assertEquals(CanonicalQuery.create(first).getKey(),
+            CanonicalQuery.create(second).getKey());
+  }
+
+  @Test
+  public void stateVariablesAreNotRenamed() {
+    Expression<Boolean> first
+            = new NumericBooleanExpression(x, NumericComparator.GT, c5);
+    Expression<Boolean> second
+            = new NumericBooleanExpression(y, NumericComparator.GT, c5);
+    assertNotEquals(CanonicalQuery.create(first).getKey(),
+            CanonicalQuery.create(second).getKey());
+  }
+
+  @Test
+  public void repeatedQueriesAreAnsweredFromTheCache() {
+    CountingSolver counting = new CountingSolver();
+    CachingConstraintSolver solver = new CachingConstraintSolver(counting, 10);
+    solver.isSatisfiable(
+            new NumericBooleanExpression(ySv3, NumericComparator.LT, c10));
+    solver.isSatisfiable(
+            new NumericBooleanExpression(ySv7, NumericComparator.LT, c10));
+    assertEquals(counting.calls, 1);
+    assertEquals(solver.getCache().getHits(), 1);
+    assertEquals(solver.getCache().getMisses(), 1);
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    CountingSolver counting = new CountingSolver();
+    CachingConstraintSolver solver = new CachingConstraintSolver(counting, 1);
+    Expression<Boolean> first
+            = new NumericBooleanExpression(x, NumericComparator.GT, c5);
+    Expression<Boolean> second
+            = new NumericBooleanExpression(y, NumericComparator.GT, c5);
+    solver.isSatisfiable(first);
+    solver.isSatisfiable(second);
+    solver.isSatisfiable(first);
+    assertEquals(counting.calls, 3);
+    assertEquals(solver.getCache().size(), 1);
+  }
+
+  private static class CountingSolver extends ConstraintSolver {
+
+    int calls = 0;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      ++calls;
+      return Result.SAT;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the model cache and the model reusing solver.
+ */
+public class ModelCacheTest {
+
+  private Variable<Integer> x, y;
+  private Constant<Integer> c0, c5, c6;
+
+  @BeforeMethod
+  public void setUp() {
+    x = new Variable<>(BuiltinTypes.SINT32, "x");
+    y = new Variable<>(BuiltinTypes.SINT32, "y");
+    c0 = new Constant<>(BuiltinTypes.SINT32, 0);
+    c5 = new Constant<>(BuiltinTypes.SINT32, 5);
+    c6 = new Constant<>(BuiltinTypes.SINT32, 6);
+  }
+
+  @Test
+  public void satisfyingModelIsFound() {
+    ModelCache cache = new ModelCache(2);
+    Valuation model = new Valuation();
+    model.setValue(x, 7);
+    cache.addModel(model);
+    assertSame(cache.findModel(
+            new NumericBooleanExpression(x, NumericComparator.GT, c6)), model);
+    assertNull(cache.findModel(
+            new NumericBooleanExpression(x, NumericComparator.LT, c0)));
+    //y is not assigned by the model.
+    assertNull(cache.findModel(
+            new NumericBooleanExpression(y, NumericComparator.LT, c0)));
+    assertEquals(cache.getHits(), 1);
+    assertEquals(cache.getMisses(), 2);
+  }
+
+  @Test
+  public void oldestModelIsEvicted() {
+    ModelCache cache = new ModelCache(1);
+    Valuation first = new Valuation();
+    first.setValue(x, 7);
+    Valuation second = new Valuation();
+    second.setValue(x, -1);
+    cache.addModel(first);
+    cache.addModel(second);
+    assertEquals(cache.size(), 1);
+    assertNull(cache.findModel(
+            new NumericBooleanExpression(x, NumericComparator.GT, c5)));
+  }
+
+  @Test
+  public void copyModelSkipsUnassignedVariables() {
+    Valuation model = new Valuation();
+    model.setValue(x, 7);
+    Valuation result = new Valuation();
+    ModelCache.copyModel(model, ExpressionUtil.and(
+            new NumericBooleanExpression(x, NumericComparator.GT, c5),
+            new NumericBooleanExpression(y, NumericComparator.GT, c5)),
+            result);
+    assertTrue(result.containsValueFor(x));
+    assertFalse(result.containsValueFor(y));
+    assertEquals(result.getValue(x), (Object) 7);
+  }
+
+  @Test
+  public void cachedModelsAvoidSolverCalls() {
+    ModelSolver modelSolver = new ModelSolver();
+    ModelReusingConstraintSolver solver
+            = new ModelReusingConstraintSolver(modelSolver, 4);
+    Valuation result = new Valuation();
+    assertEquals(solver.solve(
+            new NumericBooleanExpression(x, NumericComparator.GT, c5), result),
+            ConstraintSolver.Result.SAT);
+    assertEquals(solver.isSatisfiable(
+            new NumericBooleanExpression(x, NumericComparator.GT, c6)),
+            ConstraintSolver.Result.SAT);
+    assertEquals(modelSolver.calls, 1);
+    assertEquals(result.getValue(x), (Object) 7);
+    solver.isSatisfiable(
+            new NumericBooleanExpression(x, NumericComparator.LT, c0));
+    assertEquals(modelSolver.calls, 2);
+  }
+
+  //Returns x = 7 for every query.
+  private class ModelSolver extends ConstraintSolver {
+
+    int calls = 0;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      ++calls;
+      if (result != null) {
+        result.setValue(x, 7);
+      }
+      return Result.SAT;
+    }
+  }
+}
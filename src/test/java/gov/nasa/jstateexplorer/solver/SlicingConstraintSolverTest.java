@@ -0,0 +1,104 @@
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the slicing of queries into independent components.
+ */
+public class SlicingConstraintSolverTest {
+
+  private Variable x, y;
+  private Expression<Boolean> xGt5, xLt10, xLt0, yGt5, yGt6;
+
+  @BeforeMethod
+  public void setUp() {
+    x = new Variable(BuiltinTypes.SINT32, "x");
+    y = new Variable(BuiltinTypes.SINT32, "y");
+    Constant c0 = new Constant(BuiltinTypes.SINT32, 0);
+    Constant c5 = new Constant(BuiltinTypes.SINT32, 5);
+    Constant c6 = new Constant(BuiltinTypes.SINT32, 6);
+    Constant c10 = new Constant(BuiltinTypes.SINT32, 10);
+    xGt5 = new NumericBooleanExpression(x, NumericComparator.GT, c5);
+    xLt10 = new NumericBooleanExpression(x, NumericComparator.LT, c10);
+    xLt0 = new NumericBooleanExpression(x, NumericComparator.LT, c0);
+    yGt5 = new NumericBooleanExpression(y, NumericComparator.GT, c5);
+    yGt6 = new NumericBooleanExpression(y, NumericComparator.GT, c6);
+  }
+
+  @Test
+  public void conjunctsSharingVariablesFormAComponent() {
+    List<List<Expression<Boolean>>> components
+            = SlicingConstraintSolver.sliceQuery(
+                    ExpressionUtil.and(xGt5, yGt5, xLt10));
+    assertEquals(components.size(), 2);
+    assertEquals(components.get(0).size(), 2);
+    assertEquals(components.get(1).size(), 1);
+  }
+
+  @Test
+  public void modelIsTheUnionOfTheComponentModels() {
+    FakeSolver fake = new FakeSolver();
+    SlicingConstraintSolver solver = new SlicingConstraintSolver(fake);
+    Valuation model = new Valuation();
+    assertEquals(solver.solve(ExpressionUtil.and(xGt5, yGt5), model),
+            ConstraintSolver.Result.SAT);
+    assertTrue(model.containsValueFor(x));
+    assertTrue(model.containsValueFor(y));
+    assertEquals(fake.calls, 2);
+  }
+
+  @Test
+  public void unsatisfiableComponentMakesTheQueryUnsatisfiable() {
+    SlicingConstraintSolver solver
+            = new SlicingConstraintSolver(new FakeSolver());
+    assertEquals(solver.isSatisfiable(ExpressionUtil.and(yGt5, xLt0)),
+            ConstraintSolver.Result.UNSAT);
+  }
+
+  @Test
+  public void componentsAreAnsweredFromTheCache() {
+    FakeSolver fake = new FakeSolver();
+    SlicingConstraintSolver solver = new SlicingConstraintSolver(
+            new CachingConstraintSolver(fake, 10));
+    solver.isSatisfiable(ExpressionUtil.and(xGt5, yGt5));
+    solver.isSatisfiable(ExpressionUtil.and(xGt5, yGt6));
+    assertEquals(fake.calls, 3);
+  }
+
+  //Unsatisfiable exactly, if x < 0 is a conjunct.
+  //The models assign 7 to each free variable.
+  private class FakeSolver extends ConstraintSolver {
+
+    int calls = 0;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      ++calls;
+      List<Expression<Boolean>> conjuncts = new ArrayList<>();
+      CanonicalQuery.flattenConjunction(f, conjuncts);
+      if (conjuncts.contains(xLt0)) {
+        return Result.UNSAT;
+      }
+      if (result != null) {
+        for (Variable var : ExpressionUtil.freeVariables(f)) {
+          result.setValue(var, 7);
+        }
+      }
+      return Result.SAT;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package gov.nasa.jstateexplorer.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the unsat core cache and the core minimization.
+ */
+public class UnsatCoreCacheTest {
+
+  private Expression<Boolean> xLt0, xGt5, yGt0, yLt0;
+
+  @BeforeMethod
+  public void setUp() {
+    Variable x = new Variable(BuiltinTypes.SINT32, "x");
+    Variable y = new Variable(BuiltinTypes.SINT32, "y");
+    Constant c0 = new Constant(BuiltinTypes.SINT32, 0);
+    Constant c5 = new Constant(BuiltinTypes.SINT32, 5);
+    xLt0 = new NumericBooleanExpression(x, NumericComparator.LT, c0);
+    xGt5 = new NumericBooleanExpression(x, NumericComparator.GT, c5);
+    yGt0 = new NumericBooleanExpression(y, NumericComparator.GT, c0);
+    yLt0 = new NumericBooleanExpression(y, NumericComparator.LT, c0);
+  }
+
+  @Test
+  public void supersetsOfACoreAreSubsumed() {
+    UnsatCoreCache cache = new UnsatCoreCache(4);
+    cache.addCore(new TreeSet<>(Arrays.asList("a", "b")));
+    assertTrue(cache.isSubsumed(Arrays.asList("c", "b", "a")));
+    assertFalse(cache.isSubsumed(Arrays.asList("a", "c")));
+    assertEquals(cache.getHits(), 1);
+    assertEquals(cache.getMisses(), 1);
+  }
+
+  @Test
+  public void leastRecentlyUsedCoreIsEvicted() {
+    UnsatCoreCache cache = new UnsatCoreCache(1);
+    cache.addCore(new TreeSet<>(Arrays.asList("a")));
+    cache.addCore(new TreeSet<>(Arrays.asList("b")));
+    assertEquals(cache.size(), 1);
+    assertFalse(cache.isSubsumed(Arrays.asList("a")));
+    assertTrue(cache.isSubsumed(Arrays.asList("b")));
+  }
+
+  @Test
+  public void minimizedCoreSubsumesOtherQueries() {
+    ContradictionSolver contradiction = new ContradictionSolver();
+    UnsatCoreConstraintSolver solver = new UnsatCoreConstraintSolver(
+            contradiction, new UnsatCoreCache(4), 8);
+    assertEquals(solver.isSatisfiable(ExpressionUtil.and(xLt0, xGt5, yGt0)),
+            ConstraintSolver.Result.UNSAT);
+    //One query and three minimization steps.
+    assertEquals(contradiction.calls, 4);
+    assertEquals(solver.isSatisfiable(ExpressionUtil.and(yLt0, xGt5, xLt0)),
+            ConstraintSolver.Result.UNSAT);
+    assertEquals(contradiction.calls, 4);
+    assertEquals(solver.getCache().getHits(), 1);
+  }
+
+  @Test
+  public void minimizationStopsAtTheBudget() {
+    ContradictionSolver contradiction = new ContradictionSolver();
+    UnsatCoreConstraintSolver solver = new UnsatCoreConstraintSolver(
+            contradiction, new UnsatCoreCache(4), 1);
+    solver.isSatisfiable(ExpressionUtil.and(xLt0, xGt5, yGt0));
+    assertEquals(contradiction.calls, 2);
+    //The core still contains y > 0, so the query with y < 0 is solved
+    //and minimized within the budget again.
+    solver.isSatisfiable(ExpressionUtil.and(xLt0, xGt5, yLt0));
+    assertEquals(contradiction.calls, 4);
+    solver.isSatisfiable(ExpressionUtil.and(yGt0, xGt5, xLt0));
+    assertEquals(contradiction.calls, 4);
+  }
+
+  //Unsatisfiable exactly, if x < 0 and x > 5 are both conjuncts.
+  private class ContradictionSolver extends ConstraintSolver {
+
+    int calls = 0;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      ++calls;
+      List<Expression<Boolean>> conjuncts = new ArrayList<>();
+      CanonicalQuery.flattenConjunction(f, conjuncts);
+      return conjuncts.contains(xLt0) && conjuncts.contains(xGt5)
+              ? Result.UNSAT : Result.SAT;
+    }
+  }
+}
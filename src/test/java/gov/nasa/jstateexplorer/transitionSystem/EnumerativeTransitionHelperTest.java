@@ -0,0 +1,298 @@
+package gov.nasa.jstateexplorer.transitionSystem;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.SolverInstance;
+import gov.nasa.jstateexplorer.datastructures.region.EnumerativeRegion;
+import gov.nasa.jstateexplorer.datastructures.searchImage.EnumerativeImage;
+import gov.nasa.jstateexplorer.datastructures.state.EnumerativeState;
+import gov.nasa.jstateexplorer.util.HelperMethods;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the successor computation of the EnumerativeTransitionHelper.
+ */
+public class EnumerativeTransitionHelperTest {
+
+  private final Variable<Integer> x = new Variable<>(BuiltinTypes.SINT32, "x");
+  private final Variable<Integer> z = new Variable<>(BuiltinTypes.SINT32, "z");
+  private final Variable<Integer> p = new Variable<>(BuiltinTypes.SINT32, "p");
+  private final Constant<Integer> c0 = new Constant<>(BuiltinTypes.SINT32, 0);
+  private final Constant<Integer> c1 = new Constant<>(BuiltinTypes.SINT32, 1);
+  private final Constant<Integer> c5 = new Constant<>(BuiltinTypes.SINT32, 5);
+
+  private CountingSolver solver;
+
+  @BeforeMethod
+  public void setUp() {
+    Properties conf = new Properties();
+    conf.setProperty("symbolic.dp", "Z3");
+    conf.setProperty("symbolic.dp.z3.bitvectors", "false");
+    solver = new CountingSolver(ConstraintSolverFactory.createSolver(conf));
+    SolverInstance.getInstance().setSolver(solver);
+  }
+
+  @Test
+  public void concreteEvaluationNeedsAllVariablesOfTheExpression() {
+    Valuation valuation = new Valuation();
+    valuation.setValue(x, 4);
+    Expression<Integer> plusP
+            = new NumericCompound<>(x, NumericOperator.PLUS, p);
+    assertNull(TransitionHelper.evaluateConcrete(plusP,
+            Collections.<Variable<?>>singleton(p), valuation));
+    Expression<Integer> plusOne
+            = new NumericCompound<>(x, NumericOperator.PLUS, c1);
+    assertEquals(TransitionHelper.evaluateConcrete(plusOne,
+            Collections.<Variable<?>>singleton(x), valuation), 5);
+    Expression<Integer> divideByZero
+            = new NumericCompound<>(x, NumericOperator.DIV, c0);
+    assertNull(TransitionHelper.evaluateConcrete(divideByZero,
+            Collections.<Variable<?>>singleton(x), valuation));
+  }
+
+  @Test
+  public void solverArithmeticIsNotEvaluated() {
+    Valuation valuation = new Valuation();
+    valuation.setValue(x, -7);
+    Set<Variable<?>> variables = Collections.<Variable<?>>singleton(x);
+    //The solver rounds down: -7 div 2 is -4 and -7 mod 2 is 1.
+    assertNull(TransitionHelper.evaluateConcrete(new NumericCompound<>(
+            x, NumericOperator.DIV, new Constant<>(BuiltinTypes.SINT32, 2)),
+            variables, valuation));
+    assertNull(TransitionHelper.evaluateConcrete(new NumericCompound<>(
+            x, NumericOperator.REM, new Constant<>(BuiltinTypes.SINT32, 2)),
+            variables, valuation));
+    //The solver has unbounded integers.
+    valuation.setValue(x, Integer.MAX_VALUE);
+    assertNull(TransitionHelper.evaluateConcrete(new NumericCompound<>(
+            x, NumericOperator.PLUS, c1), variables, valuation));
+    valuation.setValue(x, 7);
+    assertEquals(TransitionHelper.evaluateConcrete(new NumericCompound<>(
+            x, NumericOperator.DIV, new Constant<>(BuiltinTypes.SINT32, 2)),
+            variables, valuation), 3);
+  }
+
+  @Test
+  public void negativeDivisionIsSolved() {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) new NumericCompound<>(
+            x, NumericOperator.DIV, new Constant<>(BuiltinTypes.SINT32, 2)));
+    Transition transition = new Transition(
+            new NumericBooleanExpression(x, NumericComparator.LT, c5),
+            effects, "half", true, false);
+    List<EnumerativeState> successors = apply(transition, -7);
+    assertEquals(successors.size(), 1);
+    assertEquals(valueOf(successors.get(0), "x'"), -4);
+    assertTrue(solver.calls > 0);
+  }
+
+  @Test
+  public void concreteSuccessorNeedsNoSolver() {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) new NumericCompound<>(
+            x, NumericOperator.PLUS, c1));
+    //The effect on z depends on a parameter, but z is not part of the state.
+    effects.put(z, (Expression) p);
+    Transition transition = new Transition(
+            new NumericBooleanExpression(x, NumericComparator.LT, c5),
+            effects, "inc", true, false);
+    List<EnumerativeState> successors = apply(transition, 0);
+    assertEquals(successors.size(), 1);
+    assertEquals(valueOf(successors.get(0), "x'"), 1);
+    assertEquals(solver.calls, 0);
+  }
+
+  @Test
+  public void parameterEffectIsSolved() {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) p);
+    Transition transition = new Transition(
+            new NumericBooleanExpression(p, NumericComparator.EQ, c5),
+            effects, "set", true, false);
+    List<EnumerativeState> successors = apply(transition, 0);
+    assertEquals(successors.size(), 1);
+    assertEquals(valueOf(successors.get(0), "x'"), 5);
+    assertEquals(solver.calls, 2);
+  }
+
+  @Test
+  public void fusedGuardCheckNeedsOneSolverCall() {
+    EnumerativeTransitionHelper fused = new EnumerativeTransitionHelper();
+    fused.setFusedGuardCheck(true);
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) p);
+    Transition enabled = new Transition(
+            new NumericBooleanExpression(p, NumericComparator.EQ, c5),
+            effects, "set", true, false);
+    List<EnumerativeState> successors = apply(fused, enabled, 0);
+    assertEquals(successors.size(), 1);
+    assertEquals(valueOf(successors.get(0), "x'"), 5);
+    assertEquals(solver.calls, 1);
+
+    //The guard contradicts the effect, so the transition is not enabled.
+    Transition disabled = new Transition(new PropositionalCompound(
+            new NumericBooleanExpression(p, NumericComparator.EQ, c5),
+            LogicalOperator.AND,
+            new NumericBooleanExpression(p, NumericComparator.LT, c0)),
+            effects, "never", true, false);
+    assertTrue(apply(fused, disabled, 0).isEmpty());
+    assertFalse(disabled.isReached());
+    assertEquals(solver.calls, 2);
+  }
+
+  @Test
+  public void fusedAndSeparateGuardCheckFindTheSameSuccessors() {
+    EnumerativeTransitionHelper fused = new EnumerativeTransitionHelper();
+    fused.setFusedGuardCheck(true);
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) new NumericCompound<>(
+            x, NumericOperator.PLUS, p));
+    Transition transition = new Transition(new PropositionalCompound(
+            new NumericBooleanExpression(p, NumericComparator.GT, c0),
+            LogicalOperator.AND,
+            new NumericBooleanExpression(p, NumericComparator.LT, c5)),
+            effects, "add", true, false);
+    for (int value = 0; value < 3; value++) {
+      solver.calls = 0;
+      List<EnumerativeState> fusedSuccessors
+              = apply(fused, transition, value);
+      assertEquals(solver.calls, 1);
+      solver.calls = 0;
+      List<EnumerativeState> successors = apply(transition, value);
+      assertEquals(solver.calls, 2);
+      assertEquals(fusedSuccessors.size(), successors.size());
+      assertTrue((Integer) valueOf(fusedSuccessors.get(0), "x'") > value);
+      assertTrue((Integer) valueOf(fusedSuccessors.get(0), "x'") < value + 5);
+    }
+  }
+
+  @Test
+  public void successorsAreEnumeratedUpToTheLimit() {
+    Logger logger = Logger.getLogger(HelperMethods.getLoggerName());
+    List<LogRecord> warnings = new ArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        if (record.getLevel() == Level.WARNING) {
+          warnings.add(record);
+        }
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    logger.addHandler(handler);
+    try {
+      EnumerativeTransitionHelper helper = new EnumerativeTransitionHelper();
+      helper.setSuccessorLimit(10);
+      assertEquals(successorValues(apply(helper, chooseUpTo(4), 0)),
+              new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)));
+      assertTrue(warnings.isEmpty());
+      helper.setSuccessorLimit(3);
+      assertEquals(successorValues(apply(helper, chooseUpTo(4), 0)).size(), 3);
+      assertEquals(warnings.size(), 1);
+      helper.dispose();
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  private Transition chooseUpTo(int max) {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, (Expression) p);
+    Expression<Boolean> guard = new PropositionalCompound(
+            new NumericBooleanExpression(p, NumericComparator.GE, c0),
+            LogicalOperator.AND,
+            new NumericBooleanExpression(p, NumericComparator.LE,
+                    new Constant<>(BuiltinTypes.SINT32, max)));
+    return new Transition(guard, effects, "choose", true, false);
+  }
+
+  private static Set<Object> successorValues(
+          List<EnumerativeState> successors) {
+    Set<Object> values = new HashSet<>();
+    for (EnumerativeState successor : successors) {
+      values.add(valueOf(successor, "x'"));
+    }
+    return values;
+  }
+
+  private List<EnumerativeState> apply(Transition transition, int value) {
+    return apply(new EnumerativeTransitionHelper(), transition, value);
+  }
+
+  private List<EnumerativeState> apply(EnumerativeTransitionHelper helper,
+          Transition transition, int value) {
+    Valuation init = new Valuation();
+    init.setValue(x, value);
+    EnumerativeImage image = new EnumerativeImage(new EnumerativeRegion(init));
+    helper.applyOkTransition(image, transition);
+    return new ArrayList<>(image.getNewStates().values());
+  }
+
+  private static Object valueOf(EnumerativeState state, String name) {
+    for (ValuationEntry entry : state) {
+      if (entry.getVariable().getName().equals(name)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  static class CountingSolver extends ConstraintSolver {
+
+    private final ConstraintSolver delegate;
+    int calls;
+
+    CountingSolver(ConstraintSolver delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      calls++;
+      return delegate.solve(f, result);
+    }
+
+    @Override
+    public SolverContext createContext() {
+      return delegate.createContext();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package gov.nasa.jstateexplorer.transitionSystem;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.exceptions.ImpreciseRepresentationException;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jstateexplorer.SymbolicSearchEngine;
+import gov.nasa.jstateexplorer.datastructures.searchImage.SymbolicImage;
+import java.io.File;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the parallel symbolic post image with the sequential one.
+ */
+public class ParallelSymbolicTransitionHelperTest {
+
+  private Properties conf;
+  private ConstraintSolver solver;
+
+  @BeforeMethod
+  public void setUp() {
+    conf = new Properties();
+    conf.setProperty("symbolic.dp", "Z3");
+    conf.setProperty("symbolic.dp.z3.bitvectors", "false");
+    solver = ConstraintSolverFactory.createSolver(conf);
+  }
+
+  @Test
+  public void parallelSearchReachesTheSameStates()
+          throws ImpreciseRepresentationException {
+    TransitionSystem sequentialSystem = load();
+    sequentialSystem.setHelper(new SymbolicTransitionHelper());
+    SymbolicImage sequential = SymbolicSearchEngine
+            .symbolicBreadthFirstSearch(sequentialSystem, solver,
+                    Integer.MIN_VALUE);
+
+    AtomicInteger closed = new AtomicInteger();
+    ParallelSymbolicTransitionHelper helper
+            = new ParallelSymbolicTransitionHelper(conf, 4,
+                    created -> new CloseableSolver(created, closed));
+    TransitionSystem parallelSystem = load();
+    parallelSystem.setHelper(helper);
+    SymbolicImage parallel;
+    try {
+      parallel = SymbolicSearchEngine.symbolicBreadthFirstSearch(
+              parallelSystem, solver, Integer.MIN_VALUE);
+    } finally {
+      helper.shutdown();
+    }
+    assertEquals(parallel.getDepth(), sequential.getDepth());
+    assertEquals(parallel.getReachableStates().size(),
+            sequential.getReachableStates().size());
+    assertTrue(closed.get() > 0);
+    assertEquals(helper.getOpenSolverCount(), 0);
+  }
+
+  private TransitionSystem load() throws ImpreciseRepresentationException {
+    return TransitionSystemLoader.load("src" + File.separator + "resources"
+            + File.separator + "transitionSystem" + File.separator
+            + "transitionSystem.ts");
+  }
+
+  private static class CloseableSolver extends ConstraintSolver
+          implements AutoCloseable {
+
+    private final ConstraintSolver delegate;
+    private final AtomicInteger closed;
+
+    CloseableSolver(ConstraintSolver delegate, AtomicInteger closed) {
+      this.delegate = delegate;
+      this.closed = closed;
+    }
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      return delegate.solve(f, result);
+    }
+
+    @Override
+    public void close() {
+      closed.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.transitionSystem.Transition;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests transitions compiled over the slots of a state vector.
+ */
+public class CompiledTransitionTest {
+
+  private final Variable x = new Variable(BuiltinTypes.SINT32, "x");
+  private final Variable y = new Variable(BuiltinTypes.SINT32, "y");
+  private final List<Variable<?>> slots = Arrays.<Variable<?>>asList(x, y);
+  private final ExpressionCompiler compiler = new ExpressionCompiler(slots);
+
+  @Test
+  public void guardAndEffectsAreEvaluatedOnTheSlots() {
+    CompiledTransition compiled = CompiledTransition.compile(
+            ok(lt(x, 5), plus(x, 1), y), compiler, slots);
+    assertNotNull(compiled);
+    assertTrue(compiled.isEnabled(new long[]{4, 7}));
+    assertFalse(compiled.isEnabled(new long[]{5, 7}));
+    long[] successor = new long[2];
+    compiled.apply(new long[]{4, 7}, successor);
+    assertEquals(successor, new long[]{5, 7});
+    assertTrue(compiled.supportsBatch());
+  }
+
+  @Test
+  public void parameterEffectsAreNotCompiled() {
+    Variable p = new Variable(BuiltinTypes.SINT32, "p");
+    assertNull(CompiledTransition.compile(ok(lt(x, 5), p, y),
+            compiler, slots));
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, plus(x, 1));
+    assertNull(CompiledTransition.compile(new Transition(lt(x, 5), effects,
+            "partial", true, false), compiler, slots));
+  }
+
+  @Test
+  public void batchMatchesTheScalarEvaluation() {
+    CompiledTransition compiled = CompiledTransition.compile(
+            ok(lt(x, 5), plus(x, 1), plus(y, 2)), compiler, slots);
+    StateBatch states = new StateBatch(2, 16);
+    for (long value = 0; value < 10; value++) {
+      states.add(new long[]{value, -value});
+    }
+    StateBatch enabled = new StateBatch(2, 16);
+    StateBatch successors = new StateBatch(2, 16);
+    assertEquals(compiled.applyBatch(states, enabled, successors), 5);
+    long[] state = new long[2];
+    long[] expected = new long[2];
+    long[] actual = new long[2];
+    for (int row = 0; row < enabled.size(); row++) {
+      enabled.get(row, state);
+      assertTrue(compiled.isEnabled(state));
+      compiled.apply(state, expected);
+      successors.get(row, actual);
+      assertEquals(actual, expected);
+    }
+  }
+
+  @Test
+  public void errorTransitionsHaveNoSuccessors() {
+    CompiledTransition compiled = CompiledTransition.compile(
+            new Transition(lt(x, 5), "error", "", "error", false, true),
+            compiler, slots);
+    StateBatch states = new StateBatch(2, 4);
+    states.add(new long[]{1, 0});
+    states.add(new long[]{6, 0});
+    StateBatch enabled = new StateBatch(2, 4);
+    StateBatch successors = new StateBatch(2, 4);
+    assertEquals(compiled.applyBatch(states, enabled, successors), 1);
+    assertEquals(successors.size(), 0);
+  }
+
+  @Test(expectedExceptions = ArithmeticException.class)
+  public void divisionByZeroIsSignalled() {
+    CompiledTransition compiled = CompiledTransition.compile(
+            ok(dividesByY(), x, y), compiler, slots);
+    assertTrue(compiled.isEnabled(new long[]{4, 2}));
+    compiled.isEnabled(new long[]{4, 0});
+  }
+
+  @Test(expectedExceptions = ArithmeticException.class)
+  public void divisionByZeroIsSignalledForTheBatch() {
+    CompiledTransition compiled = CompiledTransition.compile(
+            ok(dividesByY(), x, y), compiler, slots);
+    StateBatch states = new StateBatch(2, 4);
+    states.add(new long[]{4, 2});
+    states.add(new long[]{4, 0});
+    compiled.applyBatch(states, new StateBatch(2, 4), new StateBatch(2, 4));
+  }
+
+  private Expression<Boolean> dividesByY() {
+    return new NumericBooleanExpression(
+            new NumericCompound(x, NumericOperator.DIV, y),
+            NumericComparator.GT, constant(0));
+  }
+
+  private Transition ok(Expression<Boolean> guard, Expression xEffect,
+          Expression yEffect) {
+    Map<Variable, Expression<Boolean>> effects = new HashMap<>();
+    effects.put(x, xEffect);
+    effects.put(y, yEffect);
+    return new Transition(guard, effects, "ok", true, false);
+  }
+
+  private static Expression<Boolean> lt(Variable var, int value) {
+    return new NumericBooleanExpression(var, NumericComparator.LT,
+            constant(value));
+  }
+
+  private static Expression plus(Variable var, int value) {
+    return new NumericCompound(var, NumericOperator.PLUS, constant(value));
+  }
+
+  private static Constant constant(int value) {
+    return new Constant(BuiltinTypes.SINT32, value);
+  }
+}
@@ -0,0 +1,130 @@
+package gov.nasa.jstateexplorer.transitionSystem.compiled;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ExpressionCompiler.BooleanTerm;
+import gov.nasa.jstateexplorer.transitionSystem.compiled.ExpressionCompiler.LongTerm;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the scalar and column terms of the ExpressionCompiler.
+ */
+public class ExpressionCompilerTest {
+
+  private final Variable x = new Variable(BuiltinTypes.SINT32, "x");
+  private final Variable b = new Variable(BuiltinTypes.BOOL, "b");
+  private final ExpressionCompiler compiler
+          = new ExpressionCompiler(Arrays.<Variable<?>>asList(b, x));
+
+  @Test
+  public void guardsAreEvaluatedOnTheSlots() {
+    Expression<Boolean> guard = new PropositionalCompound(b,
+            LogicalOperator.AND, new NumericBooleanExpression(x,
+                    NumericComparator.LT,
+                    new Constant(BuiltinTypes.SINT32, 5)));
+    BooleanTerm compiled = compiler.compileCondition(guard);
+    assertTrue(compiled.evaluate(new long[]{1, 4}));
+    assertFalse(compiled.evaluate(new long[]{1, 5}));
+    assertFalse(compiled.evaluate(new long[]{0, 4}));
+  }
+
+  @Test
+  public void solverArithmeticIsSignalled() {
+    LongTerm plus = compiler.compileValue(new NumericCompound(x,
+            NumericOperator.PLUS, new Constant(BuiltinTypes.SINT32, 1)));
+    assertEquals(plus.evaluate(new long[]{0, 41}), 42);
+    //The solver has unbounded integers.
+    assertArithmeticException(plus, new long[]{0, Integer.MAX_VALUE});
+    LongTerm divide = compiler.compileValue(new NumericCompound(x,
+            NumericOperator.DIV, new Constant(BuiltinTypes.SINT32, 2)));
+    LongTerm remainder = compiler.compileValue(new NumericCompound(x,
+            NumericOperator.REM, new Constant(BuiltinTypes.SINT32, 2)));
+    assertEquals(divide.evaluate(new long[]{0, 7}), 3);
+    assertEquals(remainder.evaluate(new long[]{0, 7}), 1);
+    //The solver rounds down: -7 div 2 is -4 and -7 mod 2 is 1.
+    assertArithmeticException(divide, new long[]{0, -7});
+    assertArithmeticException(remainder, new long[]{0, -7});
+  }
+
+  private static void assertArithmeticException(LongTerm term,
+          long[] state) {
+    try {
+      term.evaluate(state);
+      fail("The term has to leave the state to the solver.");
+    } catch (ArithmeticException expected) {
+    }
+  }
+
+  @Test
+  public void columnTermsMatchTheScalarTerms() {
+    Expression<Boolean> guard = new PropositionalCompound(b,
+            LogicalOperator.OR, new NumericBooleanExpression(
+                    new NumericCompound(x, NumericOperator.MUL,
+                            new Constant(BuiltinTypes.SINT32, 3)),
+                    NumericComparator.GE,
+                    new Constant(BuiltinTypes.SINT32, 9)));
+    BooleanTerm scalar = compiler.compileCondition(guard);
+    ColumnCompiler.ColumnTerm column
+            = compiler.getColumnCompiler().compileCondition(guard);
+    StateBatch batch = new StateBatch(2, 16);
+    for (long value = -4; value < 12; value++) {
+      batch.add(new long[]{value & 1, value});
+    }
+    long[] result = column.evaluate(batch);
+    long[] state = new long[2];
+    for (int row = 0; row < batch.size(); row++) {
+      batch.get(row, state);
+      assertEquals(result[row] != 0, scalar.evaluate(state));
+    }
+  }
+
+  @Test
+  public void columnTermsSignalSolverArithmetic() {
+    Expression value = new NumericCompound(x, NumericOperator.DIV,
+            new Constant(BuiltinTypes.SINT32, 2));
+    LongTerm scalar = compiler.compileValue(value);
+    ColumnCompiler.ColumnTerm column
+            = compiler.getColumnCompiler().compileValue(value);
+    StateBatch batch = new StateBatch(2, 4);
+    batch.add(new long[]{0, 7});
+    batch.add(new long[]{0, 8});
+    assertEquals(column.evaluate(batch)[0],
+            scalar.evaluate(new long[]{0, 7}));
+    batch.add(new long[]{0, -7});
+    try {
+      column.evaluate(batch);
+      fail("The column has to leave the batch to the scalar terms.");
+    } catch (ArithmeticException expected) {
+    }
+    Expression sum = new NumericCompound(x, NumericOperator.PLUS,
+            new Constant(BuiltinTypes.SINT32, 1));
+    StateBatch overflow = new StateBatch(2, 4);
+    overflow.add(new long[]{0, Integer.MAX_VALUE});
+    try {
+      compiler.getColumnCompiler().compileValue(sum).evaluate(overflow);
+      fail("The column has to leave the batch to the scalar terms.");
+    } catch (ArithmeticException expected) {
+    }
+  }
+
+  @Test
+  public void unknownVariablesAreNotCompiled() {
+    Variable parameter = new Variable(BuiltinTypes.SINT32, "p");
+    assertNull(compiler.compileCondition(new NumericBooleanExpression(
+            x, NumericComparator.EQ, parameter)));
+  }
+}
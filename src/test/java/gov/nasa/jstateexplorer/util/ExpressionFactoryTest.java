@@ -0,0 +1,76 @@
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the hash consing of the ExpressionFactory.
+ */
+public class ExpressionFactoryTest {
+
+  @Test
+  public void structurallyEqualExpressionsAreShared() {
+    ExpressionFactory factory = new ExpressionFactory();
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    Variable y = factory.variable(BuiltinTypes.SINT32, "y");
+    Constant c5 = factory.constant(BuiltinTypes.SINT32, 5);
+    Expression<Boolean> first = factory.and(
+            factory.numericBoolean(x, NumericComparator.GT, c5),
+            factory.numericBoolean(y, NumericComparator.LT, c5));
+    Expression<Boolean> second = factory.and(
+            factory.numericBoolean(x, NumericComparator.GT, c5),
+            factory.numericBoolean(y, NumericComparator.LT, c5));
+    assertSame(first, second);
+    assertSame(factory.variable(BuiltinTypes.SINT32, "x"), x);
+  }
+
+  @Test
+  public void internRebuildsForeignExpressions() {
+    ExpressionFactory factory = new ExpressionFactory();
+    Variable x = new Variable(BuiltinTypes.SINT32, "x");
+    Constant c5 = new Constant(BuiltinTypes.SINT32, 5);
+    Expression<Boolean> foreign = new PropositionalCompound(
+            new NumericBooleanExpression(x, NumericComparator.GT, c5),
+            LogicalOperator.AND,
+            new NumericBooleanExpression(x, NumericComparator.GT, c5));
+    Expression<Boolean> interned = factory.intern(foreign);
+    assertEquals(interned, foreign);
+    assertSame(interned.getChildren()[0], interned.getChildren()[1]);
+    assertSame(factory.intern(interned), interned);
+  }
+
+  @Test
+  public void differentOperatorsAreNotShared() {
+    ExpressionFactory factory = new ExpressionFactory();
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    Constant c5 = factory.constant(BuiltinTypes.SINT32, 5);
+    assertNotSame(factory.numericBoolean(x, NumericComparator.GT, c5),
+            factory.numericBoolean(x, NumericComparator.GE, c5));
+  }
+
+  @Test
+  public void unreferencedExpressionsAreReleased()
+          throws InterruptedException {
+    ExpressionFactory factory = new ExpressionFactory();
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    factory.numericBoolean(x, NumericComparator.GT,
+            factory.constant(BuiltinTypes.SINT32, 5));
+    assertEquals(factory.size(), 3);
+    for (int i = 0; i < 100 && factory.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(factory.size(), 1);
+    assertSame(factory.variable(BuiltinTypes.SINT32, "x"), x);
+  }
+}
@@ -0,0 +1,103 @@
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.Quantifier;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the metadata cached for expressions.
+ */
+public class ExpressionMetadataTest {
+
+  @Test
+  public void freeVariablesMatchExpressionUtil() {
+    ExpressionFactory factory = new ExpressionFactory();
+    SymbolTable symbols = new SymbolTable(factory);
+    ExpressionMetadata metadata = new ExpressionMetadata(symbols);
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    Variable y = factory.variable(BuiltinTypes.SINT32, "y");
+    Variable<Integer> z = factory.variable(BuiltinTypes.SINT32, "z");
+    Constant c5 = factory.constant(BuiltinTypes.SINT32, 5);
+    Expression<Boolean> xy = factory.numericBoolean(x, NumericComparator.EQ, y);
+    Expression<Boolean> expr = factory.and(xy,
+            factory.quantifier(Quantifier.EXISTS, Arrays.asList(z),
+                    factory.numericBoolean(z, NumericComparator.GT, c5)));
+    assertEquals(metadata.freeVariables(expr),
+            ExpressionUtil.freeVariables(expr));
+    assertTrue(metadata.isFree(y, expr));
+    assertFalse(metadata.isFree(z, expr));
+    assertFalse(metadata.containsAnyFree(Collections.singleton(z), expr));
+    assertEquals(metadata.getNodeCount(xy), 3);
+  }
+
+  @Test
+  public void structurallyEqualExpressionsHaveTheSameHash() {
+    ExpressionFactory factory = new ExpressionFactory();
+    ExpressionMetadata metadata
+            = new ExpressionMetadata(new SymbolTable(factory));
+    Variable x = new Variable(BuiltinTypes.SINT32, "x");
+    Constant c5 = new Constant(BuiltinTypes.SINT32, 5);
+    Expression<Boolean> first = ExpressionUtil.and(
+            factory.numericBoolean(x, NumericComparator.GT, c5),
+            factory.numericBoolean(x, NumericComparator.LT, c5));
+    Expression<Boolean> second = ExpressionUtil.and(
+            factory.numericBoolean(x, NumericComparator.GT, c5),
+            factory.numericBoolean(x, NumericComparator.LT, c5));
+    assertEquals(metadata.getStructuralHash(first),
+            metadata.getStructuralHash(second));
+    assertEquals(metadata.getNodeCount(first), 7);
+  }
+
+  @Test
+  public void concurrentLookupsAgree() throws Exception {
+    ExpressionFactory factory = new ExpressionFactory();
+    ExpressionMetadata metadata
+            = new ExpressionMetadata(new SymbolTable(factory));
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    List<Expression<Boolean>> expressions = new ArrayList<>();
+    Expression<Boolean> conjunction = null;
+    for (int i = 0; i < 200; i++) {
+      Expression<Boolean> bound = factory.numericBoolean(x,
+              NumericComparator.NE, factory.constant(BuiltinTypes.SINT32, i));
+      conjunction = conjunction == null ? bound
+              : factory.and(conjunction, bound);
+      expressions.add(conjunction);
+    }
+    ExecutorService workers = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(workers.submit(() -> {
+          int[] counts = new int[expressions.size()];
+          for (int i = expressions.size() - 1; i >= 0; i--) {
+            counts[i] = metadata.getNodeCount(expressions.get(i));
+          }
+          return counts;
+        }));
+      }
+      for (Future<int[]> result : results) {
+        int[] counts = result.get();
+        for (int i = 0; i < counts.length; i++) {
+          assertEquals(counts[i], 4 * i + 3);
+        }
+      }
+    } finally {
+      workers.shutdown();
+    }
+  }
+}
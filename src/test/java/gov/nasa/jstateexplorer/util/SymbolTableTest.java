@@ -0,0 +1,110 @@
+package gov.nasa.jstateexplorer.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the interning and renaming of variables by the SymbolTable.
+ */
+public class SymbolTableTest {
+
+  @Test
+  public void primesAndStepVariablesAreInterned() {
+    SymbolTable symbols = new SymbolTable(new ExpressionFactory());
+    Variable x = new Variable(BuiltinTypes.SINT32, "x");
+    int id = symbols.getId(x);
+    assertEquals(symbols.getId(new Variable(BuiltinTypes.SINT32, "x")), id);
+    Variable prime = symbols.getPrimeVariable(x);
+    assertEquals(prime.getName(), "x'");
+    assertSame(symbols.getPrimeVariable(x), prime);
+    int inStep = symbols.getInStep(id, SymbolTable.STATE_VARIABLE_SUFFIX, 3);
+    assertEquals(symbols.getVariable(inStep).getName(), "x_sv_3");
+    assertEquals(symbols.getInStep(
+            id, SymbolTable.STATE_VARIABLE_SUFFIX, 3), inStep);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void typeClashIsRejected() {
+    SymbolTable symbols = new SymbolTable(new ExpressionFactory());
+    symbols.intern(BuiltinTypes.SINT32, "x");
+    symbols.intern(BuiltinTypes.BOOL, "x");
+  }
+
+  @Test
+  public void renamingReplacesMappedVariables() {
+    ExpressionFactory factory = new ExpressionFactory();
+    SymbolTable symbols = new SymbolTable(factory);
+    Variable x = factory.variable(BuiltinTypes.SINT32, "x");
+    Variable y = factory.variable(BuiltinTypes.SINT32, "y");
+    Constant c5 = factory.constant(BuiltinTypes.SINT32, 5);
+    Expression<Boolean> expr = factory.and(
+            factory.numericBoolean(symbols.getPrimeVariable(x),
+                    NumericComparator.EQ, y),
+            factory.numericBoolean(x, NumericComparator.GT, c5));
+    VariableRenaming renaming = new VariableRenaming(symbols);
+    renaming.map(symbols.getPrimeVariable(x), x);
+    renaming.map(x, y);
+    Expression<Boolean> expected = factory.and(
+            factory.numericBoolean(x, NumericComparator.EQ, y),
+            factory.numericBoolean(y, NumericComparator.GT, c5));
+    assertSame(renaming.apply(expr), expected);
+    assertSame(new VariableRenaming(symbols).apply(expr), expr);
+  }
+
+  @Test
+  public void generatedVariablesAreReleased() {
+    SymbolTable symbols = new SymbolTable(new ExpressionFactory());
+    int x = symbols.intern(BuiltinTypes.SINT32, "x");
+    int primeX = symbols.getPrime(x);
+    int fresh = symbols.internGenerated(BuiltinTypes.SINT32,
+            "uVarReplacement_0");
+    symbols.getPrime(fresh);
+    symbols.getInStep(fresh, SymbolTable.STATE_VARIABLE_SUFFIX, 1);
+    assertEquals(symbols.size(), 5);
+    assertEquals(symbols.releaseGenerated(), 3);
+    assertEquals(symbols.size(), 2);
+    assertEquals(symbols.getPrime(x), primeX);
+    assertEquals(symbols.intern(BuiltinTypes.SINT32, "x"), x);
+    int reused = symbols.intern(BuiltinTypes.SINT32, "y");
+    assertEquals(reused, fresh);
+    assertEquals(symbols.getVariable(reused).getName(), "y");
+    assertEquals(symbols.releaseGenerated(), 0);
+  }
+
+  @Test
+  public void concurrentLookupsAgreeOnIds() throws Exception {
+    SymbolTable symbols = new SymbolTable(new ExpressionFactory());
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(pool.submit(() -> {
+          int[] ids = new int[100];
+          for (int i = 0; i < ids.length; i++) {
+            ids[i] = symbols.getPrime(
+                    symbols.intern(BuiltinTypes.SINT32, "v" + i));
+          }
+          return ids;
+        }));
+      }
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results) {
+        assertEquals(result.get(), expected);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(symbols.size(), 200);
+  }
+}
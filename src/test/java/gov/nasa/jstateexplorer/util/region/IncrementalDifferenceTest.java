@@ -0,0 +1,95 @@
+package gov.nasa.jstateexplorer.util.region;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jstateexplorer.datastructures.region.SymbolicRegion;
+import gov.nasa.jstateexplorer.datastructures.state.SymbolicState;
+import gov.nasa.jstateexplorer.util.ExpressionFactory;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the incremental difference with the plain difference.
+ */
+public class IncrementalDifferenceTest {
+
+  private Variable<Integer> x;
+  private ConstraintSolver solver;
+  private SymbolicRegionUtil incremental;
+  private SymbolicRegionUtil plain;
+  private Map<SymbolicState, String> names;
+
+  @BeforeMethod
+  public void setUp() {
+    x = new Variable<>(BuiltinTypes.SINT32, "x");
+    Properties conf = new Properties();
+    conf.setProperty("symbolic.dp", "Z3");
+    conf.setProperty("symbolic.dp.z3.bitvectors", "false");
+    solver = ConstraintSolverFactory.createSolver(conf);
+    incremental = new SymbolicRegionUtil(solver);
+    incremental.setIncrementalDifference(true);
+    plain = new SymbolicRegionUtil(solver);
+    names = new IdentityHashMap<>();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    incremental.dispose();
+  }
+
+  @Test
+  public void growingExcludedRegionMatchesThePlainDifference() {
+    SymbolicState one = state(1);
+    SymbolicState two = state(2);
+    SymbolicState three = state(3);
+    SymbolicRegion reached = region(one);
+    SymbolicRegion candidates = region(one, two);
+    SymbolicRegion expected = plain.difference(candidates, reached);
+    SymbolicRegion first = incremental.difference(candidates, reached);
+    assertEquals(first.keySet(), expected.keySet());
+    assertTrue(first.containsKey("s2"));
+
+    reached = incremental.union(reached, first);
+    candidates = region(two, three);
+    expected = plain.difference(candidates, reached);
+    SymbolicRegion second = incremental.difference(candidates, reached);
+    assertEquals(second.keySet(), expected.keySet());
+    assertEquals(second.size(), 1);
+    assertTrue(second.containsKey("s3"));
+  }
+
+  @Test
+  public void shrinkingExcludedRegionRebuildsTheContext() {
+    SymbolicState one = state(1);
+    SymbolicState two = state(2);
+    incremental.difference(region(two), region(one));
+    SymbolicRegion result = incremental.difference(region(one), region(two));
+    assertEquals(result.size(), 1);
+    assertTrue(result.containsKey("s1"));
+  }
+
+  private SymbolicState state(int value) {
+    Valuation valuation = new Valuation();
+    valuation.setValue(x, value);
+    SymbolicState state = new SymbolicState(valuation);
+    names.put(state, "s" + value);
+    return state;
+  }
+
+  private SymbolicRegion region(SymbolicState... states) {
+    SymbolicRegion region = new SymbolicRegion();
+    for (SymbolicState state : states) {
+      region.put(names.get(state), state);
+    }
+    return region;
+  }
+}